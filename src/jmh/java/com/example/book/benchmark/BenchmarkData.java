@@ -0,0 +1,119 @@
+package com.example.book.benchmark;
+
+import com.example.book.cache.BookCache;
+import com.example.book.cache.BookTombstones;
+import com.example.book.config.CacheConfig;
+import com.example.book.config.CheckoutConfig;
+import com.example.book.config.DiscountConfig;
+import com.example.book.config.OrderConfig;
+import com.example.book.config.PaginationConfig;
+import com.example.book.dto.BookDto;
+import com.example.book.dto.request.BookRequestDto;
+import com.example.book.dto.request.CheckoutBookRequestDto;
+import com.example.book.entity.Book;
+import com.example.book.mapper.BookMapper;
+import com.example.book.model.BookStatus;
+import com.example.book.model.CheckedOutBook;
+import com.example.book.model.DiscountRule;
+import com.example.book.model.PromotionRule;
+import com.example.book.service.BookServiceImpl;
+import com.example.book.service.OrderServiceImpl;
+import lombok.experimental.UtilityClass;
+import org.mapstruct.factory.Mappers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic fixtures shared by the benchmarks.
+ */
+@UtilityClass
+public class BenchmarkData {
+
+    public final String[] TYPES = {"FICTION", "COMICS", "THRILLER", "ROMANCE", "HISTORY", "SCIENCE"};
+
+    public BookMapper bookMapper() {
+        return Mappers.getMapper(BookMapper.class);
+    }
+
+    /**
+     * A service wired for checkout only. Nothing that touches the repository may be called on it.
+     */
+    public BookServiceImpl checkoutService(DiscountConfig discountConfig) {
+        return new BookServiceImpl(null, bookMapper(), discountConfig, new PaginationConfig(),
+                new BookCache(new CacheConfig()), new BookTombstones(null), new CheckoutConfig(), null, null, null,
+                new OrderServiceImpl(null, new OrderConfig(), null), event -> { });
+    }
+
+    /**
+     * promotionCount promotions named code0, code1, ... each discounting half of the book types.
+     */
+    public DiscountConfig discountConfig(int promotionCount) {
+        List<PromotionRule> promotionRules = new ArrayList<>(promotionCount);
+        for (int i = 0; i < promotionCount; i++) {
+            List<DiscountRule> discountRules = new ArrayList<>();
+            for (int t = i % 2; t < TYPES.length; t += 2) {
+                discountRules.add(new DiscountRule(TYPES[t], BigDecimal.valueOf(5 + (i + t) % 20)));
+            }
+            promotionRules.add(new PromotionRule("code" + i, discountRules));
+        }
+        DiscountConfig discountConfig = new DiscountConfig();
+        discountConfig.setPromotionRules(promotionRules);
+        return discountConfig;
+    }
+
+    public CheckoutBookRequestDto checkoutRequest(String promoCode, int basketSize) {
+        List<CheckedOutBook> items = new ArrayList<>(basketSize);
+        for (int i = 0; i < basketSize; i++) {
+            CheckedOutBook item = new CheckedOutBook();
+            item.setId(String.valueOf(i + 1));
+            item.setType(TYPES[i % TYPES.length]);
+            item.setQuantity(1 + i % 5);
+            item.setBookPrice(BigDecimal.valueOf(199 + i * 37L % 5000, 2));
+            items.add(item);
+        }
+        CheckoutBookRequestDto request = new CheckoutBookRequestDto();
+        request.setPromoCode(promoCode);
+        request.setItems(items);
+        return request;
+    }
+
+    public Book book(long id) {
+        Book book = Book.builder()
+                .id(id)
+                .bookName("The Benchmark Book " + id)
+                .bookDescription("A long running performance thriller, volume " + id)
+                .author("Jane Doe")
+                .type(TYPES[(int) (id % TYPES.length)])
+                .bookPrice(BigDecimal.valueOf(1999 + id % 1000, 2))
+                .isbn(String.format("%013d", id))
+                .status(BookStatus.ACTIVE)
+                .build();
+        book.setCreatedOn(LocalDateTime.of(2021, 1, 1, 10, 0));
+        book.setUpdatedOn(LocalDateTime.of(2021, 1, 2, 10, 0));
+        return book;
+    }
+
+    public BookRequestDto bookRequest(long id) {
+        Book book = book(id);
+        return BookRequestDto.builder()
+                .bookName(book.getBookName())
+                .bookDescription(book.getBookDescription())
+                .author(book.getAuthor())
+                .type(book.getType())
+                .bookPrice(book.getBookPrice())
+                .isbn(book.getIsbn())
+                .build();
+    }
+
+    public List<BookDto> bookDtos(int count) {
+        BookMapper bookMapper = bookMapper();
+        List<BookDto> books = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            books.add(bookMapper.toDto(book(id)));
+        }
+        return books;
+    }
+}
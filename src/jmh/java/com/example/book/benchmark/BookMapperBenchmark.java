@@ -0,0 +1,42 @@
+package com.example.book.benchmark;
+
+import com.example.book.dto.BookDto;
+import com.example.book.dto.request.BookRequestDto;
+import com.example.book.entity.Book;
+import com.example.book.mapper.BookMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapStruct conversions done on every read and write of a book.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookMapperBenchmark {
+
+    private BookMapper bookMapper;
+    private Book book;
+    private BookRequestDto bookRequest;
+
+    @Setup
+    public void setup() {
+        bookMapper = BenchmarkData.bookMapper();
+        book = BenchmarkData.book(42);
+        bookRequest = BenchmarkData.bookRequest(42);
+    }
+
+    @Benchmark
+    public BookDto toDto() {
+        return bookMapper.toDto(book);
+    }
+
+    @Benchmark
+    public Book fromBookRequestDto() {
+        return bookMapper.fromBookRequestDto(bookRequest);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.book.benchmark;
+
+import com.example.book.dto.request.CheckoutBookRequestDto;
+import com.example.book.dto.response.CheckoutBookResponse;
+import com.example.book.service.BookServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout pricing across basket sizes and number of configured promotions.
+ * The promo code used is the last one configured, the worst case for a linear scan of the promotions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckoutBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    private int basketSize;
+
+    @Param({"2", "100", "10000"})
+    private int promotionCount;
+
+    private BookServiceImpl bookService;
+    private CheckoutBookRequestDto request;
+    private CheckoutBookRequestDto requestWithoutPromoCode;
+
+    @Setup
+    public void setup() {
+        bookService = BenchmarkData.checkoutService(BenchmarkData.discountConfig(promotionCount));
+        request = BenchmarkData.checkoutRequest("code" + (promotionCount - 1), basketSize);
+        requestWithoutPromoCode = BenchmarkData.checkoutRequest(null, basketSize);
+    }
+
+    @Benchmark
+    public CheckoutBookResponse withPromoCode() {
+        return bookService.calculateBookPayment(request);
+    }
+
+    @Benchmark
+    public CheckoutBookResponse withoutPromoCode() {
+        return bookService.calculateBookPayment(requestWithoutPromoCode);
+    }
+}
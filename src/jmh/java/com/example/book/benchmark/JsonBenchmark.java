@@ -0,0 +1,82 @@
+package com.example.book.benchmark;
+
+import com.example.book.cache.BookJsonCache;
+import com.example.book.config.JsonCacheConfig;
+import com.example.book.context.AppContext;
+import com.example.book.dto.BookDto;
+import com.example.book.dto.request.CheckoutBookRequestDto;
+import com.example.book.dto.response.CheckoutBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization with the application ObjectMapper configured in {@link AppContext}, and the same book read
+ * from the {@link BookJsonCache} instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private ObjectWriter bookWriter;
+    private ObjectWriter pageWriter;
+    private ObjectWriter checkoutResponseWriter;
+    private ObjectReader checkoutRequestReader;
+    private BookJsonCache bookJsonCache;
+
+    private BookDto book;
+    private List<BookDto> page;
+    private CheckoutBookResponse checkoutResponse;
+    private byte[] checkoutRequestJson;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper objectMapper = AppContext.objectMapper();
+        bookWriter = objectMapper.writerFor(BookDto.class);
+        pageWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, BookDto.class));
+        checkoutResponseWriter = objectMapper.writerFor(CheckoutBookResponse.class);
+        checkoutRequestReader = objectMapper.readerFor(CheckoutBookRequestDto.class);
+
+        page = BenchmarkData.bookDtos(100);
+        book = page.get(0);
+        book.setVersion(1L);
+        bookJsonCache = new BookJsonCache(objectMapper, new JsonCacheConfig());
+        checkoutResponse = new CheckoutBookResponse(BigDecimal.valueOf(105300, 2), BigDecimal.valueOf(95050, 2));
+        checkoutRequestJson = objectMapper.writeValueAsBytes(BenchmarkData.checkoutRequest("code1", 10));
+    }
+
+    @Benchmark
+    public byte[] writeBook() throws IOException {
+        return bookWriter.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] cachedBook() {
+        return bookJsonCache.get(book).getJson();
+    }
+
+    @Benchmark
+    public byte[] writePageOf100Books() throws IOException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] writeCheckoutResponse() throws IOException {
+        return checkoutResponseWriter.writeValueAsBytes(checkoutResponse);
+    }
+
+    @Benchmark
+    public CheckoutBookRequestDto readCheckoutRequest() throws IOException {
+        return checkoutRequestReader.readValue(checkoutRequestJson);
+    }
+}
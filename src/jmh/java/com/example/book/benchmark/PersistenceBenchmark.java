@@ -0,0 +1,145 @@
+package com.example.book.benchmark;
+
+import com.example.book.BooksApplication;
+import com.example.book.dto.BookDto;
+import com.example.book.dto.request.BookRequestDto;
+import com.example.book.dto.response.BookImportResponseDto;
+import com.example.book.dto.response.CreateBookResponseDto;
+import com.example.book.entity.Book;
+import com.example.book.model.BookStatus;
+import com.example.book.model.CatalogFormat;
+import com.example.book.repository.BookRepository;
+import com.example.book.service.BookImportService;
+import com.example.book.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Create, import, read and update throughput of the service and repository layers under each persistence profile,
+ * from several threads so the connection pool is exercised. Profiles are joined with '+' since JMH splits
+ * parameters on commas, and any property can be overridden for a run through the properties parameter, ';'
+ * separated, for example
+ * {@code -p profiles=production+h2-file -p properties="spring.datasource.hikari.maximum-pool-size=4" -t 8}.
+ * The mysql profile needs MYSQL_URL, MYSQL_USER and MYSQL_PASSWORD of a server to write to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+    private static final int IMPORT_SIZE = 100;
+
+    @Param({"default", "production", "production+h2-file"})
+    private String profiles;
+
+    @Param({""})
+    private String properties;
+
+    private ConfigurableApplicationContext context;
+    private Path dataDir;
+    private BookService bookService;
+    private BookImportService bookImportService;
+    private BookRepository repository;
+    private ObjectMapper objectMapper;
+    private long firstId;
+    private final AtomicLong isbns = new AtomicLong(1_000_000_000_000L);
+
+    @Setup
+    public void setup() throws IOException {
+        dataDir = Files.createTempDirectory("books");
+        List<String> args = new ArrayList<>();
+        args.add("--BOOK_DATA_DIR=" + dataDir);
+        args.add("--spring.jpa.show-sql=false");
+        args.add("--logging.level.root=WARN");
+        for (String property : properties.split(";")) {
+            if (!property.isBlank()) {
+                args.add("--" + property.trim());
+            }
+        }
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(BooksApplication.class)
+                .web(WebApplicationType.NONE);
+        if (!profiles.equals("default")) {
+            builder.profiles(profiles.split("\\+"));
+        }
+        context = builder.run(args.toArray(new String[0]));
+        bookService = context.getBean(BookService.class);
+        bookImportService = context.getBean(BookImportService.class);
+        repository = context.getBean(BookRepository.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        List<Book> books = new ArrayList<>(CATALOG_SIZE);
+        for (long i = 1; i <= CATALOG_SIZE; i++) {
+            Book book = BenchmarkData.book(i);
+            book.setId(null);
+            books.add(book);
+        }
+        firstId = repository.saveAll(books).get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        FileSystemUtils.deleteRecursively(dataDir.toFile());
+    }
+
+    @Benchmark
+    public CreateBookResponseDto create() {
+        return bookService.saveBook(newBook());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IMPORT_SIZE)
+    public BookImportResponseDto importBooks() throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < IMPORT_SIZE; i++) {
+            ndjson.append(objectMapper.writeValueAsString(newBook())).append('\n');
+        }
+        return bookImportService.importBooks(new ByteArrayInputStream(ndjson.toString().getBytes()), CatalogFormat.NDJSON);
+    }
+
+    /**
+     * Straight from the database, the book cache would hide the connection pool.
+     */
+    @Benchmark
+    public BookDto read() {
+        return repository.findDtoByIdAndStatus(randomId(), BookStatus.ACTIVE).orElseThrow();
+    }
+
+    @Benchmark
+    public BookDto update() {
+        long id = randomId();
+        BookRequestDto request = BenchmarkData.bookRequest(id);
+        request.setBookPrice(request.getBookPrice().add(BigDecimal.ONE));
+        return bookService.updateBook(id, request, null);
+    }
+
+    private long randomId() {
+        return firstId + ThreadLocalRandom.current().nextInt(CATALOG_SIZE);
+    }
+
+    private BookRequestDto newBook() {
+        BookRequestDto request = BenchmarkData.bookRequest(ThreadLocalRandom.current().nextInt(CATALOG_SIZE) + 1);
+        request.setIsbn(String.valueOf(isbns.incrementAndGet()));
+        return request;
+    }
+}
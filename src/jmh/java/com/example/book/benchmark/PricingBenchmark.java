@@ -0,0 +1,47 @@
+package com.example.book.benchmark;
+
+import com.example.book.dto.response.CheckoutBookResponse;
+import com.example.book.model.CheckedOutBook;
+import com.example.book.pricing.CentsPricing;
+import com.example.book.pricing.DecimalPricing;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The BigDecimal and the long cents pricing engines on the same carts, half of the items discounted.
+ * Run with -prof gc to compare the bytes allocated per cart.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    private int basketSize;
+
+    private List<CheckedOutBook> items;
+    private Map<String, BigDecimal> discounts;
+
+    @Setup
+    public void setup() {
+        items = BenchmarkData.checkoutRequest(null, basketSize).getItems();
+        discounts = BenchmarkData.discountConfig(1).getPromotionIndex().getDiscounts("code0");
+    }
+
+    @Benchmark
+    public CheckoutBookResponse decimal() {
+        return DecimalPricing.price(items, discounts);
+    }
+
+    @Benchmark
+    public CheckoutBookResponse cents() {
+        return CentsPricing.price(items, discounts);
+    }
+}
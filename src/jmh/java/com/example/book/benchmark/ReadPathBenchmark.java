@@ -0,0 +1,124 @@
+package com.example.book.benchmark;
+
+import com.example.book.BooksApplication;
+import com.example.book.dto.BookDto;
+import com.example.book.entity.Book;
+import com.example.book.mapper.BookMapper;
+import com.example.book.model.BookStatus;
+import com.example.book.repository.BookRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Reading a page and a single book as managed entities mapped to dtos, against the dto projections of
+ * BookRepository, and reading pageSize books by id with one query against one query per book. Runs against an
+ * in-memory H2 database, so it shows the hydration and mapping cost without network latency. Run with
+ * {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadPathBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+    private static final String ENTITY_PAGE_QUERY =
+            "select b from Book b where b.status = :status and b.id > :after order by b.id";
+
+    @Param({"20", "100", "1000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository repository;
+    private BookMapper bookMapper;
+    private EntityManager entityManager;
+    private TransactionTemplate transaction;
+    private long firstId;
+    private List<Long> ids;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(BooksApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:readpath",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .run();
+        repository = context.getBean(BookRepository.class);
+        bookMapper = context.getBean(BookMapper.class);
+        entityManager = context.getBean(EntityManager.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        List<Book> books = new ArrayList<>(CATALOG_SIZE);
+        for (long i = 1; i <= CATALOG_SIZE; i++) {
+            Book book = BenchmarkData.book(i);
+            book.setId(null);
+            books.add(book);
+        }
+        firstId = repository.saveAll(books).get(0).getId();
+        ids = new ArrayList<>(pageSize);
+        // spread over the catalog, as the books of a cart or a list of recommendations are
+        for (int i = 0; i < pageSize; i++) {
+            ids.add(firstId + (long) i * CATALOG_SIZE / pageSize);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BookDto> pageOfEntities() {
+        return transaction.execute(status -> entityManager.createQuery(ENTITY_PAGE_QUERY, Book.class)
+                .setParameter("status", BookStatus.ACTIVE)
+                .setParameter("after", firstId)
+                .setMaxResults(pageSize)
+                .getResultList().stream()
+                .map(bookMapper::toDto)
+                .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public List<BookDto> pageOfDtos() {
+        return repository.findDtoPage(BookStatus.ACTIVE, firstId, PageRequest.of(0, pageSize));
+    }
+
+    @Benchmark
+    public BookDto bookEntity() {
+        return transaction.execute(status -> repository.findById(firstId).map(bookMapper::toDto).orElseThrow());
+    }
+
+    @Benchmark
+    public BookDto bookDto() {
+        return repository.findDtoByIdAndStatus(firstId, BookStatus.ACTIVE).orElseThrow();
+    }
+
+    @Benchmark
+    public List<BookDto> booksByIds() {
+        return repository.findDtosByIds(ids, BookStatus.ACTIVE);
+    }
+
+    @Benchmark
+    public List<BookDto> booksOneByOne() {
+        List<BookDto> books = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            books.add(repository.findDtoByIdAndStatus(id, BookStatus.ACTIVE).orElseThrow());
+        }
+        return books;
+    }
+}
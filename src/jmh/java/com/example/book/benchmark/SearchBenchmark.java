@@ -0,0 +1,80 @@
+package com.example.book.benchmark;
+
+import com.example.book.config.SearchConfig;
+import com.example.book.dto.BookDto;
+import com.example.book.search.BookChangedEvent;
+import com.example.book.search.BookSearchIndex;
+import com.example.book.search.SearchHits;
+import com.example.book.search.SearchQuery;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries against the in-memory search index filled with synthetic titles drawn from a small vocabulary, so common
+ * words match a large share of the catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+
+    private static final String[] WORDS = {
+            "shadow", "river", "empire", "secret", "garden", "night", "winter", "stone", "dragon", "city",
+            "queen", "storm", "silver", "island", "letters", "house", "memory", "fire", "ocean", "clock",
+            "forest", "mirror", "journey", "crown", "whisper", "harbor", "lantern", "orchard", "signal", "thunder"};
+
+    @Param({"100000", "1000000"})
+    private int catalogSize;
+
+    private BookSearchIndex index;
+
+    @Setup
+    public void setup() {
+        index = new BookSearchIndex(null, new SearchConfig());
+        Random random = new Random(42);
+        for (long id = 1; id <= catalogSize; id++) {
+            index.onBookChanged(BookChangedEvent.saved(BookDto.builder()
+                    .id(String.valueOf(id))
+                    .bookName(words(random, 3) + " " + id)
+                    .author("Author " + random.nextInt(50_000))
+                    .type(BenchmarkData.TYPES[random.nextInt(BenchmarkData.TYPES.length)])
+                    .bookPrice(BigDecimal.valueOf(100 + random.nextInt(15_000), 2))
+                    .bookDescription(words(random, 12))
+                    .build()));
+        }
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    @Benchmark
+    public SearchHits rareTerm() {
+        return index.search(new SearchQuery("author 4242", null, null, 20));
+    }
+
+    @Benchmark
+    public SearchHits titleWithId() {
+        return index.search(new SearchQuery("dragon 77777", null, null, 20));
+    }
+
+    @Benchmark
+    public SearchHits prefixOfRareTerm() {
+        return index.search(new SearchQuery("author 424*", null, null, 20));
+    }
+
+    @Benchmark
+    public SearchHits commonTermsWithFacets() {
+        return index.search(new SearchQuery("shadow river empire", "FICTION", "25-50", 20));
+    }
+}
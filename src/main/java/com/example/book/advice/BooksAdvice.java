@@ -2,27 +2,41 @@ package com.example.book.advice;
 
 import com.example.book.exception.BusinessException;
 import com.example.book.model.ErrorResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @ControllerAdvice
 public class BooksAdvice {
 
+    static final String ERRORS_METRIC = "book.errors";
+
+    private final MeterRegistry meterRegistry;
+
+    public BooksAdvice(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @ExceptionHandler(BusinessException.class)
     public ResponseEntity<ErrorResponse> handleBusinessException(BusinessException ex) {
         ErrorResponse errorResponse = new ErrorResponse();
         errorResponse.setMessage(ex.getMessage());
-        return ResponseEntity.status(ex.getStatus().value()).body(errorResponse);
+        return respond(ex.getStatus(), ex, errorResponse);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
@@ -36,14 +50,21 @@ public class BooksAdvice {
                 .stream()
                 .map((it) -> "field: '" + it.getCode() + "', args: " + Arrays.toString(it.getArguments()) + "], msg : " + it.getDefaultMessage());
         errorResponse.setMessage(Stream.concat(fields, globals).collect(Collectors.joining(",")));
-        return ResponseEntity.badRequest().body(errorResponse);
+        return respond(HttpStatus.BAD_REQUEST, ex, errorResponse);
     }
 
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<ErrorResponse> handleHttpMessageNotReadableException(HttpMessageNotReadableException ex) {
         ErrorResponse errorResponse = new ErrorResponse();
         errorResponse.setMessage(ex.getMessage());
-        return ResponseEntity.badRequest().body(errorResponse);
+        return respond(HttpStatus.BAD_REQUEST, ex, errorResponse);
+    }
+
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleMethodArgumentTypeMismatchException(MethodArgumentTypeMismatchException ex) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setMessage("Invalid value for parameter '" + ex.getName() + "'");
+        return respond(HttpStatus.BAD_REQUEST, ex, errorResponse);
     }
 
     @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
@@ -51,13 +72,51 @@ public class BooksAdvice {
             HttpRequestMethodNotSupportedException ex) {
         ErrorResponse errorResponse = new ErrorResponse();
         errorResponse.setMessage(ex.getMessage());
-        return ResponseEntity.badRequest().body(errorResponse);
+        return respond(HttpStatus.BAD_REQUEST, ex, errorResponse);
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailureException(ObjectOptimisticLockingFailureException ex) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setMessage("Book was modified concurrently, read it again and retry");
+        return respond(HttpStatus.PRECONDITION_FAILED, ex, errorResponse);
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorResponse> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setMessage("Book conflicts with another one, its isbn is probably already used");
+        return respond(HttpStatus.CONFLICT, ex, errorResponse);
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorResponse> handleRejectedExecutionException(RejectedExecutionException ex) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setMessage("Too many requests waiting for the database, retry later");
+        return respond(HttpStatus.SERVICE_UNAVAILABLE, ex, errorResponse);
+    }
+
+    @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
+    public ResponseEntity<ErrorResponse> handleHttpMediaTypeNotSupportedException(HttpMediaTypeNotSupportedException ex) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setMessage(ex.getMessage());
+        return respond(HttpStatus.UNSUPPORTED_MEDIA_TYPE, ex, errorResponse);
     }
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleUnknownException(Exception ex) {
         ErrorResponse errorResponse = new ErrorResponse();
         errorResponse.setMessage(ex.getMessage());
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR.value()).body(errorResponse);
+        return respond(HttpStatus.INTERNAL_SERVER_ERROR, ex, errorResponse);
+    }
+
+    /**
+     * Counts the error by status and exception type before returning it.
+     */
+    private ResponseEntity<ErrorResponse> respond(HttpStatus status, Exception ex, ErrorResponse errorResponse) {
+        meterRegistry.counter(ERRORS_METRIC,
+                "status", String.valueOf(status.value()),
+                "exception", ex.getClass().getSimpleName()).increment();
+        return ResponseEntity.status(status.value()).body(errorResponse);
     }
 }
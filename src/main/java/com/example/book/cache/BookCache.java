@@ -0,0 +1,158 @@
+package com.example.book.cache;
+
+import com.example.book.config.CacheConfig;
+import com.example.book.dto.BookDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of active books keyed by id, evicted by size and time to live.
+ * Only active books are cached. Writers must put or invalidate the entry of every book they change; books read from
+ * the database go through {@link #putLoaded}, which never replaces a newer version put by a writer.
+ * Hit, miss and eviction counters are published as the "books" cache metrics.
+ * <p>
+ * Misses are loaded single-flight: while a book is being loaded, other readers of it wait for that load instead of
+ * querying the database again. A write forgets the load in flight, so readers arriving after it load the book anew
+ * and the older load does not put its book.
+ */
+@Component
+public class BookCache implements MeterBinder {
+
+    private final Cache<Long, BookDto> cache;
+    private final ConcurrentMap<Long, CompletableFuture<BookDto>> loads = new ConcurrentHashMap<>();
+    private final LongAdder collapsed = new LongAdder();
+
+    public BookCache(CacheConfig cacheConfig) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheConfig.getMaximumSize())
+                .expireAfterWrite(cacheConfig.getTimeToLive())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return the cached book or null on a miss
+     */
+    public BookDto get(Long id) {
+        return cache.getIfPresent(id);
+    }
+
+    /**
+     * @param loader reads the book on a miss; it is called once for all the concurrent readers of the book, and its
+     * exception is thrown to all of them
+     * @return the cached book, or the book loaded and cached
+     */
+    public BookDto get(Long id, Function<Long, BookDto> loader) {
+        BookDto cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<BookDto> load = new CompletableFuture<>();
+        CompletableFuture<BookDto> running = loads.putIfAbsent(id, load);
+        if (running != null) {
+            collapsed.increment();
+            return join(running);
+        }
+        BookDto book;
+        try {
+            // put by a load that finished between the miss and the putIfAbsent
+            book = cache.asMap().get(id);
+            if (book == null) {
+                book = loader.apply(id);
+            }
+        } catch (Throwable ex) {
+            // errors too, so that readers waiting for the load never hang and the next reader loads again
+            loads.remove(id, load);
+            load.completeExceptionally(ex);
+            throw ex;
+        }
+        BookDto loaded = book;
+        // under the lock of the entry, so a writer forgetting the load either comes first or puts after us
+        loads.computeIfPresent(id, (key, current) -> {
+            if (current != load) {
+                return current;
+            }
+            putLoaded(id, loaded);
+            return null;
+        });
+        load.complete(book);
+        return book;
+    }
+
+    public void put(Long id, BookDto book) {
+        loads.remove(id);
+        cache.put(id, book);
+    }
+
+    /**
+     * Caches a book read from the database, unless the cache holds a newer version of it: a read that started
+     * before an update may finish after the update put its book. Loads in flight are left alone.
+     */
+    public void putLoaded(Long id, BookDto book) {
+        cache.asMap().merge(id, book, (current, loaded) -> isNewer(current, loaded) ? current : loaded);
+    }
+
+    public void invalidate(Long id) {
+        loads.remove(id);
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        loads.clear();
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return number of reads that waited for the load of another reader instead of querying the database
+     */
+    public long collapsedLoads() {
+        return collapsed.sum();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "books");
+        FunctionCounter.builder("books.cache.loads.collapsed", collapsed, LongAdder::sum)
+                .description("book reads that waited for a load in flight instead of querying the database")
+                .register(registry);
+    }
+
+    private static boolean isNewer(BookDto current, BookDto loaded) {
+        return current.getVersion() != null && loaded.getVersion() != null && current.getVersion() > loaded.getVersion();
+    }
+
+    private static BookDto join(CompletableFuture<BookDto> load) {
+        try {
+            return load.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
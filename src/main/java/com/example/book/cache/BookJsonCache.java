@@ -0,0 +1,106 @@
+package com.example.book.cache;
+
+import com.example.book.config.JsonCacheConfig;
+import com.example.book.dto.BookDto;
+import com.example.book.search.BookChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Books already serialized by the application ObjectMapper, so that reading a popular book neither runs Jackson nor
+ * compresses it again. Entries are keyed by book id and only served for the version they were encoded from; they are
+ * also dropped as soon as the book changes. The cache is bounded by the size of the encoded books.
+ * Hit, miss and eviction counters are published as the "books.json" cache metrics.
+ */
+@Component
+public class BookJsonCache implements MeterBinder {
+
+    private final ObjectMapper objectMapper;
+    private final boolean gzip;
+    private final Cache<Long, EncodedBook> cache;
+
+    public BookJsonCache(ObjectMapper objectMapper, JsonCacheConfig jsonCacheConfig) {
+        this.objectMapper = objectMapper;
+        this.gzip = jsonCacheConfig.isGzip();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(jsonCacheConfig.getMaximumSize().toBytes())
+                .<Long, EncodedBook>weigher((id, encoded) -> encoded.size())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return whether books are kept gzipped too, see {@link EncodedBook#getGzip()}
+     */
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * @return the book encoded from the cache, encoded now and cached when it was missing or older.
+     * Books without a version are encoded every time.
+     */
+    public EncodedBook get(BookDto book) {
+        Long id = Long.valueOf(book.getId());
+        EncodedBook cached = cache.getIfPresent(id);
+        if (cached != null && cached.getVersion().equals(book.getVersion())) {
+            return cached;
+        }
+        EncodedBook encoded = encode(book);
+        if (book.getVersion() != null) {
+            cache.put(id, encoded);
+        }
+        return encoded;
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        cache.invalidate(event.getBookId());
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "books.json");
+    }
+
+    private EncodedBook encode(BookDto book) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(book);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] compressed = gzip ? compress(json) : null;
+        return new EncodedBook(book.getVersion(), json, compressed != null && compressed.length < json.length ? compressed : null);
+    }
+
+    private static byte[] compress(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
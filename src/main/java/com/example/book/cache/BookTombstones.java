@@ -0,0 +1,94 @@
+package com.example.book.cache;
+
+import com.example.book.model.BookStatus;
+import com.example.book.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ids of deleted books, so that reads and writes of them can be rejected without a database round trip.
+ * Ids come from a sequence and are dense, so they are kept as a bitmap split into blocks of 65536 ids (8 KiB),
+ * allocated when the first id of their range is deleted. Adding and looking up an id never lock.
+ * <p>
+ * Deletion is final, so a tombstone never goes stale. The set is loaded from the database once the application is
+ * ready; an id that is not in it may still be deleted and callers fall back to the database.
+ */
+@Slf4j
+@Component
+public class BookTombstones {
+
+    private static final int BLOCK_SHIFT = 16;
+    private static final int WORDS_PER_BLOCK = (1 << BLOCK_SHIFT) / Long.SIZE;
+    private static final int LOAD_CHUNK_SIZE = 10000;
+
+    private final BookRepository repository;
+    private final ConcurrentMap<Long, AtomicLongArray> blocks = new ConcurrentHashMap<>();
+    private final LongAdder size = new LongAdder();
+
+    public BookTombstones(BookRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Adds the ids of every deleted book, reading them in keyset chunks.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        long after = 0L;
+        List<Long> chunk;
+        do {
+            chunk = repository.findIdPage(BookStatus.DELETED, after, PageRequest.of(0, LOAD_CHUNK_SIZE));
+            chunk.forEach(this::add);
+            if (!chunk.isEmpty()) {
+                after = chunk.get(chunk.size() - 1);
+            }
+        } while (chunk.size() == LOAD_CHUNK_SIZE);
+        log.info("Loaded {} deleted books in {} ms", size(), System.currentTimeMillis() - started);
+    }
+
+    public boolean contains(long id) {
+        if (id < 0) {
+            return false;
+        }
+        AtomicLongArray block = blocks.get(id >>> BLOCK_SHIFT);
+        return block != null && (block.get(word(id)) & mask(id)) != 0;
+    }
+
+    public void add(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Book ids are positive: " + id);
+        }
+        AtomicLongArray block = blocks.computeIfAbsent(id >>> BLOCK_SHIFT, b -> new AtomicLongArray(WORDS_PER_BLOCK));
+        long mask = mask(id);
+        if ((block.getAndAccumulate(word(id), mask, (bits, bit) -> bits | bit) & mask) == 0) {
+            size.increment();
+        }
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    public void clear() {
+        blocks.clear();
+        size.reset();
+    }
+
+    private static int word(long id) {
+        return (int) (id & ((1 << BLOCK_SHIFT) - 1)) >>> 6;
+    }
+
+    private static long mask(long id) {
+        return 1L << id;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.book.cache;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregates of TBL_BOOK that move with every write of a book, as read by
+ * {@link com.example.book.repository.BookRepository#findCatalogStamp}.
+ */
+@Getter
+@ToString
+public class CatalogStamp {
+
+    /** number of books whatever their status */
+    private final long books;
+
+    /** sum of the versions of all books, every update of a book adds one */
+    private final long versions;
+
+    /** latest updatedOn of all books, null when there are none */
+    private final LocalDateTime lastUpdatedOn;
+
+    public CatalogStamp(Long books, Long versions, LocalDateTime lastUpdatedOn) {
+        this.books = books == null ? 0 : books;
+        this.versions = versions == null ? 0 : versions;
+        this.lastUpdatedOn = lastUpdatedOn;
+    }
+}
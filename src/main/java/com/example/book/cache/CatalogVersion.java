@@ -0,0 +1,110 @@
+package com.example.book.cache;
+
+import com.example.book.config.HttpCacheConfig;
+import com.example.book.repository.BookRepository;
+import com.example.book.search.BookChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Version of the catalog as a whole, sent as the ETag and Last-Modified of every page of books.
+ * It is derived from the number of books, the sum of their versions and their latest updatedOn, which every write of
+ * a book moves whichever instance made it. The aggregate costs a scan of TBL_BOOK, so the version read is kept for
+ * {@link HttpCacheConfig#getCatalogVersionTtl()} whatever the max-age of a page; a {@link BookChangedEvent} of this
+ * instance moves the kept version in memory instead of reading it again. Writes of other instances show up once the
+ * kept version expires.
+ * <p>
+ * Readers must take the version before reading the page it tags: a book changed in between then only makes the page
+ * look older than it is, never newer.
+ */
+@Component
+public class CatalogVersion {
+
+    private final BookRepository repository;
+    private final HttpCacheConfig httpCacheConfig;
+    /** moved by every local change, a version read before a change it has not seen is not kept */
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicReference<Read> last = new AtomicReference<>();
+
+    public CatalogVersion(BookRepository repository, HttpCacheConfig httpCacheConfig) {
+        this.repository = repository;
+        this.httpCacheConfig = httpCacheConfig;
+    }
+
+    /**
+     * Counts the change into the kept version: one more version and the time of the change. The version then differs
+     * from any the catalog had before, though not necessarily from the aggregate read next.
+     */
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        LocalDateTime updatedOn = event.getBook() == null ? null : event.getBook().getUpdatedOn();
+        long changedAt = updatedOn == null ? System.currentTimeMillis() : toEpochMilli(updatedOn);
+        long change = changes.incrementAndGet();
+        last.updateAndGet(read -> read == null ? null : read.changed(change, changedAt));
+    }
+
+    /**
+     * @return the current version, read from the database when the one kept is older than its ttl or has missed a
+     * local change
+     */
+    public Version current() {
+        long now = System.nanoTime();
+        long seen = changes.get();
+        Read read = last.get();
+        long ttl = httpCacheConfig.getCatalogVersionTtl().toNanos();
+        if (read != null && read.changes == seen && now - read.readAt < ttl) {
+            return read.version;
+        }
+        CatalogStamp stamp = repository.findCatalogStamp();
+        long lastModified = stamp.getLastUpdatedOn() == null ? 0L : toEpochMilli(stamp.getLastUpdatedOn());
+        Version version = new Version(stamp.getBooks(), stamp.getVersions(), lastModified);
+        last.set(new Read(version, seen, now));
+        return version;
+    }
+
+    private static long toEpochMilli(LocalDateTime updatedOn) {
+        return updatedOn.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @AllArgsConstructor
+    private static class Read {
+
+        final Version version;
+        final long changes;
+        final long readAt;
+
+        /**
+         * @return the read with the change counted, still expiring when it was read from the database
+         */
+        Read changed(long change, long changedAt) {
+            Version changed = new Version(version.books, version.versions + 1,
+                    Math.max(version.lastModified, changedAt));
+            return new Read(changed, Math.max(changes, change), readAt);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Version {
+
+        /** number of books whatever their status */
+        private final long books;
+
+        /** sum of the versions of the books, it grows with every update */
+        private final long versions;
+
+        /** epoch millis of the latest change */
+        private final long lastModified;
+
+        public String getETag() {
+            return Long.toString(books, 36) + "-" + Long.toString(versions, 36) + "-" + Long.toString(lastModified, 36);
+        }
+    }
+}
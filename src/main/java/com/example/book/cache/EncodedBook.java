@@ -0,0 +1,23 @@
+package com.example.book.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A version of a book encoded as UTF-8 json, and gzip compressed when that makes it smaller.
+ */
+@Getter
+@AllArgsConstructor
+public class EncodedBook {
+
+    private final Long version;
+
+    private final byte[] json;
+
+    /** null when not compressed */
+    private final byte[] gzip;
+
+    int size() {
+        return json.length + (gzip == null ? 0 : gzip.length);
+    }
+}
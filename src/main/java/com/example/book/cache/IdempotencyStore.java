@@ -0,0 +1,177 @@
+package com.example.book.cache;
+
+import com.example.book.config.IdempotencyConfig;
+import com.example.book.exception.BusinessException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Responses of requests sent with an Idempotency-Key, so that a retried request gets the bytes of the first response
+ * without running again. A request claims its key before it runs; a second request with the key gets 409 while the
+ * first one runs and the stored response afterwards. Only successful responses are stored: a request that fails
+ * releases its key and may be retried. A key sent with another request body is rejected with 422.
+ * <p>
+ * Keys live in memory for the ttl after their response was stored, and the cache is bounded by the size of the
+ * responses. A claim only holds its key for the claim timeout, so that a request that died before completing or
+ * releasing it does not block its retries for the whole ttl. Requests are told apart by the SHA-256 of their json, so they are only kept as 32 bytes.
+ */
+@Component
+public class IdempotencyStore implements MeterBinder {
+
+    private static final int FINGERPRINT_SIZE = 32;
+
+    private final ObjectMapper objectMapper;
+    private final int maxKeyLength;
+    private final Cache<String, Entry> cache;
+    private final LongAdder replays = new LongAdder();
+
+    public IdempotencyStore(ObjectMapper objectMapper, IdempotencyConfig idempotencyConfig) {
+        this.objectMapper = objectMapper;
+        this.maxKeyLength = idempotencyConfig.getMaxKeyLength();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(idempotencyConfig.getMaximumSize().toBytes())
+                .<String, Entry>weigher((key, entry) -> key.length() + entry.size())
+                .expireAfter(new EntryExpiry(idempotencyConfig.getClaimTimeout().toNanos(),
+                        idempotencyConfig.getTtl().toNanos()))
+                .build();
+    }
+
+    /**
+     * Claims the key for the request, unless a response is stored for it already.
+     *
+     * @param scope method and path the key is sent to, the same key may be used with other endpoints
+     * @return the stored response to replay, or null when the request now holds the key and has to
+     * {@link #complete} or {@link #release} it
+     * @throws BusinessException 400 when the key is blank or too long, 409 while another request with the key runs
+     * and its claim has not timed out, 422 when the key came with another request
+     */
+    public IdempotentResponse claim(String scope, String key, Object request) {
+        if (key.isBlank() || key.length() > maxKeyLength) {
+            throw new BusinessException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must hold between 1 and " + maxKeyLength + " characters");
+        }
+        byte[] fingerprint = fingerprint(request);
+        Entry existing = cache.asMap().putIfAbsent(scope + ' ' + key, new Entry(fingerprint, null));
+        if (existing == null) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(existing.fingerprint, fingerprint)) {
+            throw new BusinessException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used with another request");
+        }
+        if (existing.response == null) {
+            throw new BusinessException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still running");
+        }
+        replays.increment();
+        return existing.response;
+    }
+
+    /**
+     * Stores the response of a request holding the key. The ttl of the key starts now.
+     *
+     * @return the response as stored
+     */
+    public IdempotentResponse complete(String scope, String key, HttpStatus status, Object body) {
+        IdempotentResponse response = new IdempotentResponse(status.value(), encode(body));
+        // a claim evicted meanwhile is not stored again
+        cache.asMap().computeIfPresent(scope + ' ' + key,
+                (id, entry) -> entry.response == null ? new Entry(entry.fingerprint, response) : entry);
+        return response;
+    }
+
+    /**
+     * Gives up the key of a request that failed, so that it can be retried.
+     */
+    public void release(String scope, String key) {
+        cache.asMap().computeIfPresent(scope + ' ' + key, (id, entry) -> entry.response == null ? null : entry);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("books.idempotency.keys", cache, Cache::estimatedSize)
+                .description("Idempotency-Keys held, running or with a stored response")
+                .register(registry);
+        FunctionCounter.builder("books.idempotency.replays", replays, LongAdder::sum)
+                .description("responses replayed for a retried Idempotency-Key")
+                .register(registry);
+    }
+
+    private byte[] encode(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(encode(request));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Claims expire after the claim timeout, stored responses after the ttl; reading an entry does not extend it.
+     */
+    private static final class EntryExpiry implements Expiry<String, Entry> {
+
+        private final long claimNanos;
+        private final long ttlNanos;
+
+        EntryExpiry(long claimNanos, long ttlNanos) {
+            this.claimNanos = claimNanos;
+            this.ttlNanos = ttlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return entry.response == null ? claimNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return entry.response == null ? claimNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private static final class Entry {
+
+        final byte[] fingerprint;
+        /** null while the request holding the key runs */
+        final IdempotentResponse response;
+
+        Entry(byte[] fingerprint, IdempotentResponse response) {
+            this.fingerprint = fingerprint;
+            this.response = response;
+        }
+
+        int size() {
+            return FINGERPRINT_SIZE + (response == null ? 0 : response.getJson().length);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.book.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A response stored for an Idempotency-Key, as the UTF-8 json that was sent.
+ */
+@Getter
+@AllArgsConstructor
+public class IdempotentResponse {
+
+    private final int status;
+
+    private final byte[] json;
+}
@@ -0,0 +1,24 @@
+package com.example.book.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounds of the in-process book cache.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "book.cache")
+public class CacheConfig {
+
+    /** maximum number of books kept in memory, least recently used books are evicted first */
+    private long maximumSize = 10_000;
+
+    /** how long a cached book may be served after it was loaded or written */
+    private Duration timeToLive = Duration.ofMinutes(10);
+}
@@ -0,0 +1,39 @@
+package com.example.book.config;
+
+import com.example.book.model.MoneyArithmetic;
+import com.example.book.model.PricingMode;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "book.checkout")
+public class CheckoutConfig {
+
+    /**
+     * CATALOG prices every item from the catalog, loading all referenced books with one query
+     * (books already in the book cache are not queried at all).
+     */
+    private PricingMode pricing = PricingMode.REQUEST;
+
+    /** DECIMAL prices carts with the BigDecimal engine the cents one is checked against */
+    private MoneyArithmetic arithmetic = MoneyArithmetic.CENTS;
+
+    /**
+     * Takes the copies of every checked out item out of the stock for book.inventory.reservationTtl, failing the
+     * checkout with 409 when any of them is short. Items then need an id, whatever the pricing mode.
+     */
+    private boolean reserveStock = false;
+
+    /** largest number of carts accepted by one batch checkout */
+    private int maxBatchSize = 1000;
+
+    /** batches with at least this many carts are priced in parallel */
+    private int parallelBatchThreshold = 64;
+
+    /** threads of the pool pricing large batches */
+    private int batchParallelism = Runtime.getRuntime().availableProcessors();
+}
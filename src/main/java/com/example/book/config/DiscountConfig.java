@@ -1,18 +1,40 @@
 package com.example.book.config;
 
+import com.example.book.model.PromotionIndex;
 import com.example.book.model.PromotionRule;
-import lombok.Getter;
-import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 
-@Getter
-@Setter
+/**
+ * Promotion rules bound from book.discount.
+ * The rules and the lookup table built from them live in one immutable {@link PromotionIndex}, published through a
+ * single volatile reference. Checkout reads the reference once per request, so a reload never exposes a half built
+ * rule set and never takes a lock.
+ */
 @Component
 @ConfigurationProperties(prefix = "book.discount")
 public class DiscountConfig {
 
-    private List<PromotionRule> promotionRules;
+    private volatile PromotionIndex promotionIndex = PromotionIndex.EMPTY;
+
+    public List<PromotionRule> getPromotionRules() {
+        return promotionIndex.getPromotionRules();
+    }
+
+    public void setPromotionRules(List<PromotionRule> promotionRules) {
+        publish(PromotionIndex.of(promotionRules));
+    }
+
+    public PromotionIndex getPromotionIndex() {
+        return promotionIndex;
+    }
+
+    /**
+     * Replaces the active rule set. The index must be fully built before it is published.
+     */
+    public void publish(PromotionIndex promotionIndex) {
+        this.promotionIndex = promotionIndex;
+    }
 }
@@ -0,0 +1,25 @@
+package com.example.book.config;
+
+import com.example.book.model.ExecutionMode;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the asynchronous checkout path.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "book.execution")
+public class ExecutionConfig {
+
+    private ExecutionMode mode = ExecutionMode.BLOCKING;
+
+    /** threads running database loads of async requests, no use making it larger than the connection pool */
+    private int jdbcThreads = 10;
+
+    /** async requests waiting for a jdbc thread, more are rejected with 503 */
+    private int queueCapacity = 10000;
+}
@@ -0,0 +1,21 @@
+package com.example.book.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "book.export")
+public class ExportConfig {
+
+    /** the persistence context is cleared after this many exported books, at least 1 */
+    @Min(1)
+    private int clearInterval = 1000;
+}
@@ -0,0 +1,31 @@
+package com.example.book.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cache-Control of book reads. Responses are public, so CDNs and browsers may serve them for max-age and revalidate
+ * them with their ETag afterwards. A max-age of 0 makes every read revalidate.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "book.http-cache")
+public class HttpCacheConfig {
+
+    /** how long a single book may be served without asking the application */
+    private Duration bookMaxAge = Duration.ofSeconds(60);
+
+    /** how long a page of books may be served without asking the application */
+    private Duration pageMaxAge = Duration.ofSeconds(10);
+
+    /**
+     * how long the catalog version behind the ETag of pages is kept before it is read from the database again,
+     * which bounds how late writes of other instances show up
+     */
+    private Duration catalogVersionTtl = Duration.ofSeconds(10);
+}
@@ -0,0 +1,31 @@
+package com.example.book.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Bounds of the responses kept for requests sent with an Idempotency-Key.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "book.idempotency")
+public class IdempotencyConfig {
+
+    /** how long a response is replayed after it was stored */
+    private Duration ttl = Duration.ofHours(1);
+
+    /** how long a running request holds its key, after which a retry runs the request again */
+    private Duration claimTimeout = Duration.ofMinutes(1);
+
+    /** total size of the stored responses, least recently used keys are evicted first */
+    private DataSize maximumSize = DataSize.ofMegabytes(16);
+
+    /** longest key accepted */
+    private int maxKeyLength = 255;
+}
@@ -0,0 +1,24 @@
+package com.example.book.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "book.import")
+public class ImportConfig {
+
+    /** rows written per transaction and per JDBC batch, at least 1 */
+    @Min(1)
+    private int batchSize = 500;
+
+    /** the import report lists at most this many failed rows, the rest are only counted */
+    private int maxReportedErrors = 1000;
+}
@@ -0,0 +1,27 @@
+package com.example.book.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings of the stock reservations taken by checkout.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "book.inventory")
+public class InventoryConfig {
+
+    /** how long reserved copies are held for a checkout that is neither confirmed nor cancelled */
+    private Duration reservationTtl = Duration.ofMinutes(10);
+
+    /** how often copies sold and restocked are written back to the database */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /** how often expired reservations are looked for and their copies returned to the stock */
+    private Duration expiryInterval = Duration.ofSeconds(5);
+}
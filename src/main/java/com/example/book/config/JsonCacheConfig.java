@@ -0,0 +1,23 @@
+package com.example.book.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Bounds of the cache of books already encoded as json.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "book.json-cache")
+public class JsonCacheConfig {
+
+    /** total size of the encoded books kept in memory, least recently used books are evicted first */
+    private DataSize maximumSize = DataSize.ofMegabytes(16);
+
+    /** also keep a gzip compressed copy, sent to clients accepting gzip when it is smaller than the json */
+    private boolean gzip = false;
+}
@@ -0,0 +1,39 @@
+package com.example.book.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+
+/**
+ * Settings of the orders recorded for completed checkouts.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "book.orders")
+public class OrderConfig {
+
+    /** records an order for every completed checkout, through the journal */
+    private boolean enabled = false;
+
+    /** directory of the journal segments and checkpoint, created when missing */
+    private String journalDir = "./data/journal";
+
+    /** size of a journal segment file, mapped into memory at once */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * forces every order to the storage device before checkout answers. Without it an acknowledged order survives
+     * a crash of the application but not of the machine.
+     */
+    private boolean forceOnAppend = false;
+
+    /**
+     * most orders written to the database per transaction. The writer does not wait for a batch to fill: it writes
+     * whatever is queued, so batches grow with the load.
+     */
+    private int batchSize = 500;
+}
@@ -0,0 +1,35 @@
+package com.example.book.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Bounds applied when listing the catalog.
+ * Every page is read with a keyset (id &gt; cursor) query so the memory used per request does not depend on the
+ * size of the catalog.
+ */
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "book.pagination")
+public class PaginationConfig {
+
+    /** page size used when the client does not send a limit */
+    private int defaultPageSize = 100;
+
+    /** largest page size a client may ask for */
+    private int maxPageSize = 1000;
+
+    /** number of rows fetched per round-trip while streaming the whole catalog, at least 1 */
+    @Min(1)
+    private int streamChunkSize = 500;
+
+    /** largest number of books a client may read by id in one request */
+    private int maxIds = 1000;
+}
@@ -0,0 +1,32 @@
+package com.example.book.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Settings of the in-memory catalog search index.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "book.search")
+public class SearchConfig {
+
+    /** upper bounds of the price bands used as facets, the last band has no upper bound */
+    private List<BigDecimal> priceBands = List.of(
+            BigDecimal.valueOf(10), BigDecimal.valueOf(25), BigDecimal.valueOf(50), BigDecimal.valueOf(100));
+
+    /** number of hits returned when the client does not send a limit */
+    private int defaultLimit = 20;
+
+    /** largest number of hits a client may ask for */
+    private int maxLimit = 100;
+
+    /** a prefix term matches at most this many indexed terms, taken in alphabetical order */
+    private int maxPrefixExpansions = 128;
+}
@@ -0,0 +1,36 @@
+package com.example.book.context;
+
+import com.example.book.metrics.RepositoryMetricsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Application specific metrics. Web, JVM, GC, connection pool and cache metrics are bound by Spring Boot Actuator.
+ */
+@Configuration
+public class MetricsContext {
+
+    /**
+     * Adds a timing interceptor in front of every repository proxy, before the repository factory beans create them.
+     * The registry is looked up lazily so this post processor does not initialize it early.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(0, new RepositoryMetricsInterceptor(meterRegistry,
+                                            repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
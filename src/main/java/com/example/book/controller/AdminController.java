@@ -0,0 +1,79 @@
+package com.example.book.controller;
+
+import com.example.book.cache.BookCache;
+import com.example.book.dto.request.PromotionRulesRequestDto;
+import com.example.book.dto.response.CacheStatsDto;
+import com.example.book.model.PromotionRule;
+import com.example.book.service.PromotionService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.util.List;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Operational endpoints. They are meant to be reachable from inside the network only.
+ */
+@RestController
+public class AdminController {
+
+    private final PromotionService promotionService;
+    private final BookCache bookCache;
+
+    public AdminController(PromotionService promotionService, BookCache bookCache) {
+        this.promotionService = promotionService;
+        this.bookCache = bookCache;
+    }
+
+    @Operation(summary = "Get the active promotions")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Retrieved the active promotions successfully",
+                    content = { @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = PromotionRule.class))) })
+    })
+    @GetMapping(value = "/admin/promotions", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<PromotionRule>> getPromotions() {
+        return ResponseEntity.ok(promotionService.getPromotionRules());
+    }
+
+    @Operation(summary = "Replace the active promotions without restarting the application")
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true, description = "Replace promotions request",
+            content = { @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = PromotionRulesRequestDto.class)) })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Replaced the promotions successfully",
+                    content = { @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = PromotionRule.class))) }),
+            @ApiResponse(responseCode = "400", description = "bad request",
+                    content = @Content)
+    })
+    @PutMapping(value = "/admin/promotions", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<PromotionRule>> replacePromotions(@RequestBody @Valid PromotionRulesRequestDto request) {
+        return ResponseEntity.ok(promotionService.replacePromotionRules(request.getPromotionRules()));
+    }
+
+    @Operation(summary = "Get the hit, miss and eviction counters of the book cache")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Retrieved the cache counters successfully",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CacheStatsDto.class)) })
+    })
+    @GetMapping(value = "/admin/caches/books", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<CacheStatsDto> getBookCacheStats() {
+        CacheStats stats = bookCache.stats();
+        return ResponseEntity.ok(new CacheStatsDto(bookCache.size(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate()));
+    }
+}
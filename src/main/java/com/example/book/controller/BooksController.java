@@ -1,34 +1,114 @@
 package com.example.book.controller;
 
+import com.example.book.cache.BookJsonCache;
+import com.example.book.cache.CatalogVersion;
+import com.example.book.cache.EncodedBook;
+import com.example.book.cache.IdempotencyStore;
+import com.example.book.cache.IdempotentResponse;
+import com.example.book.config.CheckoutConfig;
+import com.example.book.config.ExecutionConfig;
+import com.example.book.config.HttpCacheConfig;
+import com.example.book.config.PaginationConfig;
 import com.example.book.dto.BookDto;
+import com.example.book.dto.request.BookPatchRequestDto;
 import com.example.book.dto.request.BookRequestDto;
 import com.example.book.dto.request.CheckoutBookRequestDto;
+import com.example.book.dto.response.BookBatchResponseDto;
+import com.example.book.dto.response.BookImportResponseDto;
+import com.example.book.dto.response.BookPageDto;
+import com.example.book.dto.response.BookSearchResponseDto;
+import com.example.book.dto.response.CheckoutBatchResultDto;
 import com.example.book.dto.response.CheckoutBookResponse;
 import com.example.book.dto.response.CreateBookResponseDto;
+import com.example.book.exception.BusinessException;
+import com.example.book.model.CatalogFormat;
+import com.example.book.model.CheckedOutBook;
+import com.example.book.model.ExecutionMode;
+import com.example.book.model.PricingMode;
+import com.example.book.service.BookExportService;
+import com.example.book.service.BookImportService;
+import com.example.book.service.BookSearchService;
 import com.example.book.service.BookService;
 import com.example.book.util.BookUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import javax.validation.groups.Default;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @RestController
 public class BooksController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final String ADD_BOOK_SCOPE = "POST /books";
+    private static final String CHECKOUT_SCOPE = "POST /books/checkout";
+
     private final BookService bookService;
+    private final BookImportService bookImportService;
+    private final BookExportService bookExportService;
+    private final BookSearchService bookSearchService;
+    private final ObjectMapper objectMapper;
+    private final ExecutionConfig executionConfig;
+    private final CheckoutConfig checkoutConfig;
+    private final PaginationConfig paginationConfig;
+    private final Validator validator;
+    private final CatalogVersion catalogVersion;
+    private final HttpCacheConfig httpCacheConfig;
+    private final BookJsonCache bookJsonCache;
+    private final IdempotencyStore idempotencyStore;
 
-    public BooksController(BookService bookService) {
+    public BooksController(BookService bookService, BookImportService bookImportService,
+                           BookExportService bookExportService, BookSearchService bookSearchService,
+                           ObjectMapper objectMapper, ExecutionConfig executionConfig, CheckoutConfig checkoutConfig,
+                           PaginationConfig paginationConfig, Validator validator, CatalogVersion catalogVersion, HttpCacheConfig httpCacheConfig,
+                           BookJsonCache bookJsonCache, IdempotencyStore idempotencyStore) {
     	this.bookService = bookService;
+    	this.bookImportService = bookImportService;
+    	this.bookExportService = bookExportService;
+    	this.bookSearchService = bookSearchService;
+    	this.objectMapper = objectMapper;
+    	this.executionConfig = executionConfig;
+    	this.checkoutConfig = checkoutConfig;
+    	this.paginationConfig = paginationConfig;
+    	this.validator = validator;
+    	this.catalogVersion = catalogVersion;
+    	this.httpCacheConfig = httpCacheConfig;
+    	this.bookJsonCache = bookJsonCache;
+    	this.idempotencyStore = idempotencyStore;
 	}
 
     @Operation(summary = "Add new book")
@@ -37,49 +117,261 @@ public class BooksController {
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = CreateBookResponseDto.class)) }),
             @ApiResponse(responseCode = "400", description = "bad request",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "A request with the Idempotency-Key is still running",
+                    content = @Content),
+            @ApiResponse(responseCode = "422", description = "The Idempotency-Key was used with another book",
                     content = @Content)})
     @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true, description = "Add book request",
             content = { @Content(mediaType = "application/json",
                     schema = @Schema(implementation = BookRequestDto.class)) })
     @PostMapping(value = "/books", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
-    public ResponseEntity<CreateBookResponseDto> addBook(@RequestBody @Valid BookRequestDto book) {
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(bookService.saveBook(book));
+    public ResponseEntity<?> addBook(
+            @Parameter(description = "Unique key of the request, a retry with the same key gets the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody @Valid BookRequestDto book) {
+        if (idempotencyKey == null) {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(bookService.saveBook(book));
+        }
+        IdempotentResponse stored = idempotencyStore.claim(ADD_BOOK_SCOPE, idempotencyKey, book);
+        if (stored != null) {
+            return idempotent(stored, true);
+        }
+        CreateBookResponseDto created;
+        try {
+            created = bookService.saveBook(book);
+        } catch (RuntimeException ex) {
+            idempotencyStore.release(ADD_BOOK_SCOPE, idempotencyKey);
+            throw ex;
+        }
+        return idempotent(idempotencyStore.complete(ADD_BOOK_SCOPE, idempotencyKey, HttpStatus.CREATED, created), false);
+    }
+
+    @Operation(summary = "Bulk import books, one per line, as newline delimited json or csv with a header line")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished, rejected rows are listed in the report",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BookImportResponseDto.class)) }),
+            @ApiResponse(responseCode = "400", description = "Unreadable import or missing csv header",
+                    content = @Content),
+            @ApiResponse(responseCode = "415", description = "Unsupported content type",
+                    content = @Content)})
+    @PostMapping(value = "/books/import", produces = APPLICATION_JSON_VALUE,
+            consumes = { CatalogFormat.NDJSON_VALUE, CatalogFormat.CSV_VALUE })
+    public ResponseEntity<BookImportResponseDto> importBooks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        CatalogFormat format = CatalogFormat.fromMediaType(MediaType.parseMediaType(contentType));
+        return ResponseEntity.ok(bookImportService.importBooks(body, format));
     }
 
-    @Operation(summary = "Get all books")
+    @Operation(summary = "Get a page of books, optionally of one type, one author or a price range. "
+            + "Pass the X-Next-Cursor header of a page as 'after' to get the next one")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Retrieved all books successfully",
+            @ApiResponse(responseCode = "200", description = "Retrieved the page of books successfully",
+                    headers = {
+                            @Header(name = NEXT_CURSOR_HEADER, description = "cursor of the next page, absent on the last page"),
+                            @Header(name = HttpHeaders.ETAG, description = "version of the whole catalog")},
                     content = { @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = BookDto.class)) })
+                            array = @ArraySchema(schema = @Schema(implementation = BookDto.class))) }),
+            @ApiResponse(responseCode = "304", description = "No book changed since the If-None-Match ETag was read",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor, limit or filter supplied",
+                    content = @Content)
     })
     @GetMapping(value = "/books", produces = APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<BookDto>> findAllBooks() {
-        return ResponseEntity.ok(bookService.getBooks());
+    public ResponseEntity<List<BookDto>> findAllBooks(
+            @Parameter(description = "Cursor of the previous page") @RequestParam(required = false) String after,
+            @Parameter(description = "Maximum number of books in the page") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Only books of this type") @RequestParam(required = false) String type,
+            @Parameter(description = "Only books of this author") @RequestParam(required = false) String author,
+            @Parameter(description = "Lowest price, books are then ordered by price") @RequestParam(required = false) BigDecimal minPrice,
+            @Parameter(description = "Highest price, books are then ordered by price") @RequestParam(required = false) BigDecimal maxPrice,
+            WebRequest request) {
+        boolean byPrice = minPrice != null || maxPrice != null;
+        if ((type != null ? 1 : 0) + (author != null ? 1 : 0) + (byPrice ? 1 : 0) > 1) {
+            throw new BusinessException(HttpStatus.BAD_REQUEST, "Filter by one of type, author or price at a time");
+        }
+        CacheControl cacheControl = cacheControl(httpCacheConfig.getPageMaxAge());
+        // taken before the page is read, see CatalogVersion
+        CatalogVersion.Version version = catalogVersion.current();
+        if (request.checkNotModified(version.getETag(), version.getLastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        BookPageDto page;
+        if (byPrice) {
+            page = bookService.getBooksByPrice(minPrice, maxPrice, after, limit);
+        } else if (type != null) {
+            page = bookService.getBooksByType(type, after == null ? null : BookUtils.parse(after), limit);
+        } else if (author != null) {
+            page = bookService.getBooksByAuthor(author, after == null ? null : BookUtils.parse(after), limit);
+        } else {
+            page = bookService.getBooks(after == null ? null : BookUtils.parse(after), limit);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(cacheControl)
+                .eTag(version.getETag())
+                .lastModified(version.getLastModified());
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getBooks());
+    }
+
+    @Operation(summary = "Stream all books as one json array, written while the catalog is being read")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streamed all books successfully",
+                    content = { @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = BookDto.class))) })
+    })
+    @GetMapping(value = "/books", params = "stream=true", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllBooks() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                bookService.forEachBook(book -> writeBook(generator, book));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @Operation(summary = "Get many books by id in one request, at most book.pagination.maxIds of them")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Books found and ids without a book on sale",
+                    headers = @Header(name = HttpHeaders.ETAG, description = "version of the whole catalog"),
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BookBatchResponseDto.class)) }),
+            @ApiResponse(responseCode = "304", description = "No book changed since the If-None-Match ETag was read",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid id, no ids or too many ids supplied",
+                    content = @Content)
+    })
+    @GetMapping(value = "/books", params = "ids", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<BookBatchResponseDto> findBooksByIds(
+            @Parameter(description = "Comma separated ids of the books", required = true) @RequestParam List<String> ids,
+            WebRequest request) {
+        // before parsing, so a huge list of ids is turned away cheaply
+        if (ids.size() > paginationConfig.getMaxIds()) {
+            throw new BusinessException(HttpStatus.BAD_REQUEST,
+                    "Between 1 and " + paginationConfig.getMaxIds() + " ids can be read at a time");
+        }
+        List<Long> bookIds = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            bookIds.add(BookUtils.parse(id));
+        }
+        CacheControl cacheControl = cacheControl(httpCacheConfig.getPageMaxAge());
+        // taken before the books are read, see CatalogVersion
+        CatalogVersion.Version version = catalogVersion.current();
+        if (request.checkNotModified(version.getETag(), version.getLastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(cacheControl)
+                .eTag(version.getETag())
+                .lastModified(version.getLastModified());
+        return response.body(bookService.getBooksByIds(bookIds));
+    }
+
+    @Operation(summary = "Export all active books as newline delimited json or csv, written while the catalog is being read")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Exported all books successfully",
+                    content = { @Content(mediaType = CatalogFormat.NDJSON_VALUE,
+                            schema = @Schema(implementation = BookDto.class)),
+                            @Content(mediaType = CatalogFormat.CSV_VALUE) }),
+            @ApiResponse(responseCode = "400", description = "Unsupported format",
+                    content = @Content)
+    })
+    @GetMapping(value = "/books/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(
+            @Parameter(description = "ndjson or csv") @RequestParam(defaultValue = "ndjson") String format) {
+        CatalogFormat catalogFormat = CatalogFormat.fromName(format);
+        if (catalogFormat == null) {
+            throw new BusinessException(HttpStatus.BAD_REQUEST, "Unsupported export format " + format);
+        }
+        StreamingResponseBody body = outputStream -> bookExportService.exportBooks(catalogFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(catalogFormat.getMediaType()))
+                .body(body);
+    }
+
+    @Operation(summary = "Search books by name, author, description and type. "
+            + "Every word must match, a word ending with * matches as a prefix")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Best matching books with type and price band facets",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BookSearchResponseDto.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid price band or limit supplied",
+                    content = @Content)
+    })
+    @GetMapping(value = "/books/search", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<BookSearchResponseDto> searchBooks(
+            @Parameter(description = "Words to search for, for example 'harry pot*'") @RequestParam(required = false) String q,
+            @Parameter(description = "Only books of this type") @RequestParam(required = false) String type,
+            @Parameter(description = "Only books in this price band, for example 10-25") @RequestParam(required = false) String priceBand,
+            @Parameter(description = "Maximum number of books returned") @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(bookSearchService.search(q, type, priceBand, limit));
+    }
+
+    private static void writeBook(JsonGenerator generator, BookDto book) {
+        try {
+            generator.writeObject(book);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Operation(summary = "Get a book by its id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Found the book",
+                    headers = {
+                            @Header(name = HttpHeaders.ETAG, description = "version of the book, to send back as If-Match or If-None-Match"),
+                            @Header(name = HttpHeaders.LAST_MODIFIED, description = "when the book was last changed")},
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = BookDto.class)) }),
+            @ApiResponse(responseCode = "304", description = "Book not changed since the If-None-Match ETag was read",
+                    content = @Content),
             @ApiResponse(responseCode = "400", description = "Invalid id supplied",
                     content = @Content),
             @ApiResponse(responseCode = "404", description = "Book not found",
                     content = @Content) })
     @GetMapping(value = "/books/{id}", produces = APPLICATION_JSON_VALUE)
-    public ResponseEntity<BookDto> findBookByID(
-            @Parameter(description="Id of the book. Must be a positive integer", required=true) @PathVariable String id) {
-        return ResponseEntity.ok(bookService.getBook(BookUtils.parse(id)));
+    public ResponseEntity<byte[]> findBookByID(
+            @Parameter(description="Id of the book. Must be a positive integer", required=true) @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        BookDto book = bookService.getBook(BookUtils.parse(id));
+        // one strong ETag for both encodings, so that it can be sent back as If-Match whichever body was received
+        String eTag = book.getVersion() == null ? null : "\"" + book.getVersion() + "\"";
+        CacheControl cacheControl = cacheControl(httpCacheConfig.getBookMaxAge());
+        // a matching If-None-Match or If-Modified-Since is answered before the book is encoded
+        if (request.checkNotModified(eTag, lastModifiedOf(book))) {
+            return varyByEncoding(ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl)).build();
+        }
+        EncodedBook encoded = bookJsonCache.get(book);
+        // the gzipped copy is only kept when it is smaller than the json
+        boolean gzip = bookJsonCache.isGzip() && BookUtils.acceptsGzip(acceptEncoding) && encoded.getGzip() != null;
+        ResponseEntity.BodyBuilder response = varyByEncoding(ResponseEntity.ok().cacheControl(cacheControl))
+                .contentType(MediaType.APPLICATION_JSON);
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        if (book.getUpdatedOn() != null) {
+            response.lastModified(lastModifiedOf(book));
+        }
+        if (!gzip) {
+            return response.body(encoded.getJson());
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(encoded.getGzip());
     }
 
 
-    @Operation(summary = "Update a book with the given Id")
+    @Operation(summary = "Update a book with the given Id. "
+            + "Pass the ETag of the book as If-Match to only update the version that was read")
     @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true, description = "Update book request",
             content = { @Content(mediaType = "application/json",
                     schema = @Schema(implementation = BookRequestDto.class)) })
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Updated the book successfully",
+                    headers = @Header(name = HttpHeaders.ETAG, description = "new version of the book"),
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = BookDto.class)) }),
             @ApiResponse(responseCode = "400", description = "Invalid id supplied",
@@ -87,12 +379,74 @@ public class BooksController {
             @ApiResponse(responseCode = "404", description = "Book not found",
                     content = @Content),
             @ApiResponse(responseCode = "409", description = "Book cannot be updated as it's already deleted",
+                    content = @Content),
+            @ApiResponse(responseCode = "412", description = "Book was modified since the If-Match ETags were read, "
+                    + "or the If-Match ETags are weak",
                     content = @Content)  })
     @PutMapping(value = "/books/{id}", produces = APPLICATION_JSON_VALUE)
     public ResponseEntity<BookDto> updateBook(
             @Parameter(description="Id of the book. Must be a positive integer", required=true) @PathVariable String id,
+            @Parameter(description = "ETags of the book as last read") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody @Valid BookRequestDto book) {
-        return ResponseEntity.ok(bookService.updateBook(BookUtils.parse(id), book));
+        BookDto updated = bookService.updateBook(BookUtils.parse(id), book, BookUtils.parseIfMatch(ifMatch));
+        return withValidators(updated).body(updated);
+    }
+
+    @Operation(summary = "Update only the given fields of a book with the given Id. "
+            + "Pass the ETag of the book as If-Match to only update the version that was read")
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true, description = "Fields to update",
+            content = { @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = BookPatchRequestDto.class)) })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Updated the book successfully",
+                    headers = @Header(name = HttpHeaders.ETAG, description = "new version of the book"),
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BookDto.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid id or field supplied",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Book not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Book cannot be updated as it's already deleted",
+                    content = @Content),
+            @ApiResponse(responseCode = "412", description = "Book was modified since the If-Match ETags were read, "
+                    + "or the If-Match ETags are weak",
+                    content = @Content)  })
+    @PatchMapping(value = "/books/{id}", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    public ResponseEntity<BookDto> patchBook(
+            @Parameter(description="Id of the book. Must be a positive integer", required=true) @PathVariable String id,
+            @Parameter(description = "ETags of the book as last read") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid BookPatchRequestDto book) {
+        BookDto patched = bookService.patchBook(BookUtils.parse(id), book, BookUtils.parseIfMatch(ifMatch));
+        return withValidators(patched).body(patched);
+    }
+
+    /**
+     * A 200 with the version of the book as strong ETag and its updatedOn as Last-Modified.
+     */
+    private static ResponseEntity.BodyBuilder withValidators(BookDto book) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (book.getVersion() != null) {
+            response.eTag(book.getVersion().toString());
+        }
+        if (book.getUpdatedOn() != null) {
+            response.lastModified(book.getUpdatedOn().atZone(ZoneId.systemDefault()));
+        }
+        return response;
+    }
+
+    private ResponseEntity.BodyBuilder varyByEncoding(ResponseEntity.BodyBuilder response) {
+        return bookJsonCache.isGzip() ? response.varyBy(HttpHeaders.ACCEPT_ENCODING) : response;
+    }
+
+    /**
+     * @return the updatedOn of the book in epoch millis, -1 when it has none
+     */
+    private static long lastModifiedOf(BookDto book) {
+        return book.getUpdatedOn() == null ? -1 : book.getUpdatedOn().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static CacheControl cacheControl(Duration maxAge) {
+        return maxAge.isZero() ? CacheControl.noCache().cachePublic() : CacheControl.maxAge(maxAge).cachePublic();
     }
 
     @Operation(summary = "Delete a book with the given Id")
@@ -120,9 +474,131 @@ public class BooksController {
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = CheckoutBookResponse.class)) }),
             @ApiResponse(responseCode = "400", description = "Invalid promo code",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Book not found or no longer sold (catalog pricing only)",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Not enough copies in stock (when checkout reserves stock), "
+                    + "or a request with the Idempotency-Key is still running",
+                    content = @Content),
+            @ApiResponse(responseCode = "422", description = "The Idempotency-Key was used with another cart",
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many checkouts waiting for the database (async mode only)",
                     content = @Content) })
     @PostMapping("/books/checkout")
-    public CheckoutBookResponse checkOut(@RequestBody @Valid CheckoutBookRequestDto request) {
-        return bookService.calculateBookPayment(request);
+    public Object checkOut(
+            @Parameter(description = "Unique key of the request, a retry with the same key gets the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody @Valid CheckoutBookRequestDto request) {
+        if (checkoutConfig.getPricing() == PricingMode.REQUEST) {
+            Set<ConstraintViolation<CheckoutBookRequestDto>> violations =
+                    validator.validate(request, CheckedOutBook.RequestPricing.class);
+            if (!violations.isEmpty()) {
+                throw new BusinessException(HttpStatus.BAD_REQUEST, describe(violations));
+            }
+        }
+        // Spring MVC picks the return value handler from the runtime type: a CompletableFuture releases the
+        // request thread until it completes, a CheckoutBookResponse is written at once
+        if (idempotencyKey == null) {
+            if (executionConfig.getMode() == ExecutionMode.ASYNC) {
+                return bookService.calculateBookPaymentAsync(request);
+            }
+            return bookService.calculateBookPayment(request);
+        }
+        IdempotentResponse stored = idempotencyStore.claim(CHECKOUT_SCOPE, idempotencyKey, request);
+        if (stored != null) {
+            return idempotent(stored, true);
+        }
+        if (executionConfig.getMode() == ExecutionMode.ASYNC) {
+            CompletableFuture<CheckoutBookResponse> pending;
+            try {
+                pending = bookService.calculateBookPaymentAsync(request);
+            } catch (RuntimeException ex) {
+                idempotencyStore.release(CHECKOUT_SCOPE, idempotencyKey);
+                throw ex;
+            }
+            return pending
+                    .thenApply(response -> idempotencyStore.complete(CHECKOUT_SCOPE, idempotencyKey, HttpStatus.OK, response))
+                    .whenComplete((response, ex) -> {
+                        if (ex != null) {
+                            idempotencyStore.release(CHECKOUT_SCOPE, idempotencyKey);
+                        }
+                    })
+                    .thenApply(response -> idempotent(response, false));
+        }
+        CheckoutBookResponse response;
+        try {
+            response = bookService.calculateBookPayment(request);
+        } catch (RuntimeException ex) {
+            idempotencyStore.release(CHECKOUT_SCOPE, idempotencyKey);
+            throw ex;
+        }
+        return idempotent(idempotencyStore.complete(CHECKOUT_SCOPE, idempotencyKey, HttpStatus.OK, response), false);
+    }
+
+    /**
+     * The stored bytes of a response sent for an Idempotency-Key, marked when they are sent again.
+     */
+    private static ResponseEntity<byte[]> idempotent(IdempotentResponse response, boolean replayed) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.getStatus())
+                .contentType(MediaType.APPLICATION_JSON);
+        if (replayed) {
+            builder.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+        }
+        return builder.body(response.getJson());
+    }
+
+    @Operation(summary = "Price many carts in one request. Each cart is priced as /books/checkout would, "
+            + "a cart that fails gets its own error without failing the others")
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true, description = "Carts to price",
+            content = { @Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = CheckoutBookRequestDto.class))) })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "One result per cart, in the order of the request",
+                    content = { @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = CheckoutBatchResultDto.class))) }),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch",
+                    content = @Content) })
+    @PostMapping(value = "/books/checkout/batch", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    public List<CheckoutBatchResultDto> checkOutBatch(@RequestBody List<CheckoutBookRequestDto> requests) {
+        if (requests.isEmpty() || requests.size() > checkoutConfig.getMaxBatchSize()) {
+            throw new BusinessException(HttpStatus.BAD_REQUEST,
+                    "A batch holds between 1 and " + checkoutConfig.getMaxBatchSize() + " carts");
+        }
+        // prices sent by the client are only checked when checkout uses them
+        Class<?>[] groups = checkoutConfig.getPricing() == PricingMode.REQUEST
+                ? new Class<?>[] {Default.class, CheckedOutBook.RequestPricing.class}
+                : new Class<?>[] {Default.class};
+        CheckoutBatchResultDto[] results = new CheckoutBatchResultDto[requests.size()];
+        List<Integer> validPositions = new ArrayList<>(requests.size());
+        List<CheckoutBookRequestDto> validRequests = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CheckoutBookRequestDto request = requests.get(i);
+            if (request == null) {
+                results[i] = CheckoutBatchResultDto.failed(HttpStatus.BAD_REQUEST, "cart cannot be null");
+                continue;
+            }
+            Set<ConstraintViolation<CheckoutBookRequestDto>> violations = validator.validate(request, groups);
+            if (!violations.isEmpty()) {
+                results[i] = CheckoutBatchResultDto.failed(HttpStatus.BAD_REQUEST, describe(violations));
+            } else {
+                validPositions.add(i);
+                validRequests.add(request);
+            }
+        }
+        if (!validRequests.isEmpty()) {
+            List<CheckoutBatchResultDto> priced = bookService.calculateBookPayments(validRequests);
+            for (int i = 0; i < priced.size(); i++) {
+                results[validPositions.get(i)] = priced.get(i);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private static String describe(Set<? extends ConstraintViolation<?>> violations) {
+        return violations.stream()
+                .map(it -> "field: '" + it.getPropertyPath() + "', rejected val: [" + it.getInvalidValue()
+                        + "], msg : " + it.getMessage())
+                .sorted()
+                .collect(Collectors.joining(","));
     }
 }
@@ -0,0 +1,96 @@
+package com.example.book.controller;
+
+import com.example.book.dto.request.RestockRequestDto;
+import com.example.book.dto.response.StockDto;
+import com.example.book.service.InventoryService;
+import com.example.book.util.BookUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Stock of the books and the reservations checkout takes on it when book.checkout.reserveStock is set.
+ */
+@RestController
+public class InventoryController {
+
+    private final InventoryService inventoryService;
+
+    public InventoryController(InventoryService inventoryService) {
+        this.inventoryService = inventoryService;
+    }
+
+    @Operation(summary = "Get the copies of a book available and reserved")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Retrieved the stock successfully",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StockDto.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid id supplied",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Book not found",
+                    content = @Content) })
+    @GetMapping(value = "/books/{id}/stock", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<StockDto> getStock(
+            @Parameter(description="Id of the book. Must be a positive integer", required=true) @PathVariable String id) {
+        return ResponseEntity.ok(inventoryService.getStock(BookUtils.parse(id)));
+    }
+
+    @Operation(summary = "Add received copies to the stock of a book")
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true, description = "Restock request",
+            content = { @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = RestockRequestDto.class)) })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Restocked the book successfully",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StockDto.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid id or quantity supplied",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Book not found or no longer sold",
+                    content = @Content) })
+    @PostMapping(value = "/books/{id}/stock", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    public ResponseEntity<StockDto> restock(
+            @Parameter(description="Id of the book. Must be a positive integer", required=true) @PathVariable String id,
+            @RequestBody @Valid RestockRequestDto request) {
+        return ResponseEntity.ok(inventoryService.restock(BookUtils.parse(id), request.getQuantity()));
+    }
+
+    @Operation(summary = "Sell the copies held by a checkout reservation")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Sold the reserved copies"),
+            @ApiResponse(responseCode = "404", description = "Reservation not found, already confirmed or cancelled",
+                    content = @Content),
+            @ApiResponse(responseCode = "410", description = "Reservation expired, its copies went back to the stock",
+                    content = @Content) })
+    @PostMapping(value = "/books/reservations/{reservationId}/confirm")
+    public ResponseEntity<Void> confirmReservation(
+            @Parameter(description = "reservationId returned by checkout", required = true) @PathVariable String reservationId) {
+        inventoryService.confirm(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Return the copies held by a checkout reservation to the stock")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Returned the reserved copies"),
+            @ApiResponse(responseCode = "404", description = "Reservation not found, already confirmed, cancelled or expired",
+                    content = @Content) })
+    @DeleteMapping(value = "/books/reservations/{reservationId}")
+    public ResponseEntity<Void> cancelReservation(
+            @Parameter(description = "reservationId returned by checkout", required = true) @PathVariable String reservationId) {
+        inventoryService.cancel(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+}
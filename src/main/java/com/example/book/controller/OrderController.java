@@ -0,0 +1,52 @@
+package com.example.book.controller;
+
+import com.example.book.dto.response.OrderDto;
+import com.example.book.exception.BusinessException;
+import com.example.book.service.OrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Orders recorded for completed checkouts when book.orders.enabled is set.
+ */
+@RestController
+public class OrderController {
+
+    private final OrderService orderService;
+
+    public OrderController(OrderService orderService) {
+        this.orderService = orderService;
+    }
+
+    @Operation(summary = "Get the order recorded for a checkout")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Retrieved the order successfully",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = OrderDto.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid id supplied",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Order not found",
+                    content = @Content) })
+    @GetMapping(value = "/orders/{id}", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrderDto> getOrder(
+            @Parameter(description = "orderId returned by checkout", required = true) @PathVariable String id) {
+        long orderId;
+        try {
+            orderId = Long.parseLong(id);
+        } catch (NumberFormatException ex) {
+            throw new BusinessException(HttpStatus.BAD_REQUEST, "Order Id format not valid");
+        }
+        return ResponseEntity.ok(orderService.getOrder(orderId));
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.book.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
 
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Getter
 @Setter
@@ -41,4 +43,20 @@ public class BookDto {
     @Schema(description = "ISBN (International Standard Book Number) of the book.", required = true, example = "1231231232122")
     @NotNull
     private String isbn;
+
+    /** sent as the ETag header rather than in the body */
+    @JsonIgnore
+    private Long version;
+
+    /** sent as the Last-Modified header rather than in the body */
+    @JsonIgnore
+    private LocalDateTime updatedOn;
+
+    /**
+     * Used by the constructor expressions of BookRepository, which read books straight into dtos.
+     */
+    public BookDto(Long id, String bookName, String bookDescription, String author, String type,
+                   BigDecimal bookPrice, String isbn, Long version, LocalDateTime updatedOn) {
+        this(String.valueOf(id), bookName, bookDescription, author, type, bookPrice, isbn, version, updatedOn);
+    }
 }
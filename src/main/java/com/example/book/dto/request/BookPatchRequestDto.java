@@ -0,0 +1,41 @@
+package com.example.book.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import javax.validation.constraints.*;
+import java.math.BigDecimal;
+
+/**
+ * Partial update of a book, absent fields keep their value.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPatchRequestDto {
+
+    @Schema(description = "name of the book", example = "Harry Potter")
+    @Pattern(regexp = "^(?=.*\\S)[A-Za-z0-9\\s\\-_,\\.;:()]+$", message = "bookName invalid")
+    private String bookName;
+
+    @Schema(description = "description of the book", example = "A sci-fi thriller")
+    private String bookDescription;
+
+    @Schema(description = "Author of the book", example = "JK Rowling")
+    @Pattern(regexp = "(?s).*\\S.*", message = "author cannot be blank")
+    private String author;
+
+    @Schema(description = "type of the book. Example - FICTION, COMICS etc", example = "FICTION")
+    @Pattern(regexp = "(?s).*\\S.*", message = "type cannot be blank")
+    private String type;
+
+    @Schema(description = "Cost of the book", example = "20.04")
+    @DecimalMin(value = "0.01", message = "bookPrice must be greater than 0")
+    private BigDecimal bookPrice;
+
+    @Schema(description = "ISBN (International Standard Book Number) of the book.", example = "1231231232122")
+    @Pattern(regexp = "\\d{13}", message = "isbn must be exactly 13 digits")
+    private String isbn;
+}
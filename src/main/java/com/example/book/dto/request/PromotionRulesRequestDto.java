@@ -0,0 +1,20 @@
+package com.example.book.dto.request;
+
+import com.example.book.model.PromotionRule;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromotionRulesRequestDto {
+
+    @Schema(description = "the complete set of promotions. It replaces every promotion currently active", required = true)
+    @NotNull(message = "promotionRules cannot be null")
+    private List<@NotNull @Valid PromotionRule> promotionRules;
+}
@@ -0,0 +1,19 @@
+package com.example.book.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestockRequestDto {
+
+    @Schema(description = "copies received, added to the stock of the book", required = true, example = "100")
+    @NotNull(message = "quantity cannot be null")
+    @Min(value = 1, message = "Quantity must be greater than 0")
+    private Long quantity;
+}
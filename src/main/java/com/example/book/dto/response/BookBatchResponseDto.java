@@ -0,0 +1,25 @@
+package com.example.book.dto.response;
+
+import com.example.book.dto.BookDto;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Books read by id in one request.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookBatchResponseDto {
+
+    @Schema(description = "books found, in the order of the ids asked for")
+    private List<BookDto> books;
+
+    @Schema(description = "ids without a book on sale, never created or deleted", example = "[\"7\"]")
+    private List<String> missingIds;
+}
@@ -0,0 +1,22 @@
+package com.example.book.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookImportErrorDto {
+
+    @Schema(description = "line of the uploaded file the book was read from, starting at 1", example = "12")
+    private long line;
+
+    @Schema(description = "isbn of the rejected book, when it could be read", example = "1231231232122")
+    private String isbn;
+
+    @Schema(description = "why the book was rejected", example = "duplicate isbn")
+    private String message;
+}
@@ -0,0 +1,24 @@
+package com.example.book.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookImportResponseDto {
+
+    @Schema(description = "number of books added to the catalog", example = "9998")
+    private long imported;
+
+    @Schema(description = "number of rows rejected", example = "2")
+    private long failed;
+
+    @Schema(description = "the rejected rows, truncated to the configured maximum")
+    private List<BookImportErrorDto> errors;
+}
@@ -0,0 +1,23 @@
+package com.example.book.dto.response;
+
+import com.example.book.dto.BookDto;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * One keyset page of the catalog.
+ * nextCursor is the id of the last book on the page, or null when there are no more pages.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookPageDto {
+
+    private List<BookDto> books;
+
+    private String nextCursor;
+}
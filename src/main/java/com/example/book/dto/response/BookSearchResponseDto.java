@@ -0,0 +1,33 @@
+package com.example.book.dto.response;
+
+import com.example.book.dto.BookDto;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookSearchResponseDto {
+
+    @Schema(description = "number of books matching the query and filters", example = "42")
+    private long total;
+
+    @Schema(description = "best matching books, best first")
+    private List<BookDto> books;
+
+    @Schema(description = "books matching the query per type, before the type and price band filters")
+    private Map<String, Long> types;
+
+    @Schema(description = "books matching the query per price band, before the type and price band filters")
+    private Map<String, Long> priceBands;
+
+    @Schema(description = "true when a prefix matched too many words and only the first ones were searched, "
+            + "total and facets then count fewer books than the query matches")
+    private boolean truncated;
+}
@@ -0,0 +1,28 @@
+package com.example.book.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatsDto {
+
+    @Schema(description = "number of entries currently cached", example = "120")
+    private long size;
+
+    @Schema(description = "number of lookups served from the cache", example = "9500")
+    private long hitCount;
+
+    @Schema(description = "number of lookups that had to load from the database", example = "500")
+    private long missCount;
+
+    @Schema(description = "number of entries evicted because of size or time to live", example = "20")
+    private long evictionCount;
+
+    @Schema(description = "share of lookups served from the cache", example = "0.95")
+    private double hitRate;
+}
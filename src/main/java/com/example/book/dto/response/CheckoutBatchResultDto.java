@@ -0,0 +1,40 @@
+package com.example.book.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import org.springframework.http.HttpStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of one cart of a batch checkout: its prices, or the error it would have got from /books/checkout.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutBatchResultDto {
+
+    @Schema(description = "http status the cart would have got on its own", required = true, example = "200")
+    private int status;
+
+    @Schema(description = "Total price of the cart without discount, absent on error", example = "1000.00")
+    private BigDecimal originalPrice;
+
+    @Schema(description = "Total price of the cart after discount, absent on error", example = "950.00")
+    private BigDecimal priceAfterDiscount;
+
+    @Schema(description = "Why the cart could not be priced, absent on success", example = "Invalid promo code")
+    private String message;
+
+    public static CheckoutBatchResultDto priced(CheckoutBookResponse response) {
+        return new CheckoutBatchResultDto(HttpStatus.OK.value(), response.getOriginalPrice(),
+                response.getPriceAfterDiscount(), null);
+    }
+
+    public static CheckoutBatchResultDto failed(HttpStatus status, String message) {
+        return new CheckoutBatchResultDto(status.value(), null, null, message);
+    }
+}
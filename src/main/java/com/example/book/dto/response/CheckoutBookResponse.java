@@ -5,6 +5,7 @@ import lombok.*;
 
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.time.Instant;
 
 @Getter
 @Setter
@@ -21,4 +22,19 @@ public class CheckoutBookResponse {
     @Schema(description = "Total price of all the books checked out after discount", required = true, example = "950.00")
     @NotNull
     private BigDecimal priceAfterDiscount;
+
+    @Schema(description = "Reservation holding the copies, to confirm or cancel. Absent unless checkout reserves stock",
+            example = "3f0c2a9e-8d5b-4a43-9d6e-1b0f6f3f2b7a")
+    private String reservationId;
+
+    @Schema(description = "When the reserved copies go back to the stock unless the reservation is confirmed",
+            example = "2021-03-01T10:15:30Z")
+    private Instant reservedUntil;
+
+    @Schema(description = "Order recorded for the checkout. Absent unless orders are enabled", example = "1")
+    private String orderId;
+
+    public CheckoutBookResponse(BigDecimal originalPrice, BigDecimal priceAfterDiscount) {
+        this(originalPrice, priceAfterDiscount, null, null, null);
+    }
 }
@@ -0,0 +1,66 @@
+package com.example.book.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A completed checkout. Also the form orders take in the order journal, where the id is kept apart.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderDto {
+
+    @Schema(description = "id of the order", example = "1")
+    private String id;
+
+    @Schema(description = "when the checkout completed", example = "2021-03-01T10:15:30")
+    private LocalDateTime placedOn;
+
+    @Schema(description = "promo code applied to the order", example = "code1")
+    private String promoCode;
+
+    @Schema(description = "Total price of the order without discount", example = "1000.00")
+    private BigDecimal originalPrice;
+
+    @Schema(description = "Total price of the order after discount", example = "950.00")
+    private BigDecimal priceAfterDiscount;
+
+    @Schema(description = "Reservation holding the copies, when checkout reserves stock",
+            example = "3f0c2a9e-8d5b-4a43-9d6e-1b0f6f3f2b7a")
+    private String reservationId;
+
+    @Schema(description = "the books ordered")
+    private List<Line> lines;
+
+    @Getter
+    @Setter
+    @ToString
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Line {
+
+        @Schema(description = "id of the book, absent when it was priced from the request", example = "1")
+        private String bookId;
+
+        @Schema(description = "Name of the book", example = "Harry Potter")
+        private String bookName;
+
+        @Schema(description = "type of the book", example = "FICTION")
+        private String type;
+
+        @Schema(description = "Quantity ordered", example = "2")
+        private int quantity;
+
+        @Schema(description = "Price of one copy", example = "100")
+        private BigDecimal bookPrice;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.book.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockDto {
+
+    @Schema(description = "id of the book", example = "1")
+    private String bookId;
+
+    @Schema(description = "copies that can be checked out now", example = "95")
+    private long available;
+
+    @Schema(description = "copies held by checkouts that are neither confirmed nor cancelled yet", example = "5")
+    private long reserved;
+}
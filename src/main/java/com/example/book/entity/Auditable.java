@@ -10,7 +10,10 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.EntityListeners;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 /**
  * This class acts as the common jpa audit class.
@@ -30,4 +33,21 @@ abstract public class Auditable {
 
     @LastModifiedDate
     private LocalDateTime updatedOn;
+
+    /**
+     * Runs after the auditing listener set the times, so that the saved entity holds them as they are stored.
+     */
+    @PrePersist
+    @PreUpdate
+    void cutTimes() {
+        createdOn = storedTime(createdOn);
+        updatedOn = storedTime(updatedOn);
+    }
+
+    /**
+     * @return the time cut to the microseconds the timestamp columns keep, so that it is stored as it is
+     */
+    public static LocalDateTime storedTime(LocalDateTime time) {
+        return time == null ? null : time.truncatedTo(ChronoUnit.MICROS);
+    }
 }
@@ -5,18 +5,32 @@ import lombok.*;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "TBL_BOOK")
+@Table(name = "TBL_BOOK", indexes = {
+		@Index(name = "idx_book_status_id", columnList = "status, id"),
+		@Index(name = "idx_book_status_type", columnList = "status, type, id"),
+		@Index(name = "idx_book_status_author", columnList = "status, author, id"),
+		@Index(name = "idx_book_status_price", columnList = "status, book_price, id")
+})
 @Getter
 @Setter
 @Builder
 public class Book extends Auditable {
 
+	/** decimals of the book_price column, a decimal(19,2) */
+	public static final int PRICE_SCALE = 2;
+
+	/**
+	 * Ids come from a pooled sequence so that Hibernate can batch inserts and only reads the sequence once
+	 * every allocationSize rows.
+	 */
 	@Id
-	@GeneratedValue
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+	@SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
 	private Long id;
 
 	@Column(name = "book_name", nullable = false)
@@ -30,7 +44,7 @@ public class Book extends Auditable {
 	@Column(name = "type", nullable = false)
 	private String type;
 
-	@Column(name = "book_price", nullable = false)
+	@Column(name = "book_price", nullable = false, precision = 19, scale = PRICE_SCALE)
 	private BigDecimal bookPrice;
 
 	@Column(name = "isbn", nullable = false, unique = true)
@@ -38,4 +52,34 @@ public class Book extends Auditable {
 
 	@Enumerated(EnumType.STRING)
 	private BookStatus status;
+
+	/**
+	 * Copies on hand. Left out of entity updates: after the insert it is only written by the stock ledger, which adds
+	 * its deltas to the column instead of overwriting it. Not part of the version of the book.
+	 */
+	@Column(name = "stock", nullable = false, updatable = false, columnDefinition = "bigint default 0")
+	private long stock;
+
+	/**
+	 * Incremented on every update and checked by it, so concurrent writers cannot overwrite each other.
+	 * Exposed to clients as the ETag of the book.
+	 */
+	@Version
+	private Long version;
+
+	/**
+	 * Rounds the price like the database would, so that the saved book can be cached as it is stored.
+	 */
+	@PrePersist
+	@PreUpdate
+	void roundPrice() {
+		bookPrice = storedPrice(bookPrice);
+	}
+
+	/**
+	 * @return the price as the book_price column stores it, rounded half up like the database does, null for null
+	 */
+	public static BigDecimal storedPrice(BigDecimal price) {
+		return price == null ? null : price.setScale(PRICE_SCALE, RoundingMode.HALF_UP);
+	}
 }
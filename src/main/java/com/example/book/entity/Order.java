@@ -0,0 +1,67 @@
+package com.example.book.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A completed checkout. Written behind the order journal, which assigns the id, so the entity is always new when
+ * saved: {@link #isNew()} spares Spring Data the select it would otherwise run before inserting an assigned id.
+ */
+@NoArgsConstructor
+@Entity
+@Table(name = "TBL_ORDER")
+@Getter
+@Setter
+public class Order implements Persistable<Long> {
+
+	@Id
+	private Long id;
+
+	@Column(name = "placed_on", nullable = false)
+	private LocalDateTime placedOn;
+
+	private String promoCode;
+
+	@Column(name = "original_price", nullable = false)
+	private BigDecimal originalPrice;
+
+	@Column(name = "price_after_discount", nullable = false)
+	private BigDecimal priceAfterDiscount;
+
+	private String reservationId;
+
+	@OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
+	@OrderBy("lineNumber")
+	private List<OrderLine> lines = new ArrayList<>();
+
+	@Transient
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private boolean persisted;
+
+	public void addLine(OrderLine line) {
+		line.setOrder(this);
+		line.setLineNumber(lines.size());
+		lines.add(line);
+	}
+
+	@Override
+	public boolean isNew() {
+		return !persisted;
+	}
+
+	@PostPersist
+	@PostLoad
+	void markPersisted() {
+		persisted = true;
+	}
+}
@@ -0,0 +1,45 @@
+package com.example.book.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "TBL_ORDER_LINE", indexes = @Index(name = "idx_order_line_order", columnList = "order_id, line_number"))
+@Getter
+@Setter
+@Builder
+public class OrderLine {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_line_seq")
+	@SequenceGenerator(name = "order_line_seq", sequenceName = "order_line_seq", allocationSize = 50)
+	private Long id;
+
+	@ManyToOne(fetch = FetchType.LAZY, optional = false)
+	@JoinColumn(name = "order_id", nullable = false)
+	private Order order;
+
+	@Column(name = "line_number", nullable = false)
+	private int lineNumber;
+
+	/** null when the book was priced from the request without a book id */
+	private Long bookId;
+
+	private String bookName;
+
+	private String type;
+
+	@Column(name = "quantity", nullable = false)
+	private int quantity;
+
+	@Column(name = "book_price", nullable = false)
+	private BigDecimal bookPrice;
+}
@@ -0,0 +1,60 @@
+package com.example.book.execution;
+
+import com.example.book.config.ExecutionConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Small fixed pool that runs the blocking database calls of asynchronous requests, so that requests waiting for the
+ * database hold a queue slot instead of a request thread. Waiting work is bounded by the queue capacity; beyond it
+ * {@link #supply(Supplier)} throws {@link java.util.concurrent.RejectedExecutionException}.
+ * <p>
+ * Deliberately not an {@link java.util.concurrent.Executor} bean, which would replace the executor Spring Boot
+ * configures for streaming responses. Pool and queue are published as the "jdbc" executor metrics.
+ */
+@Component
+public class JdbcExecutor implements MeterBinder {
+
+    private final ThreadPoolExecutor executor;
+
+    public JdbcExecutor(ExecutionConfig executionConfig) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(executionConfig.getJdbcThreads(), executionConfig.getJdbcThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(executionConfig.getQueueCapacity()),
+                task -> {
+                    Thread thread = new Thread(task, "book-jdbc-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Runs the call on a jdbc thread.
+     *
+     * @return completes with the result of the call, or exceptionally with what it threw
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, executor);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "jdbc", Tags.empty()).bindTo(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.book.execution;
+
+import com.example.book.config.CheckoutConfig;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fork/join pool dedicated to pricing large checkout batches, so they neither compete with other users of the
+ * common pool nor take more than the configured number of cores.
+ */
+@Component
+public class PricingPool {
+
+    private final CheckoutConfig checkoutConfig;
+    private final ForkJoinPool pool;
+
+    public PricingPool(CheckoutConfig checkoutConfig) {
+        this.checkoutConfig = checkoutConfig;
+        this.pool = new ForkJoinPool(Math.max(1, checkoutConfig.getBatchParallelism()));
+    }
+
+    /**
+     * Applies the function to every element, in parallel on the pool when there are enough of them.
+     *
+     * @return the results in the order of the elements
+     */
+    public <T, R> List<R> map(List<T> elements, Function<T, R> function) {
+        if (elements.size() < checkoutConfig.getParallelBatchThreshold() || pool.getParallelism() == 1) {
+            return elements.stream().map(function).collect(Collectors.toList());
+        }
+        // a parallel stream started from a task of a pool runs its subtasks in that pool
+        return pool.submit(() -> elements.parallelStream().map(function).collect(Collectors.toList())).join();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
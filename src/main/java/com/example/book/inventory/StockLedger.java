@@ -0,0 +1,209 @@
+package com.example.book.inventory;
+
+import com.example.book.dto.response.StockDto;
+import com.example.book.exception.BusinessException;
+import com.example.book.model.BookStatus;
+import com.example.book.repository.BookRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory stock of the books, so that launches of hot titles reserve copies without a database round trip or a
+ * row lock. A book gets its counters the first time it is reserved or restocked, loaded from its stock column, and
+ * keeps them for the life of the application:
+ * <ul>
+ * <li>available: copies free to reserve. Taken with compare-and-set, so it never drops below zero and two
+ * checkouts can never get the same copy.</li>
+ * <li>reserved: copies held by reservations, only read for reporting.</li>
+ * <li>unflushed: copies sold or restocked since the last {@link #flush()}, which adds them to the stock column
+ * of all the books in one JDBC batch.</li>
+ * </ul>
+ * The stock column plus the unflushed copies always equals the available plus the reserved ones. Reserved copies
+ * are never written: a restart returns them to the stock. The ledger must be the only writer of the stock column, so
+ * the application has to run as a single instance.
+ */
+@Component
+public class StockLedger implements MeterBinder {
+
+    private final BookRepository repository;
+    private final ConcurrentMap<Long, Stock> stocks = new ConcurrentHashMap<>();
+
+    public StockLedger(BookRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @return whether every book already has its counters, so that reserving them does not touch the database
+     */
+    public boolean isLoaded(Collection<Long> ids) {
+        return stocks.keySet().containsAll(ids);
+    }
+
+    /**
+     * Takes the quantities out of the available copies, all of them or none.
+     * Books are taken one after the other, so a cart that turns out to be short may make a concurrent one fail
+     * before it gives its copies back; it can never make one succeed.
+     *
+     * @param quantities copies by book id
+     * @throws BusinessException 409 when a book has not enough copies, 404 when a book is not sold
+     */
+    public void reserve(Map<Long, Long> quantities) {
+        load(quantities.keySet());
+        List<Map.Entry<Long, Long>> taken = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Long> item : quantities.entrySet()) {
+            Stock stock = stocks.get(item.getKey());
+            if (!stock.take(item.getValue())) {
+                for (Map.Entry<Long, Long> undo : taken) {
+                    Stock undone = stocks.get(undo.getKey());
+                    undone.reserved.add(-undo.getValue());
+                    undone.available.addAndGet(undo.getValue());
+                }
+                throw new BusinessException(HttpStatus.CONFLICT,
+                        "Not enough copies of book " + item.getKey() + " in stock");
+            }
+            stock.reserved.add(item.getValue());
+            taken.add(item);
+        }
+    }
+
+    /**
+     * Returns reserved copies to the available ones.
+     */
+    public void release(Map<Long, Long> quantities) {
+        quantities.forEach((id, quantity) -> {
+            Stock stock = stocks.get(id);
+            stock.reserved.add(-quantity);
+            stock.available.addAndGet(quantity);
+        });
+    }
+
+    /**
+     * Removes reserved copies from the stock for good. They leave the stock column with the next flush.
+     */
+    public void sell(Map<Long, Long> quantities) {
+        quantities.forEach((id, quantity) -> {
+            Stock stock = stocks.get(id);
+            stock.reserved.add(-quantity);
+            stock.unflushed.addAndGet(-quantity);
+        });
+    }
+
+    /**
+     * Adds copies to the stock, available at once and written to the stock column with the next flush.
+     *
+     * @throws BusinessException 404 when the book is not sold
+     */
+    public void restock(Long id, long quantity) {
+        load(List.of(id));
+        Stock stock = stocks.get(id);
+        stock.unflushed.addAndGet(quantity);
+        stock.available.addAndGet(quantity);
+    }
+
+    /**
+     * @throws BusinessException 404 when the book is not sold
+     */
+    public StockDto get(Long id) {
+        load(List.of(id));
+        Stock stock = stocks.get(id);
+        return new StockDto(id.toString(), stock.available.get(), stock.reserved.sum());
+    }
+
+    /**
+     * Writes the copies sold and restocked since the last flush to the stock column. When the write fails they are
+     * kept for the next flush.
+     *
+     * @return number of books written
+     */
+    public synchronized int flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        stocks.forEach((id, stock) -> {
+            long delta = stock.unflushed.getAndSet(0L);
+            if (delta != 0L) {
+                deltas.put(id, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        try {
+            repository.addStock(deltas);
+        } catch (RuntimeException ex) {
+            deltas.forEach((id, delta) -> stocks.get(id).unflushed.addAndGet(delta));
+            throw ex;
+        }
+        return deltas.size();
+    }
+
+    /**
+     * Loads the counters of the books that have none yet with one query. A book loaded concurrently keeps the
+     * counters of whoever put them first: nothing writes the column before they exist.
+     */
+    private void load(Collection<Long> ids) {
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            if (!stocks.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (StockLevel level : repository.findStockLevels(missing, BookStatus.ACTIVE)) {
+            stocks.putIfAbsent(level.getBookId(), new Stock(level.getStock()));
+        }
+        for (Long id : missing) {
+            if (!stocks.containsKey(id)) {
+                throw new BusinessException(HttpStatus.NOT_FOUND, "Book " + id + " is not available in the store");
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("books.stock.tracked", stocks, Map::size)
+                .description("books whose stock is held in memory")
+                .register(registry);
+        Gauge.builder("books.stock.reserved", stocks, it -> it.values().stream().mapToLong(s -> s.reserved.sum()).sum())
+                .description("copies held by reservations")
+                .register(registry);
+        Gauge.builder("books.stock.unflushed", stocks, it -> it.values().stream().filter(s -> s.unflushed.get() != 0L).count())
+                .description("books with sold or restocked copies not yet written to the database")
+                .register(registry);
+    }
+
+    private static final class Stock {
+
+        final AtomicLong available;
+        final LongAdder reserved = new LongAdder();
+        final AtomicLong unflushed = new AtomicLong();
+
+        Stock(long available) {
+            this.available = new AtomicLong(available);
+        }
+
+        boolean take(long quantity) {
+            long current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.book.inventory;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Stock column of a book, as read by {@link com.example.book.repository.BookRepository#findStockLevels}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class StockLevel {
+
+    private final Long bookId;
+    private final long stock;
+}
@@ -0,0 +1,47 @@
+package com.example.book.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Times every call made on a Spring Data repository proxy, including the inherited CRUD methods.
+ * The timer is tagged with the repository, the method and whether the call threw.
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    public static final String METRIC_NAME = "book.repository.invocations";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final String repository;
+
+    public RepositoryMetricsInterceptor(ObjectProvider<MeterRegistry> meterRegistry, String repository) {
+        this.meterRegistry = meterRegistry;
+        this.repository = repository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return invocation.proceed();
+        }
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "success";
+        try {
+            return invocation.proceed();
+        } catch (Throwable ex) {
+            outcome = "error";
+            throw ex;
+        } finally {
+            sample.stop(Timer.builder(METRIC_NAME)
+                    .description("Latency of repository calls")
+                    .tag("repository", repository)
+                    .tag("method", invocation.getMethod().getName())
+                    .tag("outcome", outcome)
+                    .register(registry));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.book.model;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Line oriented formats of the bulk import and the catalog export, one book per line.
+ */
+public enum CatalogFormat {
+
+    /** one book json object per line */
+    NDJSON(CatalogFormat.NDJSON_VALUE),
+
+    /** a header line naming the book fields, then one book per line */
+    CSV(CatalogFormat.CSV_VALUE);
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String CSV_VALUE = "text/csv";
+
+    private final String mediaType;
+
+    CatalogFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return the format with the given case insensitive name, or null when there is none
+     */
+    public static CatalogFormat fromName(String name) {
+        for (CatalogFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    public static CatalogFormat fromMediaType(MediaType mediaType) {
+        for (CatalogFormat format : values()) {
+            if (mediaType != null && mediaType.isCompatibleWith(MediaType.parseMediaType(format.mediaType))) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
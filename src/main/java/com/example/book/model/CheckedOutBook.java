@@ -37,12 +37,18 @@ public class CheckedOutBook {
     @Schema(description = "id of the book.", example = "1")
     private String id;
 
-    @Schema(description = "Cost of the book.", required = true, example = "100")
-    @NotNull(message = "bookPrice cannot be null")
-    @DecimalMin(value = "0.01", message = "bookPrice must be greater than 0")
+    @Schema(description = "Cost of the book, required unless checkout prices from the catalog", example = "100")
+    @NotNull(message = "bookPrice cannot be null", groups = RequestPricing.class)
+    @DecimalMin(value = "0.01", message = "bookPrice must be greater than 0", groups = RequestPricing.class)
     private BigDecimal bookPrice;
 
     @Schema(description = "ISBN (International Standard Book Number) of the book.", example = "1231231232122")
     @Pattern(regexp = "\\d{13}", message = "isbn must be exactly 13 digits")
     private String isbn;
+
+    /**
+     * Validation group of the constraints that only apply when checkout trusts the price sent by the client.
+     */
+    public interface RequestPricing {
+    }
 }
@@ -1,18 +1,33 @@
 package com.example.book.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Getter;
 import org.springframework.boot.context.properties.ConstructorBinding;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
 
 @Getter
 @ConstructorBinding
 public class DiscountRule {
 
+    @Schema(description = "type of the book the discount applies to", required = true, example = "FICTION")
+    @NotBlank(message = "type cannot be blank")
     private final String type;
+
+    @Schema(description = "discount in percent", required = true, example = "10")
+    @NotNull(message = "discount cannot be null")
+    @DecimalMin(value = "0", message = "discount must be between 0 and 100")
+    @DecimalMax(value = "100", message = "discount must be between 0 and 100")
     private final BigDecimal discount;
 
-    public DiscountRule(String type, BigDecimal discount) {
+    @JsonCreator
+    public DiscountRule(@JsonProperty("type") String type, @JsonProperty("discount") BigDecimal discount) {
         this.type = type;
         this.discount = discount;
     }
@@ -0,0 +1,16 @@
+package com.example.book.model;
+
+/**
+ * How checkout requests are handled.
+ */
+public enum ExecutionMode {
+
+    /** the request thread prices the cart and waits for the database when books have to be loaded */
+    BLOCKING,
+
+    /**
+     * the request thread is released as soon as books have to be loaded from the database; the load runs on the
+     * bounded jdbc executor and the response is written when it completes
+     */
+    ASYNC;
+}
@@ -0,0 +1,13 @@
+package com.example.book.model;
+
+/**
+ * How checkout adds up the prices and discounts of a cart. Both give the same results.
+ */
+public enum MoneyArithmetic {
+
+    /** BigDecimal amounts, rounded to cents after every item */
+    DECIMAL,
+
+    /** long cents, converted to BigDecimal only for the response */
+    CENTS;
+}
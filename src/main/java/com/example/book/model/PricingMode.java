@@ -0,0 +1,13 @@
+package com.example.book.model;
+
+/**
+ * Where checkout takes the price and type of each item from.
+ */
+public enum PricingMode {
+
+    /** trust the price and type sent by the client */
+    REQUEST,
+
+    /** look every item up in the catalog by id and use the stored price and type */
+    CATALOG;
+}
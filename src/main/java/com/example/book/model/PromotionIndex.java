@@ -0,0 +1,71 @@
+package com.example.book.model;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup table built from the configured promotion rules: promo code -> book type -> discount.
+ * Checkout resolves the promo code and the discount of every item with one hash lookup each, however many
+ * promotions are configured.
+ * When a promo code or a book type is configured more than once, the first entry wins.
+ * The index keeps an unmodifiable copy of the rules it was built from.
+ */
+public final class PromotionIndex {
+
+    public static final PromotionIndex EMPTY = new PromotionIndex(Collections.emptyList(), Collections.emptyMap());
+
+    private final List<PromotionRule> promotionRules;
+    private final Map<String, Map<String, BigDecimal>> discountsByPromoCode;
+
+    private PromotionIndex(List<PromotionRule> promotionRules, Map<String, Map<String, BigDecimal>> discountsByPromoCode) {
+        this.promotionRules = promotionRules;
+        this.discountsByPromoCode = discountsByPromoCode;
+    }
+
+    public static PromotionIndex of(List<PromotionRule> promotionRules) {
+        if (promotionRules == null || promotionRules.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, Map<String, BigDecimal>> index = new HashMap<>(promotionRules.size() * 2);
+        for (PromotionRule promotionRule : promotionRules) {
+            String promotionCode = promotionRule.getPromotionCode();
+            if (promotionCode == null || index.containsKey(promotionCode)) {
+                continue;
+            }
+            index.put(promotionCode, indexDiscounts(promotionRule.getDiscountRules()));
+        }
+        return new PromotionIndex(List.copyOf(promotionRules), Collections.unmodifiableMap(index));
+    }
+
+    private static Map<String, BigDecimal> indexDiscounts(List<DiscountRule> discountRules) {
+        if (discountRules == null || discountRules.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, BigDecimal> discounts = new HashMap<>(discountRules.size() * 2);
+        for (DiscountRule discountRule : discountRules) {
+            if (discountRule.getType() != null && discountRule.getDiscount() != null) {
+                discounts.putIfAbsent(discountRule.getType(), discountRule.getDiscount());
+            }
+        }
+        return Collections.unmodifiableMap(discounts);
+    }
+
+    /**
+     * @param promoCode the promo code sent by the client
+     * @return discount percentage by book type, or null when the promo code is unknown
+     */
+    public Map<String, BigDecimal> getDiscounts(String promoCode) {
+        return discountsByPromoCode.get(promoCode);
+    }
+
+    public List<PromotionRule> getPromotionRules() {
+        return promotionRules;
+    }
+
+    public int size() {
+        return discountsByPromoCode.size();
+    }
+}
@@ -1,8 +1,14 @@
 package com.example.book.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Getter;
 import org.springframework.boot.context.properties.ConstructorBinding;
 
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
 import java.util.List;
 
 
@@ -10,10 +16,17 @@ import java.util.List;
 @Getter
 public class PromotionRule {
 
+    @Schema(description = "promo code sent by clients at checkout", required = true, example = "code1")
+    @NotBlank(message = "promotionCode cannot be blank")
     private final String promotionCode;
-    private final List<DiscountRule> discountRules;
 
-    public PromotionRule(String promotionCode, List<DiscountRule> discountRules) {
+    @Schema(description = "discount per book type", required = true)
+    @NotNull(message = "discountRules cannot be null")
+    private final List<@NotNull @Valid DiscountRule> discountRules;
+
+    @JsonCreator
+    public PromotionRule(@JsonProperty("promotionCode") String promotionCode,
+                         @JsonProperty("discountRules") List<DiscountRule> discountRules) {
         this.promotionCode = promotionCode;
         this.discountRules = discountRules;
     }
@@ -0,0 +1,24 @@
+package com.example.book.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Copies taken out of the stock by a checkout, until it is confirmed, cancelled or expires.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class Reservation {
+
+    private final String id;
+
+    /** copies by book id */
+    private final Map<Long, Long> quantities;
+
+    private final Instant expiresAt;
+}
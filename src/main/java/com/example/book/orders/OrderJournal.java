@@ -0,0 +1,269 @@
+package com.example.book.orders;
+
+import com.example.book.dto.response.OrderDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the orders that may not be in the database yet. Appending an order copies it into a
+ * memory-mapped segment file, which is all checkout waits for: once the bytes are in the page cache the order
+ * survives a crash of the application. The journal assigns the order ids, in the order of the log, and queues the
+ * appended orders for the writer, which calls {@link #checkpoint(long)} once it has stored them.
+ * <p>
+ * Every record is an int payload length, the CRC32 of the id and payload, the long id and the json of the order
+ * without its id. The length is written last, so a record cut short by a crash reads as the end of the segment, and
+ * one torn by the operating system fails its checksum. Segments are named after the first id they hold and deleted
+ * once every order in them is checkpointed. Opening the journal queues the orders after the checkpoint again;
+ * orders stored just before a crash, but not yet checkpointed, are queued too and the writer skips them.
+ */
+@Slf4j
+public class OrderJournal implements Closeable {
+
+    static final int HEADER_SIZE = 16;
+    private static final String SEGMENT_PREFIX = "orders-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path dir;
+    private final int segmentSize;
+    private final boolean force;
+    private final ObjectMapper objectMapper;
+    /** segment files by the first id they hold */
+    private final NavigableMap<Long, Path> segments = new TreeMap<>();
+    private final BlockingQueue<OrderDto> pending = new LinkedBlockingQueue<>();
+    private final MappedByteBuffer checkpoint;
+    private final long replayedUpTo;
+    private MappedByteBuffer current;
+    private long lastId;
+    private boolean closed;
+
+    /**
+     * Opens the journal in the directory, creating it when missing, and queues the orders after the checkpoint.
+     *
+     * @param lastStoredId largest order id in the database, new ids start after it even without a journal
+     */
+    public static OrderJournal open(Path dir, int segmentSize, boolean force, long lastStoredId,
+                                    ObjectMapper objectMapper) throws IOException {
+        return new OrderJournal(dir, segmentSize, force, lastStoredId, objectMapper);
+    }
+
+    private OrderJournal(Path dir, int segmentSize, boolean force, long lastStoredId, ObjectMapper objectMapper)
+            throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.force = force;
+        this.objectMapper = objectMapper;
+        Files.createDirectories(dir);
+        this.checkpoint = map(dir.resolve(CHECKPOINT_FILE), Long.BYTES, true);
+        long checkpointId = checkpoint.getLong(0);
+        this.lastId = Math.max(checkpointId, lastStoredId);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            MappedByteBuffer buffer = map(segment.getValue(), (int) Files.size(segment.getValue()), false);
+            buffer.position(replay(buffer, segment.getValue(), checkpointId));
+            current = buffer;
+        }
+        this.replayedUpTo = lastId;
+        if (current == null) {
+            roll();
+        }
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} orders from the journal in {}", pending.size(), dir);
+        }
+    }
+
+    /**
+     * Appends the order and queues it for the writer.
+     *
+     * @param order an order without id, its id is set once appended
+     * @return id of the order
+     */
+    public long append(OrderDto order) {
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(order);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int size = HEADER_SIZE + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Order of " + size + " bytes does not fit in a journal segment");
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The order journal is closed");
+            }
+            if (current.remaining() < size) {
+                roll();
+            }
+            long id = ++lastId;
+            int start = current.position();
+            current.putInt(start + Integer.BYTES, checksum(id, ByteBuffer.wrap(payload)));
+            current.putLong(start + 2 * Integer.BYTES, id);
+            current.position(start + HEADER_SIZE);
+            current.put(payload);
+            current.putInt(start, payload.length);
+            if (force) {
+                current.force();
+            }
+            order.setId(Long.toString(id));
+            pending.add(order);
+            return id;
+        }
+    }
+
+    /**
+     * Moves the queued orders to the batch, waiting for the first one at most the timeout. Orders come out in id
+     * order.
+     */
+    public void drainTo(List<OrderDto> batch, int maxOrders, long timeout, TimeUnit unit) throws InterruptedException {
+        OrderDto first = pending.poll(timeout, unit);
+        if (first != null) {
+            batch.add(first);
+            pending.drainTo(batch, maxOrders - 1);
+        }
+    }
+
+    /**
+     * @return number of appended or replayed orders not yet handed to the writer
+     */
+    public int queued() {
+        return pending.size();
+    }
+
+    /**
+     * @return largest id of the orders queued when the journal was opened; they may already be stored
+     */
+    public long getReplayedUpTo() {
+        return replayedUpTo;
+    }
+
+    /**
+     * Records that every order up to the id is stored and deletes the segments holding only such orders.
+     */
+    public synchronized void checkpoint(long id) {
+        checkpoint.putLong(0, id);
+        if (force) {
+            checkpoint.force();
+        }
+        Iterator<Map.Entry<Long, Path>> iterator = segments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Path> segment = iterator.next();
+            Long nextFirstId = segments.higherKey(segment.getKey());
+            // the segment appended to has no successor and is kept
+            if (nextFirstId == null || nextFirstId - 1 > id) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segment.getValue());
+            } catch (IOException e) {
+                log.warn("Could not delete a journal segment, it is left in {}", dir, e);
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            current.force();
+            checkpoint.force();
+        }
+    }
+
+    /**
+     * Queues the orders of the segment after the checkpoint.
+     *
+     * @return position after the last whole record
+     */
+    private int replay(MappedByteBuffer segment, Path file, long checkpointId) throws IOException {
+        int position = 0;
+        while (position + HEADER_SIZE <= segment.capacity()) {
+            int length = segment.getInt(position);
+            if (length == 0) {
+                return position;
+            }
+            long id = segment.getLong(position + 2 * Integer.BYTES);
+            if (length < 0 || position + HEADER_SIZE + length > segment.capacity()
+                    || segment.getInt(position + Integer.BYTES) != checksum(id, slice(segment, position + HEADER_SIZE, length))) {
+                log.warn("Torn order record at {} of {}, the rest of the segment is dropped", position, file);
+                for (int i = position; i < segment.capacity(); i++) {
+                    segment.put(i, (byte) 0);
+                }
+                return position;
+            }
+            if (id > checkpointId) {
+                byte[] payload = new byte[length];
+                slice(segment, position + HEADER_SIZE, length).get(payload);
+                OrderDto order = objectMapper.readValue(payload, OrderDto.class);
+                order.setId(Long.toString(id));
+                pending.add(order);
+            }
+            lastId = Math.max(lastId, id);
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private void roll() {
+        long firstId = lastId + 1;
+        Path file = dir.resolve(SEGMENT_PREFIX + String.format("%020d", firstId) + SEGMENT_SUFFIX);
+        try {
+            current = map(file, segmentSize, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.put(firstId, file);
+    }
+
+    private static MappedByteBuffer map(Path file, int size, boolean create) throws IOException {
+        StandardOpenOption[] options = create
+                ? new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE};
+        // the mapping outlives the channel
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position).limit(position + length);
+        return view.slice();
+    }
+
+    private static int checksum(long id, ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, id));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
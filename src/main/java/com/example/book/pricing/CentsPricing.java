@@ -0,0 +1,73 @@
+package com.example.book.pricing;
+
+import com.example.book.dto.response.CheckoutBookResponse;
+import com.example.book.model.CheckedOutBook;
+import lombok.experimental.UtilityClass;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prices a cart in long cents and hundredths of a percent, creating {@link BigDecimal}s only for the response.
+ * It gives exactly the results of {@link DecimalPricing}: with prices in whole cents every amount is a whole number
+ * of cents, so only the discount of an item is rounded, HALF_EVEN like the decimal engine does.
+ * <p>
+ * Carts with a price finer than a cent, a discount finer than a hundredth of a percent or an amount overflowing
+ * a long are priced by {@link DecimalPricing} instead.
+ */
+@UtilityClass
+public class CentsPricing {
+
+    /** amount in cents * discount in hundredths of a percent / 10000 = discount in cents */
+    private final long DISCOUNT_DIVISOR = 10_000L;
+
+    public CheckoutBookResponse price(List<CheckedOutBook> items, Map<String, BigDecimal> discounts) {
+        if (items.isEmpty()) {
+            // the decimal engine never rounds the price after discount of an empty cart
+            return new CheckoutBookResponse(BigDecimal.ZERO.setScale(2), BigDecimal.ZERO);
+        }
+        try {
+            long originalPrice = 0L;
+            long priceAfterDiscount = 0L;
+            for (int i = 0; i < items.size(); i++) {
+                CheckedOutBook item = items.get(i);
+                long amount = Math.multiplyExact(toHundredths(item.getBookPrice()), item.getQuantity().longValue());
+                BigDecimal discount = discounts.get(item.getType());
+                long discountForItem = discount == null
+                        ? 0L
+                        : divideHalfEven(Math.multiplyExact(amount, toHundredths(discount)), DISCOUNT_DIVISOR);
+                originalPrice = Math.addExact(originalPrice, amount);
+                priceAfterDiscount = Math.addExact(priceAfterDiscount, Math.subtractExact(amount, discountForItem));
+            }
+            return new CheckoutBookResponse(BigDecimal.valueOf(originalPrice, 2), BigDecimal.valueOf(priceAfterDiscount, 2));
+        } catch (ArithmeticException ex) {
+            return DecimalPricing.price(items, discounts);
+        }
+    }
+
+    /**
+     * value * 100, cents of a price or hundredths of a percent of a discount.
+     * Values with no fraction are converted without allocating.
+     *
+     * @throws ArithmeticException when the result has a fraction or does not fit a long
+     */
+    static long toHundredths(BigDecimal value) {
+        if (value.scale() == 0) {
+            return Math.multiplyExact(value.longValueExact(), 100L);
+        }
+        return value.movePointRight(2).longValueExact();
+    }
+
+    /**
+     * numerator / divisor rounded HALF_EVEN, divisor must be positive
+     */
+    static long divideHalfEven(long numerator, long divisor) {
+        long quotient = numerator / divisor;
+        long twiceRemainder = Math.abs(numerator % divisor) * 2;
+        if (twiceRemainder > divisor || (twiceRemainder == divisor && (quotient & 1) != 0)) {
+            quotient += Long.signum(numerator);
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.book.pricing;
+
+import com.example.book.dto.response.CheckoutBookResponse;
+import com.example.book.model.CheckedOutBook;
+import lombok.experimental.UtilityClass;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prices a cart with {@link BigDecimal} arithmetic. This is the reference for {@link CentsPricing}, which falls back
+ * to it for amounts it cannot represent.
+ * <p>
+ * The discount of every item is amount * discount / 100 rounded HALF_EVEN to cents, and the total after discount
+ * is rounded to cents after each item.
+ */
+@UtilityClass
+public class DecimalPricing {
+
+    public CheckoutBookResponse price(List<CheckedOutBook> items, Map<String, BigDecimal> discounts) {
+        BigDecimal originalPrice = withScaleTwo(
+                items.stream().map(x -> x.getBookPrice().multiply(BigDecimal.valueOf(x.getQuantity())))
+                        .reduce(BigDecimal.ZERO, BigDecimal::add));
+
+        BigDecimal priceAfterDiscount = BigDecimal.ZERO;
+
+        for (CheckedOutBook item : items) {
+            BigDecimal originalAmount = item.getBookPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+            BigDecimal discount = discounts.get(item.getType());
+            BigDecimal discountForItem = discount == null ? BigDecimal.ZERO : getDiscountValue(originalAmount, discount);
+            priceAfterDiscount = withScaleTwo(
+                    priceAfterDiscount.add(originalAmount.subtract(discountForItem))
+            );
+        }
+
+        return new CheckoutBookResponse(originalPrice, priceAfterDiscount);
+    }
+
+    private BigDecimal getDiscountValue(BigDecimal amount, BigDecimal discount) {
+        return amount.multiply(discount).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_EVEN);
+    }
+
+    private BigDecimal withScaleTwo(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_EVEN);
+    }
+}
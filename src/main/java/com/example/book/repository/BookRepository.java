@@ -1,12 +1,153 @@
 package com.example.book.repository;
 
+import com.example.book.cache.CatalogStamp;
+import com.example.book.dto.BookDto;
 import com.example.book.entity.Book;
+import com.example.book.inventory.StockLevel;
 import com.example.book.model.BookStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
-    List<Book> findByStatus(BookStatus status);
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
+
+    /** rows fetched per round trip while streaming */
+    String STREAM_FETCH_SIZE = "500";
+
+    /** selects books straight into dtos, without managed entities */
+    String BOOK_DTO_SELECT = "select new com.example.book.dto.BookDto("
+            + "b.id, b.bookName, b.bookDescription, b.author, b.type, b.bookPrice, b.isbn, b.version, b.updatedOn) from Book b ";
+
+    /**
+     * Keyset page of books with the given status, read as dtos.
+     * Only the page size of the pageable is used, the offset must stay 0 so the query never skips over rows.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(BOOK_DTO_SELECT + "where b.status = :status and b.id > :after order by b.id")
+    List<BookDto> findDtoPage(@Param("status") BookStatus status, @Param("after") Long after, Pageable pageable);
+
+    /**
+     * Keyset page of books with the given status and type, read as dtos through idx_book_status_type.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(BOOK_DTO_SELECT + "where b.status = :status and b.type = :type and b.id > :after order by b.id")
+    List<BookDto> findDtoPageByType(@Param("status") BookStatus status, @Param("type") String type,
+                                    @Param("after") Long after, Pageable pageable);
+
+    /**
+     * Keyset page of books with the given status and author, read as dtos through idx_book_status_author.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(BOOK_DTO_SELECT + "where b.status = :status and b.author = :author and b.id > :after order by b.id")
+    List<BookDto> findDtoPageByAuthor(@Param("status") BookStatus status, @Param("author") String author,
+                                      @Param("after") Long after, Pageable pageable);
+
+    /**
+     * Keyset page of books with the given status and a price between minPrice and maxPrice, both included, ordered
+     * by price then id and read as dtos through idx_book_status_price. The page starts after the book with
+     * afterPrice and afterId; pass minPrice and 0 for the first page.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(BOOK_DTO_SELECT + "where b.status = :status and b.bookPrice between :minPrice and :maxPrice "
+            + "and (b.bookPrice > :afterPrice or (b.bookPrice = :afterPrice and b.id > :afterId)) "
+            + "order by b.bookPrice, b.id")
+    List<BookDto> findDtoPageByPrice(@Param("status") BookStatus status, @Param("minPrice") BigDecimal minPrice,
+                                     @Param("maxPrice") BigDecimal maxPrice, @Param("afterPrice") BigDecimal afterPrice,
+                                     @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * @return the book as a dto when it has the given status
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(BOOK_DTO_SELECT + "where b.id = :id and b.status = :status")
+    Optional<BookDto> findDtoByIdAndStatus(@Param("id") Long id, @Param("status") BookStatus status);
+
+    /**
+     * @return the books with the given ids and status as dtos, in no particular order
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(BOOK_DTO_SELECT + "where b.id in :ids and b.status = :status")
+    List<BookDto> findDtosByIds(@Param("ids") Collection<Long> ids, @Param("status") BookStatus status);
+
+    /**
+     * Keyset page of the ids of books with the given status, read from idx_book_status_id alone.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select b.id from Book b where b.status = :status and b.id > :after order by b.id")
+    List<Long> findIdPage(@Param("status") BookStatus status, @Param("after") Long after, Pageable pageable);
+
+    /**
+     * Moves a book from one status to another with a single UPDATE, which also increments its version.
+     * Books loaded in the persistence context are not refreshed.
+     *
+     * @return 1 when the book had the expected status, 0 when it does not exist or has another status
+     */
+    @Transactional
+    @Modifying
+    @Query("update Book b set b.status = :to, b.version = b.version + 1, b.updatedOn = :now "
+            + "where b.id = :id and b.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") BookStatus from, @Param("to") BookStatus to,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * @return the stock of the books with the given ids and status, in no particular order
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select new com.example.book.inventory.StockLevel(b.id, b.stock) from Book b "
+            + "where b.id in :ids and b.status = :status")
+    List<StockLevel> findStockLevels(@Param("ids") Collection<Long> ids, @Param("status") BookStatus status);
+
+    /**
+     * @return the status of the book, empty when there is no book with this id
+     */
+    @Query("select b.status from Book b where b.id = :id")
+    Optional<BookStatus> findStatusById(@Param("id") Long id);
+
+    /**
+     * @return the number of books, the sum of their versions and their latest updatedOn, whatever their status
+     */
+    @Query("select new com.example.book.cache.CatalogStamp(count(b), sum(b.version), max(b.updatedOn)) from Book b")
+    CatalogStamp findCatalogStamp();
+
+    /**
+     * @return the isbns of the given ones that are already used by a book, whatever its status
+     */
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * Forward-only cursor over the books with the given status, read {@link #STREAM_FETCH_SIZE} rows at a time.
+     * Must be consumed and closed inside a transaction. The entities are loaded read only, without dirty checking
+     * snapshots, but still end up in the persistence context which the caller has to clear now and then.
+     * On MySQL the driver only honours the fetch size with useCursorFetch=true.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select b from Book b where b.status = :status order by b.id")
+    Stream<Book> streamByStatus(@Param("status") BookStatus status);
 }
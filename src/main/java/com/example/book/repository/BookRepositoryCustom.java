@@ -0,0 +1,27 @@
+package com.example.book.repository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+public interface BookRepositoryCustom {
+
+    /**
+     * Sets the given attributes of an active book with a single UPDATE statement, which also increments its version
+     * and sets its updatedOn. Books loaded in the persistence context are not refreshed.
+     *
+     * @param changes new values by entity attribute name
+     * @param expectedVersions only update the book while it still has one of these versions, null to update any version
+     * @param now new updatedOn of the book
+     * @return 1 when the book was updated, 0 when it does not exist, is deleted or has another version
+     */
+    int updateActiveBook(Long id, Map<String, Object> changes, Set<Long> expectedVersions, LocalDateTime now);
+
+    /**
+     * Adds the deltas to the stock column of the books in one transaction, sending the UPDATE statements as JDBC
+     * batches. The version and updatedOn of the books are left alone.
+     *
+     * @param deltas copies to add by book id, negative for copies sold
+     */
+    void addStock(Map<Long, Long> deltas);
+}
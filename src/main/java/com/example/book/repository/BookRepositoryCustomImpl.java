@@ -0,0 +1,74 @@
+package com.example.book.repository;
+
+import com.example.book.entity.Book;
+import com.example.book.model.BookStatus;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    /** UPDATE statements sent per JDBC batch by addStock */
+    static final int STOCK_BATCH_SIZE = 500;
+    /** the physical name of TBL_BOOK: the naming strategy lower-cases it, which matters on MySQL */
+    private static final String ADD_STOCK_SQL = "update tbl_book set stock = stock + ? where id = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int updateActiveBook(Long id, Map<String, Object> changes, Set<Long> expectedVersions, LocalDateTime now) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Book> update = builder.createCriteriaUpdate(Book.class);
+        Root<Book> book = update.from(Book.class);
+
+        changes.forEach(update::set);
+        update.set(book.<Long>get("version"), builder.sum(book.get("version"), 1L));
+        update.set("updatedOn", now);
+
+        List<Predicate> where = new ArrayList<>(3);
+        where.add(builder.equal(book.get("id"), id));
+        where.add(builder.equal(book.get("status"), BookStatus.ACTIVE));
+        if (expectedVersions != null) {
+            where.add(book.get("version").in(expectedVersions));
+        }
+        update.where(where.toArray(new Predicate[0]));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public void addStock(Map<Long, Long> deltas) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(ADD_STOCK_SQL)) {
+                int batched = 0;
+                for (Map.Entry<Long, Long> delta : deltas.entrySet()) {
+                    statement.setLong(1, delta.getValue());
+                    statement.setLong(2, delta.getKey());
+                    statement.addBatch();
+                    if (++batched == STOCK_BATCH_SIZE) {
+                        statement.executeBatch();
+                        batched = 0;
+                    }
+                }
+                if (batched > 0) {
+                    statement.executeBatch();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.book.repository;
+
+import com.example.book.entity.Order;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    /**
+     * @return the order with its lines, loaded by one query
+     */
+    @Query("select distinct o from Order o left join fetch o.lines where o.id = :id")
+    Optional<Order> findWithLinesById(@Param("id") Long id);
+
+    /**
+     * @return the ids of the given ones that are already stored
+     */
+    @Query("select o.id from Order o where o.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * @return the largest order id stored, empty when there are no orders
+     */
+    @Query("select max(o.id) from Order o")
+    Optional<Long> findMaxId();
+}
@@ -0,0 +1,31 @@
+package com.example.book.search;
+
+import com.example.book.dto.BookDto;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published after a book was written. book is null when the book is no longer sold.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class BookChangedEvent {
+
+    private final long bookId;
+    private final BookDto book;
+
+    private BookChangedEvent(long bookId, BookDto book) {
+        this.bookId = bookId;
+        this.book = book;
+    }
+
+    public static BookChangedEvent saved(BookDto book) {
+        return new BookChangedEvent(Long.parseLong(book.getId()), book);
+    }
+
+    public static BookChangedEvent removed(long bookId) {
+        return new BookChangedEvent(bookId, null);
+    }
+}
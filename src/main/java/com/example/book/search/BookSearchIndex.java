@@ -0,0 +1,421 @@
+package com.example.book.search;
+
+import com.example.book.config.SearchConfig;
+import com.example.book.dto.BookDto;
+import com.example.book.model.BookStatus;
+import com.example.book.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the name, author, description and type of the books on sale.
+ * It is loaded from the database once the application is ready and kept up to date from {@link BookChangedEvent}s.
+ * <p>
+ * Every indexed version of a book gets a new document number, so postings stay sorted by document and terms are
+ * intersected by galloping through them. Replaced and removed documents are only marked dead; once they outnumber
+ * the live ones they are dropped from the postings and the live documents are numbered again from 0.
+ */
+@Slf4j
+@Component
+public class BookSearchIndex {
+
+    static final float NAME_WEIGHT = 3f;
+    static final float AUTHOR_WEIGHT = 2f;
+    static final float TYPE_WEIGHT = 1f;
+    static final float DESCRIPTION_WEIGHT = 1f;
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+    private static final int MIN_DEAD_DOCS_TO_COMPACT = 1024;
+
+    private final BookRepository repository;
+    private final SearchConfig searchConfig;
+    private final PriceBands priceBands;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, Integer> docsByBookId = new HashMap<>();
+    private final List<String> typeNames = new ArrayList<>();
+    private final Map<String, Integer> typeOrdinals = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private long[] bookIds = new long[1024];
+    private int[] types = new int[1024];
+    private int[] bands = new int[1024];
+    private int docCount;
+    private int liveCount;
+    private int deadCount;
+    private Set<Long> changedWhileLoading;
+
+    public BookSearchIndex(BookRepository repository, SearchConfig searchConfig) {
+        this.repository = repository;
+        this.searchConfig = searchConfig;
+        this.priceBands = new PriceBands(searchConfig.getPriceBands());
+    }
+
+    /**
+     * Lower-cased runs of letters and digits.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Indexes the active books, reading them in keyset chunks. Books changed while loading keep their newer version.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long after = 0L;
+        List<BookDto> chunk;
+        do {
+            chunk = repository.findDtoPage(BookStatus.ACTIVE, after, PageRequest.of(0, LOAD_CHUNK_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (BookDto book : chunk) {
+                    if (!changedWhileLoading.contains(Long.parseLong(book.getId()))) {
+                        index(book);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!chunk.isEmpty()) {
+                after = Long.parseLong(chunk.get(chunk.size() - 1).getId());
+            }
+        } while (chunk.size() == LOAD_CHUNK_SIZE);
+
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading = null;
+            log.info("Indexed {} books for search in {} ms", liveCount, System.currentTimeMillis() - started);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (changedWhileLoading != null) {
+                changedWhileLoading.add(event.getBookId());
+            }
+            if (event.getBook() == null) {
+                remove(event.getBookId());
+            } else {
+                index(event.getBook());
+            }
+            if (deadCount > liveCount && deadCount >= MIN_DEAD_DOCS_TO_COMPACT) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public SearchHits search(SearchQuery query) {
+        lock.readLock().lock();
+        try {
+            return doSearch(query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> priceBandLabels() {
+        return priceBands.labels();
+    }
+
+    private void index(BookDto book) {
+        long bookId = Long.parseLong(book.getId());
+        remove(bookId);
+        int doc = docCount++;
+        if (doc == bookIds.length) {
+            bookIds = Arrays.copyOf(bookIds, doc * 2);
+            types = Arrays.copyOf(types, doc * 2);
+            bands = Arrays.copyOf(bands, doc * 2);
+        }
+        bookIds[doc] = bookId;
+        types[doc] = typeOrdinal(book.getType());
+        bands[doc] = priceBands.bandOf(book.getBookPrice());
+        live.set(doc);
+        liveCount++;
+        docsByBookId.put(bookId, doc);
+
+        addField(doc, book.getBookName(), NAME_WEIGHT);
+        addField(doc, book.getAuthor(), AUTHOR_WEIGHT);
+        addField(doc, book.getType(), TYPE_WEIGHT);
+        addField(doc, book.getBookDescription(), DESCRIPTION_WEIGHT);
+    }
+
+    private void addField(int doc, String text, float weight) {
+        for (String token : tokenize(text)) {
+            terms.computeIfAbsent(token, t -> new Postings()).add(doc, weight);
+        }
+    }
+
+    private void remove(long bookId) {
+        Integer doc = docsByBookId.remove(bookId);
+        if (doc != null) {
+            live.clear(doc);
+            liveCount--;
+            deadCount++;
+        }
+    }
+
+    /**
+     * Drops the dead documents and numbers the live ones from 0 in their order, so the document slots do not grow
+     * with every update.
+     */
+    private void compact() {
+        int[] renumbered = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (live.get(doc)) {
+                renumbered[doc] = next;
+                bookIds[next] = bookIds[doc];
+                types[next] = types[doc];
+                bands[next] = bands[doc];
+                docsByBookId.put(bookIds[next], next);
+                next++;
+            } else {
+                renumbered[doc] = -1;
+            }
+        }
+        Iterator<Postings> postings = terms.values().iterator();
+        while (postings.hasNext()) {
+            Postings p = postings.next();
+            p.renumber(renumbered);
+            if (p.size() == 0) {
+                postings.remove();
+            }
+        }
+        live.clear();
+        live.set(0, next);
+        docCount = next;
+        log.info("Compacted the search index, dropped {} dead books", deadCount);
+        deadCount = 0;
+    }
+
+    /**
+     * @return document slots in use, live and dead
+     */
+    int documents() {
+        return docCount;
+    }
+
+    private int typeOrdinal(String type) {
+        return typeOrdinals.computeIfAbsent(type, t -> {
+            typeNames.add(t);
+            return typeNames.size() - 1;
+        });
+    }
+
+    private SearchHits doSearch(SearchQuery query) {
+        int typeFilter = -1;
+        if (query.getType() != null) {
+            Integer ordinal = typeOrdinals.get(query.getType());
+            typeFilter = ordinal == null ? Integer.MIN_VALUE : ordinal;
+        }
+        int bandFilter = query.getPriceBand() == null ? -1 : priceBands.indexOf(query.getPriceBand());
+
+        List<Postings> matchers = new ArrayList<>(query.getTerms().size());
+        boolean truncated = false;
+        for (SearchQuery.Term term : query.getTerms()) {
+            Postings postings;
+            if (term.isPrefix()) {
+                List<Postings> expansions = expansions(term.getText());
+                if (expansions.size() > searchConfig.getMaxPrefixExpansions()) {
+                    truncated = true;
+                    expansions = expansions.subList(0, searchConfig.getMaxPrefixExpansions());
+                }
+                postings = union(expansions);
+            } else {
+                postings = terms.get(term.getText());
+            }
+            if (postings == null || postings.size() == 0) {
+                return SearchHits.EMPTY;
+            }
+            matchers.add(postings);
+        }
+        matchers.sort(Comparator.comparingInt(Postings::size));
+        float[] idf = new float[matchers.size()];
+        for (int i = 0; i < idf.length; i++) {
+            idf[i] = (float) Math.log(1 + (double) Math.max(liveCount, 1) / matchers.get(i).size());
+        }
+
+        Collector collector = new Collector(query.getLimit(), typeFilter, bandFilter);
+        if (matchers.isEmpty()) {
+            for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+                collector.collect(doc, 0f);
+            }
+        } else {
+            Postings lead = matchers.get(0);
+            int[] cursors = new int[matchers.size()];
+            candidates:
+            for (int i = 0; i < lead.size(); i++) {
+                int doc = lead.doc(i);
+                if (!live.get(doc)) {
+                    continue;
+                }
+                float score = idf[0] * lead.weight(i);
+                for (int m = 1; m < matchers.size(); m++) {
+                    Postings other = matchers.get(m);
+                    int position = other.advance(cursors[m], doc);
+                    cursors[m] = position;
+                    if (position == other.size()) {
+                        break candidates;
+                    }
+                    if (other.doc(position) != doc) {
+                        continue candidates;
+                    }
+                    score += idf[m] * other.weight(position);
+                }
+                collector.collect(doc, score);
+            }
+        }
+        return collector.hits(truncated);
+    }
+
+    /**
+     * @return postings of the indexed terms starting with the prefix in alphabetical order, one more than the
+     * expansions searched when there are more
+     */
+    private List<Postings> expansions(String prefix) {
+        List<Postings> expansions = new ArrayList<>();
+        for (Postings postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            expansions.add(postings);
+            if (expansions.size() > searchConfig.getMaxPrefixExpansions()) {
+                break;
+            }
+        }
+        return expansions;
+    }
+
+    private static Postings union(List<Postings> expansions) {
+        if (expansions.size() <= 1) {
+            return expansions.isEmpty() ? null : expansions.get(0);
+        }
+        int totalSize = 0;
+        for (Postings postings : expansions) {
+            totalSize += postings.size();
+        }
+        return Postings.union(expansions, totalSize);
+    }
+
+    /**
+     * Counts facets of every match and keeps the best limit matches passing the filters in a min-heap.
+     */
+    private class Collector {
+
+        private final int limit;
+        private final int typeFilter;
+        private final int bandFilter;
+        private final long[] typeCounts = new long[typeNames.size()];
+        private final long[] bandCounts = new long[priceBands.count()];
+        private final PriorityQueue<Hit> best;
+        private long total;
+
+        Collector(int limit, int typeFilter, int bandFilter) {
+            this.limit = limit;
+            this.typeFilter = typeFilter;
+            this.bandFilter = bandFilter;
+            this.best = new PriorityQueue<>(limit + 1, Hit.WORST_FIRST);
+        }
+
+        void collect(int doc, float score) {
+            typeCounts[types[doc]]++;
+            bandCounts[bands[doc]]++;
+            if (typeFilter != -1 && types[doc] != typeFilter) {
+                return;
+            }
+            if (bandFilter >= 0 && bands[doc] != bandFilter) {
+                return;
+            }
+            total++;
+            if (best.size() < limit) {
+                best.add(new Hit(bookIds[doc], score));
+            } else if (limit > 0 && best.peek().isWorseThan(bookIds[doc], score)) {
+                best.poll();
+                best.add(new Hit(bookIds[doc], score));
+            }
+        }
+
+        SearchHits hits(boolean truncated) {
+            List<Hit> ranked = new ArrayList<>(best);
+            ranked.sort(Hit.WORST_FIRST.reversed());
+            List<Long> ids = new ArrayList<>(ranked.size());
+            for (Hit hit : ranked) {
+                ids.add(hit.bookId);
+            }
+            Map<String, Long> typeFacet = new LinkedHashMap<>();
+            for (int t = 0; t < typeCounts.length; t++) {
+                if (typeCounts[t] > 0) {
+                    typeFacet.put(typeNames.get(t), typeCounts[t]);
+                }
+            }
+            Map<String, Long> bandFacet = new LinkedHashMap<>();
+            for (int b = 0; b < bandCounts.length; b++) {
+                if (bandCounts[b] > 0) {
+                    bandFacet.put(priceBands.label(b), bandCounts[b]);
+                }
+            }
+            return new SearchHits(total, ids, typeFacet, bandFacet, truncated);
+        }
+    }
+
+    private static class Hit {
+
+        /** lower score first, then higher book id, so the older book wins a tie */
+        static final Comparator<Hit> WORST_FIRST = Comparator.<Hit>comparingDouble(hit -> hit.score)
+                .thenComparing(Comparator.<Hit>comparingLong(hit -> hit.bookId).reversed());
+
+        final long bookId;
+        final float score;
+
+        Hit(long bookId, float score) {
+            this.bookId = bookId;
+            this.score = score;
+        }
+
+        boolean isWorseThan(long otherBookId, float otherScore) {
+            return score < otherScore || (score == otherScore && bookId > otherBookId);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.book.search;
+
+import java.util.Arrays;
+
+/**
+ * Documents containing one term, in increasing document order, with the weight of the term in each of them.
+ */
+final class Postings {
+
+    private int[] docs;
+    private float[] weights;
+    private int size;
+
+    Postings() {
+        this(4);
+    }
+
+    private Postings(int capacity) {
+        docs = new int[capacity];
+        weights = new float[capacity];
+    }
+
+    /**
+     * Documents are added in increasing order. Adding the last document again adds to its weight.
+     */
+    void add(int doc, float weight) {
+        if (size > 0 && docs[size - 1] == doc) {
+            weights[size - 1] += weight;
+            return;
+        }
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        docs[size] = doc;
+        weights[size] = weight;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int doc(int index) {
+        return docs[index];
+    }
+
+    float weight(int index) {
+        return weights[index];
+    }
+
+    /**
+     * Gallops from index to the first position holding a document &gt;= target.
+     * @return that position, or size when there is none
+     */
+    int advance(int index, int target) {
+        if (index >= size || docs[index] >= target) {
+            return index;
+        }
+        int step = 1;
+        int low = index;
+        int high = index + 1;
+        while (high < size && docs[high] < target) {
+            low = high;
+            step <<= 1;
+            high = index + step;
+        }
+        int found = Arrays.binarySearch(docs, low + 1, Math.min(high + 1, size), target);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    /**
+     * Gives every document its new number and drops the ones numbered -1. The new numbers must keep the order of
+     * the documents.
+     */
+    void renumber(int[] renumbered) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int doc = renumbered[docs[i]];
+            if (doc >= 0) {
+                docs[kept] = doc;
+                weights[kept] = weights[i];
+                kept++;
+            }
+        }
+        size = kept;
+        if (docs.length > 16 && size < docs.length / 4) {
+            docs = Arrays.copyOf(docs, Math.max(4, size * 2));
+            weights = Arrays.copyOf(weights, docs.length);
+        }
+    }
+
+    /**
+     * Union of several postings, keeping the highest weight of a document.
+     */
+    static Postings union(Iterable<Postings> postings, int totalSize) {
+        long[] packed = new long[totalSize];
+        int n = 0;
+        for (Postings p : postings) {
+            for (int i = 0; i < p.size; i++) {
+                packed[n++] = ((long) p.docs[i] << 32) | (Float.floatToIntBits(p.weights[i]) & 0xffffffffL);
+            }
+        }
+        Arrays.sort(packed, 0, n);
+        Postings union = new Postings(Math.max(4, n));
+        for (int i = 0; i < n; i++) {
+            int doc = (int) (packed[i] >>> 32);
+            float weight = Float.intBitsToFloat((int) packed[i]);
+            if (union.size > 0 && union.docs[union.size - 1] == doc) {
+                union.weights[union.size - 1] = Math.max(union.weights[union.size - 1], weight);
+            } else {
+                union.docs[union.size] = doc;
+                union.weights[union.size] = weight;
+                union.size++;
+            }
+        }
+        return union;
+    }
+}
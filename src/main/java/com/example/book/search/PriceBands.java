@@ -0,0 +1,54 @@
+package com.example.book.search;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Price ranges used as facet. Band i holds prices from bound i-1 inclusive to bound i exclusive.
+ */
+class PriceBands {
+
+    private final BigDecimal[] bounds;
+    private final List<String> labels;
+
+    PriceBands(List<BigDecimal> bounds) {
+        this.bounds = bounds.stream().sorted().toArray(BigDecimal[]::new);
+        List<String> names = new ArrayList<>(this.bounds.length + 1);
+        String lower = "0";
+        for (BigDecimal bound : this.bounds) {
+            names.add(lower + "-" + bound.toPlainString());
+            lower = bound.toPlainString();
+        }
+        names.add(lower + "+");
+        this.labels = Collections.unmodifiableList(names);
+    }
+
+    int bandOf(BigDecimal price) {
+        int band = 0;
+        while (price != null && band < bounds.length && price.compareTo(bounds[band]) >= 0) {
+            band++;
+        }
+        return band;
+    }
+
+    int count() {
+        return labels.size();
+    }
+
+    String label(int band) {
+        return labels.get(band);
+    }
+
+    /**
+     * @return the band with the given label, or -1 when there is none
+     */
+    int indexOf(String label) {
+        return labels.indexOf(label);
+    }
+
+    List<String> labels() {
+        return labels;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.book.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Best matches of a search, best first, with the number of matches and the facet counts.
+ * Facets count every book matching the terms, before the type and price band filters are applied.
+ * When a prefix matches more indexed terms than {@link com.example.book.config.SearchConfig#getMaxPrefixExpansions()},
+ * only the first ones are searched and the hits are truncated: the total and the facets then count fewer books than
+ * the prefix matches.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SearchHits {
+
+    static final SearchHits EMPTY = new SearchHits(0, Collections.emptyList(), Collections.emptyMap(),
+            Collections.emptyMap(), false);
+
+    private final long total;
+    private final List<Long> bookIds;
+    private final Map<String, Long> types;
+    private final Map<String, Long> priceBands;
+    private final boolean truncated;
+}
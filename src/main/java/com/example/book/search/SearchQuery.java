@@ -0,0 +1,54 @@
+package com.example.book.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Terms a book must all contain, optional facet filters and the number of hits wanted.
+ * A word ending with '*' is a prefix term and matches every indexed term starting with it.
+ */
+@Getter
+@ToString
+public class SearchQuery {
+
+    private final List<Term> terms;
+    private final String type;
+    private final String priceBand;
+    private final int limit;
+
+    public SearchQuery(String text, String type, String priceBand, int limit) {
+        this.terms = parse(text);
+        this.type = type;
+        this.priceBand = priceBand;
+        this.limit = limit;
+    }
+
+    private static List<Term> parse(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        List<Term> terms = new ArrayList<>();
+        for (String word : text.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            List<String> tokens = BookSearchIndex.tokenize(prefix ? word.substring(0, word.length() - 1) : word);
+            for (int i = 0; i < tokens.size(); i++) {
+                terms.add(new Term(tokens.get(i), prefix && i == tokens.size() - 1));
+            }
+        }
+        return terms;
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Term {
+
+        private final String text;
+        private final boolean prefix;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.book.service;
+
+import com.example.book.model.CatalogFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface BookExportService {
+
+    /**
+     * Writes every active book to the stream in the given format while reading them from the database.
+     * The stream is flushed but not closed.
+     */
+    void exportBooks(CatalogFormat format, OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,127 @@
+package com.example.book.service;
+
+import com.example.book.config.ExportConfig;
+import com.example.book.dto.BookDto;
+import com.example.book.entity.Book;
+import com.example.book.mapper.BookMapper;
+import com.example.book.model.BookStatus;
+import com.example.book.model.CatalogFormat;
+import com.example.book.repository.BookRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class BookExportServiceImpl implements BookExportService {
+
+	private final BookRepository repository;
+	private final BookMapper bookMapper;
+	private final ObjectMapper objectMapper;
+	private final EntityManager entityManager;
+	private final TransactionTemplate readOnlyTransaction;
+	private final ExportConfig exportConfig;
+	private final CsvMapper csvMapper = CsvMapper.builder()
+			.disable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+			.build();
+
+	public BookExportServiceImpl(BookRepository repository, BookMapper bookMapper, ObjectMapper objectMapper,
+								 EntityManager entityManager, PlatformTransactionManager transactionManager,
+								 ExportConfig exportConfig) {
+		this.repository = repository;
+		this.bookMapper = bookMapper;
+		this.objectMapper = objectMapper;
+		this.entityManager = entityManager;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.exportConfig = exportConfig;
+	}
+
+	@Override
+	public void exportBooks(CatalogFormat format, OutputStream outputStream) throws IOException {
+		try (BookWriter writer = format == CatalogFormat.CSV ? csvWriter(outputStream) : ndjsonWriter(outputStream)) {
+			long exported = readOnlyTransaction.execute(status -> {
+				try (Stream<Book> books = repository.streamByStatus(BookStatus.ACTIVE)) {
+					return writeAll(books.iterator(), writer);
+				}
+			});
+			log.info("Exported {} books as {}", exported, format);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private long writeAll(Iterator<Book> books, BookWriter writer) {
+		int clearInterval = exportConfig.getClearInterval();
+		long count = 0;
+		while (books.hasNext()) {
+			Book book = books.next();
+			try {
+				writer.write(bookMapper.toDto(book));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			if (++count % clearInterval == 0) {
+				entityManager.clear();
+			}
+		}
+		return count;
+	}
+
+	private BookWriter ndjsonWriter(OutputStream outputStream) throws IOException {
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		generator.setRootValueSeparator(null);
+		return new BookWriter() {
+			@Override
+			public void write(BookDto book) throws IOException {
+				generator.writeObject(book);
+				generator.writeRaw('\n');
+			}
+
+			@Override
+			public void close() throws IOException {
+				generator.close();
+			}
+		};
+	}
+
+	private BookWriter csvWriter(OutputStream outputStream) throws IOException {
+		SequenceWriter sequenceWriter = csvMapper.writerFor(BookDto.class)
+				.with(csvMapper.schemaFor(BookDto.class).withHeader())
+				.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+				.writeValues(outputStream);
+		return new BookWriter() {
+			@Override
+			public void write(BookDto book) throws IOException {
+				sequenceWriter.write(book);
+			}
+
+			@Override
+			public void close() throws IOException {
+				sequenceWriter.close();
+			}
+		};
+	}
+
+	private interface BookWriter extends AutoCloseable {
+
+		void write(BookDto book) throws IOException;
+
+		@Override
+		void close() throws IOException;
+	}
+}
@@ -0,0 +1,15 @@
+package com.example.book.service;
+
+import com.example.book.dto.response.BookImportResponseDto;
+import com.example.book.model.CatalogFormat;
+
+import java.io.InputStream;
+
+public interface BookImportService {
+
+    /**
+     * Reads books from the stream and writes them in batches. Invalid and duplicate rows are reported and skipped,
+     * they never abort the import.
+     */
+    BookImportResponseDto importBooks(InputStream inputStream, CatalogFormat format);
+}
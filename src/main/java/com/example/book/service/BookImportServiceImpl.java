@@ -0,0 +1,315 @@
+package com.example.book.service;
+
+import com.example.book.config.ImportConfig;
+import com.example.book.dto.request.BookRequestDto;
+import com.example.book.dto.response.BookImportErrorDto;
+import com.example.book.dto.response.BookImportResponseDto;
+import com.example.book.entity.Book;
+import com.example.book.exception.BusinessException;
+import com.example.book.mapper.BookMapper;
+import com.example.book.model.CatalogFormat;
+import com.example.book.repository.BookRepository;
+import com.example.book.search.BookChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+	private static final String DUPLICATE_ISBN_MSG = "duplicate isbn";
+	private static final String UNREADABLE_MSG = "could not read the rest of the import: ";
+
+	private final BookRepository repository;
+	private final BookMapper bookMapper;
+	private final ObjectMapper objectMapper;
+	private final Validator validator;
+	private final EntityManager entityManager;
+	private final TransactionTemplate transactionTemplate;
+	private final ImportConfig importConfig;
+	private final ApplicationEventPublisher eventPublisher;
+	private final CsvMapper csvMapper = (CsvMapper) new CsvMapper()
+			.enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+			.enable(CsvParser.Feature.TRIM_SPACES)
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	public BookImportServiceImpl(BookRepository repository, BookMapper bookMapper, ObjectMapper objectMapper,
+								 Validator validator, EntityManager entityManager,
+								 TransactionTemplate transactionTemplate, ImportConfig importConfig,
+								 ApplicationEventPublisher eventPublisher) {
+		this.repository = repository;
+		this.bookMapper = bookMapper;
+		this.objectMapper = objectMapper;
+		this.validator = validator;
+		this.entityManager = entityManager;
+		this.transactionTemplate = transactionTemplate;
+		this.importConfig = importConfig;
+		this.eventPublisher = eventPublisher;
+	}
+
+	@Override
+	public BookImportResponseDto importBooks(InputStream inputStream, CatalogFormat format) {
+		ImportReport report = new ImportReport(importConfig.getMaxReportedErrors());
+		ImportBatch batch = new ImportBatch(report);
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+			if (format == CatalogFormat.CSV) {
+				readCsv(reader, batch, report);
+			} else {
+				readNdjson(reader, batch, report);
+			}
+			batch.flush();
+		} catch (IOException e) {
+			log.error("Error reading book import - {}", e.getMessage(), e);
+			throw new BusinessException(HttpStatus.BAD_REQUEST, "Could not read the import: " + e.getMessage());
+		}
+		log.info("Imported {} books, rejected {}", report.imported, report.failed);
+		return report.toResponse();
+	}
+
+	private void readNdjson(BufferedReader reader, ImportBatch batch, ImportReport report) {
+		ObjectReader rowReader = objectMapper.readerFor(BookRequestDto.class);
+		long lineNumber = 0;
+		String line;
+		while ((line = readLine(reader, lineNumber + 1, report)) != null) {
+			lineNumber++;
+			if (line.isBlank()) {
+				continue;
+			}
+			BookRequestDto request;
+			try {
+				request = rowReader.readValue(line);
+			} catch (JsonProcessingException e) {
+				report.reject(new ImportRow(lineNumber, null), "malformed row: " + e.getOriginalMessage());
+				continue;
+			}
+			batch.add(new ImportRow(lineNumber, request));
+		}
+	}
+
+	/**
+	 * @return the next line, null at the end of the import or when it cannot be read any further, which is reported
+	 * as a rejected row so that the rows already written are not lost with the error
+	 */
+	private static String readLine(BufferedReader reader, long lineNumber, ImportReport report) {
+		try {
+			return reader.readLine();
+		} catch (IOException e) {
+			report.reject(new ImportRow(lineNumber, null), UNREADABLE_MSG + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the rows with the csv parser, so that quoted values may hold commas, quotes and line breaks. A row is
+	 * numbered by the line it starts on. When the parser cannot go on, the row it stopped at is rejected and the rows
+	 * read before it are still written.
+	 */
+	private void readCsv(BufferedReader reader, ImportBatch batch, ImportReport report) throws IOException {
+		MappingIterator<BookRequestDto> rows = csvMapper.readerFor(BookRequestDto.class)
+				.with(CsvSchema.emptySchema().withHeader())
+				.readValues(reader);
+		if (!rows.hasNextValue() && ((CsvParser) rows.getParser()).getSchema().size() == 0) {
+			throw new BusinessException(HttpStatus.BAD_REQUEST, "csv header line is missing");
+		}
+		while (hasNextRow(rows, report)) {
+			long lineNumber = rows.getParser().getCurrentLocation().getLineNr();
+			try {
+				batch.add(new ImportRow(lineNumber, rows.nextValue()));
+			} catch (JsonProcessingException e) {
+				// the iterator skips the rest of the row
+				report.reject(new ImportRow(lineNumber, null), "malformed row: " + e.getOriginalMessage());
+			} catch (IOException e) {
+				report.reject(new ImportRow(lineNumber, null), UNREADABLE_MSG + e.getMessage());
+				return;
+			}
+		}
+	}
+
+	private static boolean hasNextRow(MappingIterator<BookRequestDto> rows, ImportReport report) {
+		try {
+			return rows.hasNextValue();
+		} catch (IOException e) {
+			long lineNumber = rows.getParser().getCurrentLocation().getLineNr();
+			String message = e instanceof JsonProcessingException
+					? ((JsonProcessingException) e).getOriginalMessage() : e.getMessage();
+			report.reject(new ImportRow(lineNumber, null), UNREADABLE_MSG + message);
+			return false;
+		}
+	}
+
+	/**
+	 * @return whether the request of the row is valid, an invalid row is rejected
+	 */
+	private boolean validate(ImportRow row, ImportReport report) {
+		Set<ConstraintViolation<BookRequestDto>> violations = validator.validate(row.request);
+		if (!violations.isEmpty()) {
+			report.reject(row, violations.stream()
+					.map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+					.sorted()
+					.collect(Collectors.joining(", ")));
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the rows whose isbn is not taken yet in one transaction and one JDBC batch. When the batch fails
+	 * because another writer took an isbn in the meantime, the rows are retried one by one to find the culprit.
+	 */
+	private void writeBatch(List<ImportRow> batch, ImportReport report) {
+		Set<String> existingIsbns = new HashSet<>(repository.findExistingIsbns(
+				batch.stream().map(row -> row.request.getIsbn()).collect(Collectors.toList())));
+
+		List<ImportRow> accepted = new ArrayList<>(batch.size());
+		for (ImportRow row : batch) {
+			if (existingIsbns.contains(row.request.getIsbn())) {
+				report.reject(row, DUPLICATE_ISBN_MSG);
+			} else {
+				accepted.add(row);
+			}
+		}
+		if (accepted.isEmpty()) {
+			return;
+		}
+
+		List<Book> books = new ArrayList<>(accepted.size());
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				entityManager.unwrap(Session.class).setJdbcBatchSize(importConfig.getBatchSize());
+				for (ImportRow row : accepted) {
+					Book book = bookMapper.fromBookRequestDto(row.request);
+					entityManager.persist(book);
+					books.add(book);
+				}
+				entityManager.flush();
+				entityManager.clear();
+			});
+			report.imported += accepted.size();
+			books.forEach(this::publishSaved);
+		} catch (PersistenceException | DataAccessException e) {
+			log.warn("Book import batch failed, retrying its {} rows one by one - {}", accepted.size(), e.getMessage());
+			for (ImportRow row : accepted) {
+				writeRow(row, report);
+			}
+		}
+	}
+
+	/**
+	 * Writes a row of a failed batch. A row breaking a constraint is rejected: as a duplicate when its isbn is taken
+	 * by now, with the error of the database otherwise. Other database errors abort the import.
+	 */
+	private void writeRow(ImportRow row, ImportReport report) {
+		try {
+			publishSaved(repository.save(bookMapper.fromBookRequestDto(row.request)));
+			report.imported++;
+		} catch (DataIntegrityViolationException e) {
+			if (repository.findExistingIsbns(List.of(row.request.getIsbn())).isEmpty()) {
+				report.reject(row, "rejected by the database: " + e.getMostSpecificCause().getMessage());
+			} else {
+				report.reject(row, DUPLICATE_ISBN_MSG);
+			}
+		}
+	}
+
+	private void publishSaved(Book book) {
+		eventPublisher.publishEvent(BookChangedEvent.saved(bookMapper.toDto(book)));
+	}
+
+	/**
+	 * Valid rows waiting to be written, flushed every {@link ImportConfig#getBatchSize()} rows.
+	 */
+	private class ImportBatch {
+
+		private final ImportReport report;
+		private final List<ImportRow> rows = new ArrayList<>(importConfig.getBatchSize());
+		private final Set<String> isbns = new HashSet<>();
+
+		ImportBatch(ImportReport report) {
+			this.report = report;
+		}
+
+		void add(ImportRow row) {
+			if (!validate(row, report)) {
+				return;
+			}
+			if (!isbns.add(row.request.getIsbn())) {
+				report.reject(row, DUPLICATE_ISBN_MSG);
+				return;
+			}
+			rows.add(row);
+			if (rows.size() == importConfig.getBatchSize()) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if (!rows.isEmpty()) {
+				writeBatch(rows, report);
+				rows.clear();
+				isbns.clear();
+			}
+		}
+	}
+
+	private static class ImportRow {
+
+		private final long line;
+		private final BookRequestDto request;
+
+		ImportRow(long line, BookRequestDto request) {
+			this.line = line;
+			this.request = request;
+		}
+	}
+
+	private static class ImportReport {
+
+		private final int maxReportedErrors;
+		private final List<BookImportErrorDto> errors = new ArrayList<>();
+		private long imported;
+		private long failed;
+
+		ImportReport(int maxReportedErrors) {
+			this.maxReportedErrors = maxReportedErrors;
+		}
+
+		void reject(ImportRow row, String message) {
+			failed++;
+			if (errors.size() < maxReportedErrors) {
+				errors.add(new BookImportErrorDto(row.line, row.request == null ? null : row.request.getIsbn(), message));
+			}
+		}
+
+		BookImportResponseDto toResponse() {
+			errors.sort(Comparator.comparingLong(BookImportErrorDto::getLine));
+			return new BookImportResponseDto(imported, failed, errors);
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.example.book.service;
+
+import com.example.book.dto.response.BookSearchResponseDto;
+
+public interface BookSearchService {
+
+    /**
+     * Full-text search over the books on sale, ranked best first, with type and price band facets.
+     */
+    BookSearchResponseDto search(String query, String type, String priceBand, Integer limit);
+}
@@ -0,0 +1,90 @@
+package com.example.book.service;
+
+import com.example.book.cache.BookCache;
+import com.example.book.config.SearchConfig;
+import com.example.book.dto.BookDto;
+import com.example.book.dto.response.BookSearchResponseDto;
+import com.example.book.exception.BusinessException;
+import com.example.book.model.BookStatus;
+import com.example.book.repository.BookRepository;
+import com.example.book.search.BookSearchIndex;
+import com.example.book.search.SearchHits;
+import com.example.book.search.SearchQuery;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class BookSearchServiceImpl implements BookSearchService {
+
+	private final BookSearchIndex searchIndex;
+	private final BookRepository repository;
+	private final BookCache bookCache;
+	private final SearchConfig searchConfig;
+
+	public BookSearchServiceImpl(BookSearchIndex searchIndex, BookRepository repository, BookCache bookCache,
+								 SearchConfig searchConfig) {
+		this.searchIndex = searchIndex;
+		this.repository = repository;
+		this.bookCache = bookCache;
+		this.searchConfig = searchConfig;
+	}
+
+	@Override
+	public BookSearchResponseDto search(String query, String type, String priceBand, Integer limit) {
+		if (priceBand != null && !searchIndex.priceBandLabels().contains(priceBand)) {
+			throw new BusinessException(HttpStatus.BAD_REQUEST,
+					"priceBand must be one of " + searchIndex.priceBandLabels());
+		}
+		SearchHits hits = searchIndex.search(new SearchQuery(query, type, priceBand, resolveLimit(limit)));
+		return new BookSearchResponseDto(hits.getTotal(), loadBooks(hits.getBookIds()), hits.getTypes(),
+				hits.getPriceBands(), hits.isTruncated());
+	}
+
+	private int resolveLimit(Integer limit) {
+		if (limit == null) {
+			return searchConfig.getDefaultLimit();
+		}
+		if (limit < 1 || limit > searchConfig.getMaxLimit()) {
+			throw new BusinessException(HttpStatus.BAD_REQUEST,
+					"limit must be between 1 and " + searchConfig.getMaxLimit());
+		}
+		return limit;
+	}
+
+	/**
+	 * Books of the hits in rank order, from the cache first and with one query for the rest.
+	 * A book deleted since it was found is left out.
+	 */
+	private List<BookDto> loadBooks(List<Long> ids) {
+		Map<Long, BookDto> books = new HashMap<>();
+		List<Long> misses = new ArrayList<>();
+		for (Long id : ids) {
+			BookDto cached = bookCache.get(id);
+			if (cached != null) {
+				books.put(id, cached);
+			} else {
+				misses.add(id);
+			}
+		}
+		if (!misses.isEmpty()) {
+			for (BookDto book : repository.findDtosByIds(misses, BookStatus.ACTIVE)) {
+				long id = Long.parseLong(book.getId());
+				books.put(id, book);
+				bookCache.putLoaded(id, book);
+			}
+		}
+		List<BookDto> ranked = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			BookDto book = books.get(id);
+			if (book != null) {
+				ranked.add(book);
+			}
+		}
+		return ranked;
+	}
+}
@@ -1,24 +1,95 @@
 package com.example.book.service;
 
 import com.example.book.dto.BookDto;
+import com.example.book.dto.request.BookPatchRequestDto;
 import com.example.book.dto.request.BookRequestDto;
 import com.example.book.dto.request.CheckoutBookRequestDto;
+import com.example.book.dto.response.BookBatchResponseDto;
+import com.example.book.dto.response.BookPageDto;
+import com.example.book.dto.response.CheckoutBatchResultDto;
 import com.example.book.dto.response.CheckoutBookResponse;
 import com.example.book.dto.response.CreateBookResponseDto;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface BookService {
 
     CreateBookResponseDto saveBook(BookRequestDto book);
 
-    List<BookDto> getBooks();
+    /**
+     * @param after id of the last book of the previous page, null for the first page
+     * @param limit requested page size, null for the configured default
+     * @return the next page of active books ordered by id
+     */
+    BookPageDto getBooks(Long after, Integer limit);
+
+    /**
+     * Same as {@link #getBooks(Long, Integer)}, restricted to books of the given type.
+     */
+    BookPageDto getBooksByType(String type, Long after, Integer limit);
+
+    /**
+     * Same as {@link #getBooks(Long, Integer)}, restricted to books of the given author.
+     */
+    BookPageDto getBooksByAuthor(String author, Long after, Integer limit);
+
+    /**
+     * @param minPrice lowest price included, null for no lower bound
+     * @param maxPrice highest price included, null for no upper bound
+     * @param after nextCursor of the previous page, null for the first page
+     * @return the next page of active books in the price range, ordered by price then id
+     */
+    BookPageDto getBooksByPrice(BigDecimal minPrice, BigDecimal maxPrice, String after, Integer limit);
+
+    /**
+     * Passes every active book to the action in id order, reading the catalog in fixed size chunks.
+     */
+    void forEachBook(Consumer<BookDto> action);
 
     BookDto getBook(Long id);
 
+    /**
+     * Reads the books from the cache and the rest with one query. Repeated ids are read once. Fails with 400 when
+     * there are no ids or more than book.pagination.maxIds.
+     */
+    BookBatchResponseDto getBooksByIds(List<Long> ids);
+
     void deleteBook(Long id);
 
-    BookDto updateBook(Long id, BookRequestDto request);
+    /**
+     * Replaces every field of an active book with a single conditional UPDATE.
+     *
+     * @param expectedVersions versions the client last read, any of which may be updated, null to overwrite whatever
+     * version is stored
+     * @return the updated book with its new version
+     */
+    BookDto updateBook(Long id, BookRequestDto request, Set<Long> expectedVersions);
+
+    /**
+     * Same as {@link #updateBook(Long, BookRequestDto, Set)}, only for the fields present in the request.
+     */
+    BookDto patchBook(Long id, BookPatchRequestDto request, Set<Long> expectedVersions);
 
     CheckoutBookResponse calculateBookPayment(CheckoutBookRequestDto request);
+
+    /**
+     * Same as {@link #calculateBookPayment(CheckoutBookRequestDto)} without blocking the calling thread on the
+     * database. Invalid requests and carts priced without a query complete at once; carts with books missing from the
+     * book cache complete on a jdbc thread.
+     */
+    CompletableFuture<CheckoutBookResponse> calculateBookPaymentAsync(CheckoutBookRequestDto request);
+
+    /**
+     * Prices every cart as {@link #calculateBookPayment(CheckoutBookRequestDto)} would. A cart that cannot be priced
+     * gets the status and message of its error instead of failing the batch. The carts are only priced: no copies are
+     * reserved and no order is recorded for them.
+     *
+     * @param requests valid carts
+     * @return one result per cart, in the same order
+     */
+    List<CheckoutBatchResultDto> calculateBookPayments(List<CheckoutBookRequestDto> requests);
 }
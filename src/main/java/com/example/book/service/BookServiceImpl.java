@@ -1,137 +1,587 @@
 package com.example.book.service;
 
+import com.example.book.cache.BookCache;
+import com.example.book.cache.BookTombstones;
+import com.example.book.config.CheckoutConfig;
 import com.example.book.config.DiscountConfig;
+import com.example.book.config.PaginationConfig;
 import com.example.book.dto.BookDto;
+import com.example.book.dto.request.BookPatchRequestDto;
 import com.example.book.dto.request.BookRequestDto;
 import com.example.book.dto.request.CheckoutBookRequestDto;
+import com.example.book.dto.response.BookBatchResponseDto;
+import com.example.book.dto.response.BookPageDto;
+import com.example.book.dto.response.CheckoutBatchResultDto;
 import com.example.book.dto.response.CheckoutBookResponse;
 import com.example.book.dto.response.CreateBookResponseDto;
 import com.example.book.entity.Book;
 import com.example.book.exception.BusinessException;
+import com.example.book.execution.JdbcExecutor;
+import com.example.book.execution.PricingPool;
 import com.example.book.mapper.BookMapper;
 import com.example.book.model.BookStatus;
 import com.example.book.model.CheckedOutBook;
-import com.example.book.model.DiscountRule;
-import com.example.book.model.PromotionRule;
+import com.example.book.model.MoneyArithmetic;
+import com.example.book.model.PricingMode;
+import com.example.book.model.PromotionIndex;
+import com.example.book.model.Reservation;
+import com.example.book.pricing.CentsPricing;
+import com.example.book.pricing.DecimalPricing;
 import com.example.book.repository.BookRepository;
+import com.example.book.search.BookChangedEvent;
+import com.example.book.util.BookUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class BookServiceImpl implements BookService {
 
 	private static final String BOOK_UNAVAILABLE_MSG = "Requested book is not available in the store!!!";
+	private static final String BOOK_DELETED_MSG = "This book is no longer sold here";
+	private static final String BOOK_NOT_UPDATABLE_MSG = "This book is no longer sold here. Cannot update it";
+	private static final String BOOK_MODIFIED_MSG = "Book was modified since it was read";
+	private static final char PRICE_CURSOR_SEPARATOR = ':';
+	/** upper bound of a price range open at the top, the largest value of a decimal(19,2) column */
+	private static final BigDecimal MAX_PRICE = new BigDecimal("99999999999999999.99");
 
 	private final BookRepository repository;
 	private final BookMapper bookMapper;
 	private final DiscountConfig discountConfig;
+	private final PaginationConfig paginationConfig;
+	private final BookCache bookCache;
+	private final BookTombstones tombstones;
+	private final CheckoutConfig checkoutConfig;
+	private final JdbcExecutor jdbcExecutor;
+	private final PricingPool pricingPool;
+	private final InventoryService inventoryService;
+	private final OrderService orderService;
+	private final ApplicationEventPublisher eventPublisher;
 
-	public BookServiceImpl(BookRepository repository, BookMapper bookMapper, DiscountConfig discountConfig) {
+	public BookServiceImpl(BookRepository repository, BookMapper bookMapper, DiscountConfig discountConfig,
+						   PaginationConfig paginationConfig, BookCache bookCache, BookTombstones tombstones,
+						   CheckoutConfig checkoutConfig, JdbcExecutor jdbcExecutor, PricingPool pricingPool,
+						   InventoryService inventoryService, OrderService orderService,
+						   ApplicationEventPublisher eventPublisher) {
 		this.repository = repository;
 		this.bookMapper = bookMapper;
 		this.discountConfig = discountConfig;
+		this.paginationConfig = paginationConfig;
+		this.bookCache = bookCache;
+		this.tombstones = tombstones;
+		this.checkoutConfig = checkoutConfig;
+		this.jdbcExecutor = jdbcExecutor;
+		this.pricingPool = pricingPool;
+		this.inventoryService = inventoryService;
+		this.orderService = orderService;
+		this.eventPublisher = eventPublisher;
 	}
 
 	@Override
 	public CreateBookResponseDto saveBook(BookRequestDto request) {
 		Book book = repository.save(bookMapper.fromBookRequestDto(request));
+		BookDto saved = bookMapper.toDto(book);
+		bookCache.put(book.getId(), saved);
+		eventPublisher.publishEvent(BookChangedEvent.saved(saved));
 		return new CreateBookResponseDto(book.getId().toString());
 	}
 
 	@Override
-	public List<BookDto> getBooks() {
-		return repository.findByStatus(BookStatus.ACTIVE).stream()
-				.map(bookMapper::toDto)
-				.collect(Collectors.toList());
+	public BookPageDto getBooks(Long after, Integer limit) {
+		int pageSize = resolvePageSize(limit);
+		return page(findActiveBooks(startAfter(after), pageSize), pageSize, BookDto::getId);
+	}
+
+	@Override
+	public BookPageDto getBooksByType(String type, Long after, Integer limit) {
+		int pageSize = resolvePageSize(limit);
+		return page(repository.findDtoPageByType(BookStatus.ACTIVE, type, startAfter(after), PageRequest.of(0, pageSize)),
+				pageSize, BookDto::getId);
+	}
+
+	@Override
+	public BookPageDto getBooksByAuthor(String author, Long after, Integer limit) {
+		int pageSize = resolvePageSize(limit);
+		return page(repository.findDtoPageByAuthor(BookStatus.ACTIVE, author, startAfter(after), PageRequest.of(0, pageSize)),
+				pageSize, BookDto::getId);
+	}
+
+	@Override
+	public BookPageDto getBooksByPrice(BigDecimal minPrice, BigDecimal maxPrice, String after, Integer limit) {
+		int pageSize = resolvePageSize(limit);
+		BigDecimal from = minPrice == null ? BigDecimal.ZERO : minPrice;
+		BigDecimal to = maxPrice == null ? MAX_PRICE : maxPrice;
+		BigDecimal afterPrice = from;
+		long afterId = 0L;
+		if (after != null) {
+			int separator = after.indexOf(PRICE_CURSOR_SEPARATOR);
+			try {
+				afterPrice = new BigDecimal(after.substring(0, separator));
+				afterId = Long.parseLong(after.substring(separator + 1));
+			} catch (NumberFormatException | StringIndexOutOfBoundsException ex) {
+				throw new BusinessException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+			}
+		}
+		// starting the range at the cursor lets the index seek straight to it
+		List<BookDto> books = repository.findDtoPageByPrice(BookStatus.ACTIVE, afterPrice.max(from), to,
+				afterPrice, afterId, PageRequest.of(0, pageSize));
+		return page(books, pageSize, book -> book.getBookPrice().toPlainString() + PRICE_CURSOR_SEPARATOR + book.getId());
+	}
+
+	private static long startAfter(Long after) {
+		return after == null ? 0L : after;
+	}
+
+	/**
+	 * A full page gets the cursor of its last book, a shorter one is the last page.
+	 */
+	private static BookPageDto page(List<BookDto> books, int pageSize, Function<BookDto, String> cursor) {
+		String nextCursor = books.size() < pageSize ? null : cursor.apply(books.get(books.size() - 1));
+		return new BookPageDto(books, nextCursor);
+	}
+
+	@Override
+	public void forEachBook(Consumer<BookDto> action) {
+		int chunkSize = paginationConfig.getStreamChunkSize();
+		long after = 0L;
+		List<BookDto> chunk;
+		do {
+			chunk = findActiveBooks(after, chunkSize);
+			chunk.forEach(action);
+			if (!chunk.isEmpty()) {
+				after = Long.parseLong(chunk.get(chunk.size() - 1).getId());
+			}
+		} while (chunk.size() == chunkSize);
+	}
+
+	private List<BookDto> findActiveBooks(long after, int pageSize) {
+		return repository.findDtoPage(BookStatus.ACTIVE, after, PageRequest.of(0, pageSize));
+	}
+
+	private int resolvePageSize(Integer limit) {
+		if (limit == null) {
+			return paginationConfig.getDefaultPageSize();
+		}
+		if (limit < 1 || limit > paginationConfig.getMaxPageSize()) {
+			throw new BusinessException(HttpStatus.BAD_REQUEST,
+					"limit must be between 1 and " + paginationConfig.getMaxPageSize());
+		}
+		return limit;
 	}
 
 	@Override
 	public BookDto getBook(Long id) {
-		return repository.findById(id)
-				.map(book -> {
-					if (book.getStatus() == BookStatus.DELETED)
-						throw new BusinessException(HttpStatus.NOT_FOUND, "This book is no longer sold here");
-					return bookMapper.toDto(book);
-				}).orElseThrow(() -> new BusinessException(HttpStatus.NOT_FOUND, BOOK_UNAVAILABLE_MSG));
+		if (tombstones.contains(id)) {
+			throw new BusinessException(HttpStatus.NOT_FOUND, BOOK_DELETED_MSG);
+		}
+		// concurrent misses of a popular book share one query
+		return bookCache.get(id, this::loadBook);
+	}
+
+	private BookDto loadBook(Long id) {
+		return repository.findDtoByIdAndStatus(id, BookStatus.ACTIVE).orElseThrow(() -> {
+			if (repository.existsById(id)) {
+				tombstones.add(id);
+				return new BusinessException(HttpStatus.NOT_FOUND, BOOK_DELETED_MSG);
+			}
+			return new BusinessException(HttpStatus.NOT_FOUND, BOOK_UNAVAILABLE_MSG);
+		});
+	}
+
+	@Override
+	public BookBatchResponseDto getBooksByIds(List<Long> ids) {
+		if (ids.isEmpty() || ids.size() > paginationConfig.getMaxIds()) {
+			throw new BusinessException(HttpStatus.BAD_REQUEST,
+					"Between 1 and " + paginationConfig.getMaxIds() + " ids can be read at a time");
+		}
+		Set<Long> unique = new LinkedHashSet<>(ids);
+		Map<Long, BookDto> books = new HashMap<>();
+		List<Long> misses = new ArrayList<>();
+		for (Long id : unique) {
+			// deleted books are known to be missing without a query
+			if (tombstones.contains(id)) {
+				continue;
+			}
+			BookDto cached = bookCache.get(id);
+			if (cached != null) {
+				books.put(id, cached);
+			} else {
+				misses.add(id);
+			}
+		}
+		if (!misses.isEmpty()) {
+			for (BookDto book : repository.findDtosByIds(misses, BookStatus.ACTIVE)) {
+				long id = Long.parseLong(book.getId());
+				books.put(id, book);
+				bookCache.putLoaded(id, book);
+			}
+		}
+		List<BookDto> found = new ArrayList<>(books.size());
+		List<String> missingIds = new ArrayList<>();
+		for (Long id : unique) {
+			BookDto book = books.get(id);
+			if (book != null) {
+				found.add(book);
+			} else {
+				missingIds.add(id.toString());
+			}
+		}
+		return new BookBatchResponseDto(found, missingIds);
 	}
 
 	@Override
 	public void deleteBook(Long id) {
-		repository.findById(id)
-				.map(book -> {
-					if (book.getStatus() == BookStatus.DELETED)
-						throw new BusinessException(HttpStatus.CONFLICT, "This book is no longer sold here");
-					book.setStatus(BookStatus.DELETED);
-					repository.save(book);
-					return book;
-				}).orElseThrow(() -> new BusinessException(HttpStatus.NOT_FOUND, BOOK_UNAVAILABLE_MSG));
+		if (tombstones.contains(id)) {
+			throw new BusinessException(HttpStatus.CONFLICT, BOOK_DELETED_MSG);
+		}
+		if (repository.updateStatus(id, BookStatus.ACTIVE, BookStatus.DELETED, LocalDateTime.now()) == 0) {
+			// only a failed delete needs to read the book, to tell a missing one from a deleted one
+			if (repository.findStatusById(id).isPresent()) {
+				tombstones.add(id);
+				throw new BusinessException(HttpStatus.CONFLICT, BOOK_DELETED_MSG);
+			}
+			throw new BusinessException(HttpStatus.NOT_FOUND, BOOK_UNAVAILABLE_MSG);
+		}
+		tombstones.add(id);
+		bookCache.invalidate(id);
+		eventPublisher.publishEvent(BookChangedEvent.removed(id));
 	}
 
 	@Override
-	public BookDto updateBook(Long id, BookRequestDto request) {
-		return repository.findById(id)
-				.map(book -> {
-					if (book.getStatus() == BookStatus.DELETED) {
-						throw new BusinessException(HttpStatus.CONFLICT, "This book is no longer sold here. Cannot update it");
-					}
-					Book updatedBook = bookMapper.fromBookRequestDto(request);
-					updatedBook.setId(id);
-					repository.save(updatedBook);
-					return bookMapper.toDto(updatedBook);
-				}).orElseThrow(() -> new BusinessException(HttpStatus.NOT_FOUND, BOOK_UNAVAILABLE_MSG));
+	public BookDto updateBook(Long id, BookRequestDto request, Set<Long> expectedVersions) {
+		Map<String, Object> changes = new HashMap<>();
+		changes.put("bookName", request.getBookName());
+		changes.put("bookDescription", request.getBookDescription());
+		changes.put("author", request.getAuthor());
+		changes.put("type", request.getType());
+		changes.put("bookPrice", Book.storedPrice(request.getBookPrice()));
+		changes.put("isbn", request.getIsbn());
+		// written as the columns store them, so that the book built below matches the row
+		LocalDateTime now = Book.storedTime(LocalDateTime.now());
+		updateActiveBook(id, changes, expectedVersions, now);
+
+		BookDto updated;
+		if (expectedVersions == null || expectedVersions.size() != 1) {
+			updated = reload(id);
+		} else {
+			// every column and the new version are known, no need to read the book back
+			Book book = bookMapper.fromBookRequestDto(request);
+			book.setId(id);
+			book.setBookPrice(Book.storedPrice(request.getBookPrice()));
+			book.setVersion(expectedVersions.iterator().next() + 1);
+			book.setUpdatedOn(now);
+			updated = bookMapper.toDto(book);
+		}
+		bookCache.put(id, updated);
+		eventPublisher.publishEvent(BookChangedEvent.saved(updated));
+		return updated;
 	}
 
 	@Override
-	public CheckoutBookResponse calculateBookPayment(CheckoutBookRequestDto request) {
+	public BookDto patchBook(Long id, BookPatchRequestDto request, Set<Long> expectedVersions) {
+		Map<String, Object> changes = new HashMap<>();
+		putIfPresent(changes, "bookName", request.getBookName());
+		putIfPresent(changes, "bookDescription", request.getBookDescription());
+		putIfPresent(changes, "author", request.getAuthor());
+		putIfPresent(changes, "type", request.getType());
+		putIfPresent(changes, "bookPrice", Book.storedPrice(request.getBookPrice()));
+		putIfPresent(changes, "isbn", request.getIsbn());
+		if (changes.isEmpty()) {
+			BookDto current = repository.findDtoByIdAndStatus(id, BookStatus.ACTIVE)
+					.orElseThrow(() -> rejectedUpdate(id));
+			if (expectedVersions != null && !expectedVersions.contains(current.getVersion())) {
+				throw new BusinessException(HttpStatus.PRECONDITION_FAILED, BOOK_MODIFIED_MSG);
+			}
+			return current;
+		}
+		updateActiveBook(id, changes, expectedVersions, LocalDateTime.now());
+
+		BookDto updated = reload(id);
+		bookCache.put(id, updated);
+		eventPublisher.publishEvent(BookChangedEvent.saved(updated));
+		return updated;
+	}
+
+	private static void putIfPresent(Map<String, Object> changes, String attribute, Object value) {
+		if (value != null) {
+			changes.put(attribute, value);
+		}
+	}
+
+	private void updateActiveBook(Long id, Map<String, Object> changes, Set<Long> expectedVersions, LocalDateTime now) {
+		if (tombstones.contains(id)) {
+			throw rejectedUpdate(id);
+		}
+		bookCache.invalidate(id);
+		if (repository.updateActiveBook(id, changes, expectedVersions, now) == 0) {
+			throw rejectedUpdate(id);
+		}
+	}
 
-		List<DiscountRule> discountRules = new ArrayList<>();
+	/**
+	 * Tells apart why a conditional update matched no row. Only runs on the failure path.
+	 */
+	private BusinessException rejectedUpdate(Long id) {
+		if (tombstones.contains(id)) {
+			return new BusinessException(HttpStatus.CONFLICT, BOOK_NOT_UPDATABLE_MSG);
+		}
+		return repository.findStatusById(id)
+				.map(status -> status == BookStatus.DELETED
+						? new BusinessException(HttpStatus.CONFLICT, BOOK_NOT_UPDATABLE_MSG)
+						: new BusinessException(HttpStatus.PRECONDITION_FAILED, BOOK_MODIFIED_MSG))
+				.orElseGet(() -> new BusinessException(HttpStatus.NOT_FOUND, BOOK_UNAVAILABLE_MSG));
+	}
+
+	private BookDto reload(Long id) {
+		return repository.findDtoByIdAndStatus(id, BookStatus.ACTIVE)
+				.orElseThrow(() -> new BusinessException(HttpStatus.NOT_FOUND, BOOK_DELETED_MSG));
+	}
 
-		if (request.getPromoCode() != null) {
-			discountRules = discountConfig.getPromotionRules().stream()
-					.filter(x -> x.getPromotionCode().equals(request.getPromoCode()))
-					.map(PromotionRule::getDiscountRules)
-					.findFirst()
-					.orElseThrow(() -> new BusinessException(HttpStatus.BAD_REQUEST, "Invalid promo code"));
+	@Override
+	public CheckoutBookResponse calculateBookPayment(CheckoutBookRequestDto request) {
+		Map<String, BigDecimal> discounts = resolveDiscounts(request);
+		if (checkoutConfig.getPricing() != PricingMode.CATALOG) {
+			return complete(request, request.getItems(), price(request.getItems(), discounts));
 		}
+		Set<Long> ids = catalogIds(request.getItems());
+		Map<Long, BookDto> books = new HashMap<>(ids.size() * 2);
+		List<Long> misses = findCachedBooks(ids, books);
+		loadBooks(misses, books);
+		List<CheckedOutBook> pricedItems = priceFromCatalog(request.getItems(), ids, books);
+		return complete(request, pricedItems, price(pricedItems, discounts));
+	}
 
+	@Override
+	public CompletableFuture<CheckoutBookResponse> calculateBookPaymentAsync(CheckoutBookRequestDto request) {
+		Map<String, BigDecimal> discounts = resolveDiscounts(request);
 		List<CheckedOutBook> items = request.getItems();
+		// the stock of a book is read from the database the first time it is reserved
+		boolean loadsStock = checkoutConfig.isReserveStock() && !inventoryService.isLoaded(items);
+		if (checkoutConfig.getPricing() != PricingMode.CATALOG) {
+			CheckoutBookResponse priced = price(items, discounts);
+			return loadsStock
+					? jdbcExecutor.supply(() -> complete(request, items, priced))
+					: CompletableFuture.completedFuture(complete(request, items, priced));
+		}
+		Set<Long> ids = catalogIds(items);
+		Map<Long, BookDto> books = new HashMap<>(ids.size() * 2);
+		List<Long> misses = findCachedBooks(ids, books);
+		if (misses.isEmpty() && !loadsStock) {
+			List<CheckedOutBook> pricedItems = priceFromCatalog(items, ids, books);
+			return CompletableFuture.completedFuture(complete(request, pricedItems, price(pricedItems, discounts)));
+		}
+		return jdbcExecutor.supply(() -> {
+			loadBooks(misses, books);
+			List<CheckedOutBook> pricedItems = priceFromCatalog(items, ids, books);
+			return complete(request, pricedItems, price(pricedItems, discounts));
+		});
+	}
 
-		BigDecimal originalPrice = withScaleTwo(
-				items.stream().map(x -> x.getBookPrice().multiply(BigDecimal.valueOf(x.getQuantity())))
-						.reduce(BigDecimal.ZERO, BigDecimal::add));
+	@Override
+	public List<CheckoutBatchResultDto> calculateBookPayments(List<CheckoutBookRequestDto> requests) {
+		// the whole batch sees one rule set and looks every promo code up once
+		PromotionIndex promotionIndex = discountConfig.getPromotionIndex();
+		Map<String, Map<String, BigDecimal>> discountsByCode = new HashMap<>();
+		for (CheckoutBookRequestDto request : requests) {
+			String promoCode = request.getPromoCode();
+			if (promoCode != null && !discountsByCode.containsKey(promoCode)) {
+				discountsByCode.put(promoCode, promotionIndex.getDiscounts(promoCode));
+			}
+		}
+		boolean fromCatalog = checkoutConfig.getPricing() == PricingMode.CATALOG;
+		Map<Long, BookDto> books = fromCatalog ? findBatchBooks(requests) : Collections.emptyMap();
 
-		BigDecimal priceAfterDiscount = BigDecimal.ZERO;
+		return pricingPool.map(requests, request -> {
+			try {
+				Map<String, BigDecimal> discounts = Collections.emptyMap();
+				if (request.getPromoCode() != null) {
+					discounts = discountsByCode.get(request.getPromoCode());
+					if (discounts == null) {
+						throw new BusinessException(HttpStatus.BAD_REQUEST, "Invalid promo code");
+					}
+				}
+				List<CheckedOutBook> items = request.getItems();
+				if (fromCatalog) {
+					Set<Long> ids = catalogIds(items);
+					for (Long id : ids) {
+						if (tombstones.contains(id)) {
+							throw new BusinessException(HttpStatus.NOT_FOUND, "Book " + id + " is no longer sold here");
+						}
+					}
+					items = priceFromCatalog(items, ids, books);
+				}
+				return CheckoutBatchResultDto.priced(price(items, discounts));
+			} catch (BusinessException ex) {
+				return CheckoutBatchResultDto.failed(ex.getStatus(), ex.getMessage());
+			}
+		});
+	}
 
-		for (CheckedOutBook item : items) {
-			BigDecimal originalAmount = item.getBookPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-			BigDecimal discountForItem = BigDecimal.ZERO;
-			for (DiscountRule discountRule : discountRules) {
-				if (discountRule.getType().equals(item.getType())) {
-					discountForItem = getDiscountValue(originalAmount, discountRule.getDiscount());
-					break;
+	/**
+	 * Resolves the books referenced by all the carts from the book cache, loading the misses of the whole batch with
+	 * one query. Deleted books are left out and tombstoned, carts with unparsable ids are skipped; both fail later
+	 * on their own.
+	 */
+	private Map<Long, BookDto> findBatchBooks(List<CheckoutBookRequestDto> requests) {
+		Map<Long, BookDto> books = new HashMap<>();
+		Set<Long> misses = new LinkedHashSet<>();
+		for (CheckoutBookRequestDto request : requests) {
+			for (CheckedOutBook item : request.getItems()) {
+				Long id;
+				try {
+					id = item.getId() == null ? null : BookUtils.parse(item.getId());
+				} catch (BusinessException ex) {
+					continue;
+				}
+				if (id == null || books.containsKey(id) || tombstones.contains(id)) {
+					continue;
+				}
+				BookDto cached = bookCache.get(id);
+				if (cached != null) {
+					books.put(id, cached);
+				} else {
+					misses.add(id);
 				}
 			}
-			priceAfterDiscount = withScaleTwo(
-					priceAfterDiscount.add(originalAmount.subtract(discountForItem))
-			);
 		}
+		if (!misses.isEmpty()) {
+			for (Book book : repository.findAllById(misses)) {
+				if (book.getStatus() == BookStatus.DELETED) {
+					tombstones.add(book.getId());
+					continue;
+				}
+				BookDto loaded = bookMapper.toDto(book);
+				bookCache.putLoaded(book.getId(), loaded);
+				books.put(book.getId(), loaded);
+			}
+		}
+		return books;
+	}
 
-		return new CheckoutBookResponse(originalPrice, priceAfterDiscount);
+	private Map<String, BigDecimal> resolveDiscounts(CheckoutBookRequestDto request) {
+		if (request.getPromoCode() == null) {
+			return Collections.emptyMap();
+		}
+		Map<String, BigDecimal> discounts = discountConfig.getPromotionIndex().getDiscounts(request.getPromoCode());
+		if (discounts == null) {
+			throw new BusinessException(HttpStatus.BAD_REQUEST, "Invalid promo code");
+		}
+		return discounts;
+	}
+
+	private CheckoutBookResponse price(List<CheckedOutBook> items, Map<String, BigDecimal> discounts) {
+		return checkoutConfig.getArithmetic() == MoneyArithmetic.CENTS
+				? CentsPricing.price(items, discounts)
+				: DecimalPricing.price(items, discounts);
+	}
 
+	/**
+	 * Completes a priced cart: reserves its copies when checkout reserves stock, so that a cart that cannot be
+	 * priced never holds copies, then records its order. The copies are returned when the order cannot be recorded.
+	 *
+	 * @param pricedItems the items with the prices they were checked out at
+	 */
+	private CheckoutBookResponse complete(CheckoutBookRequestDto request, List<CheckedOutBook> pricedItems,
+										  CheckoutBookResponse priced) {
+		Reservation reservation = null;
+		if (checkoutConfig.isReserveStock()) {
+			reservation = inventoryService.reserve(request.getItems());
+			priced.setReservationId(reservation.getId());
+			priced.setReservedUntil(reservation.getExpiresAt());
+		}
+		try {
+			orderService.placeOrder(request.getPromoCode(), pricedItems, priced);
+		} catch (Throwable ex) {
+			// errors too: a fault writing the mapped journal is an InternalError
+			if (reservation != null) {
+				inventoryService.cancel(reservation.getId());
+			}
+			throw ex;
+		}
+		return priced;
 	}
 
-	private static BigDecimal getDiscountValue(BigDecimal amount, BigDecimal discount) {
-		return amount.multiply(discount).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_EVEN);
+	/**
+	 * Replaces the client supplied price and type of every item with the ones stored in the catalog.
+	 */
+	private static List<CheckedOutBook> priceFromCatalog(List<CheckedOutBook> items, Set<Long> ids,
+														 Map<Long, BookDto> catalogBooks) {
+		for (Long id : ids) {
+			if (!catalogBooks.containsKey(id)) {
+				throw new BusinessException(HttpStatus.NOT_FOUND, "Book " + id + " is not available in the store");
+			}
+		}
+		List<CheckedOutBook> pricedItems = new ArrayList<>(items.size());
+		for (CheckedOutBook item : items) {
+			BookDto book = catalogBooks.get(BookUtils.parse(item.getId()));
+			pricedItems.add(new CheckedOutBook(item.getQuantity(), book.getBookName(), book.getBookDescription(),
+					book.getAuthor(), book.getType(), book.getId(), book.getBookPrice(), book.getIsbn()));
+		}
+		return pricedItems;
 	}
 
-	private static BigDecimal withScaleTwo(BigDecimal amount) {
-		return amount.setScale(2, RoundingMode.HALF_EVEN);
+	private static Set<Long> catalogIds(List<CheckedOutBook> items) {
+		Set<Long> ids = new LinkedHashSet<>();
+		for (CheckedOutBook item : items) {
+			if (item.getId() == null) {
+				throw new BusinessException(HttpStatus.BAD_REQUEST, "id is required for every item");
+			}
+			ids.add(BookUtils.parse(item.getId()));
+		}
+		return ids;
+	}
+
+	/**
+	 * Puts the books found in the book cache into books, without touching the database.
+	 *
+	 * @return the ids missing from the cache
+	 */
+	private List<Long> findCachedBooks(Set<Long> ids, Map<Long, BookDto> books) {
+		List<Long> misses = new ArrayList<>();
+		for (Long id : ids) {
+			if (tombstones.contains(id)) {
+				throw new BusinessException(HttpStatus.NOT_FOUND, "Book " + id + " is no longer sold here");
+			}
+			BookDto cached = bookCache.get(id);
+			if (cached != null) {
+				books.put(id, cached);
+			} else {
+				misses.add(id);
+			}
+		}
+		return misses;
+	}
+
+	/**
+	 * Loads the missed books with a single query and caches them.
+	 */
+	private void loadBooks(List<Long> misses, Map<Long, BookDto> books) {
+		if (misses.isEmpty()) {
+			return;
+		}
+		for (Book book : repository.findAllById(misses)) {
+			if (book.getStatus() == BookStatus.DELETED) {
+				tombstones.add(book.getId());
+				throw new BusinessException(HttpStatus.NOT_FOUND, "Book " + book.getId() + " is no longer sold here");
+			}
+			BookDto loaded = bookMapper.toDto(book);
+			bookCache.putLoaded(book.getId(), loaded);
+			books.put(book.getId(), loaded);
+		}
 	}
 
 }
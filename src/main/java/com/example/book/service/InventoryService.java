@@ -0,0 +1,43 @@
+package com.example.book.service;
+
+import com.example.book.dto.response.StockDto;
+import com.example.book.model.CheckedOutBook;
+import com.example.book.model.Reservation;
+
+import java.util.List;
+
+public interface InventoryService {
+
+    /**
+     * Takes the copies of all the items out of the stock, or none of them.
+     *
+     * @throws com.example.book.exception.BusinessException 409 when a book has not enough copies
+     */
+    Reservation reserve(List<CheckedOutBook> items);
+
+    /**
+     * @return whether reserving the items can be done without reading the stock of any of them from the database
+     */
+    boolean isLoaded(List<CheckedOutBook> items);
+
+    /**
+     * Sells the reserved copies.
+     */
+    void confirm(String reservationId);
+
+    /**
+     * Returns the reserved copies to the stock.
+     */
+    void cancel(String reservationId);
+
+    StockDto getStock(Long id);
+
+    StockDto restock(Long id, long quantity);
+
+    /**
+     * Returns the copies of the reservations past their expiry to the stock.
+     *
+     * @return number of reservations expired
+     */
+    int expireReservations();
+}
@@ -0,0 +1,171 @@
+package com.example.book.service;
+
+import com.example.book.cache.BookTombstones;
+import com.example.book.config.InventoryConfig;
+import com.example.book.dto.response.StockDto;
+import com.example.book.exception.BusinessException;
+import com.example.book.inventory.StockLedger;
+import com.example.book.model.CheckedOutBook;
+import com.example.book.model.Reservation;
+import com.example.book.util.BookUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservations live in memory next to the {@link StockLedger}. Confirm, cancel and expiry each start by removing
+ * the reservation from the map, so exactly one of them gets to sell or release its copies.
+ * <p>
+ * Once the application is ready a single daemon thread writes the ledger back every flushInterval and expires
+ * reservations every expiryInterval; the last flush happens on shutdown.
+ */
+@Slf4j
+@Service
+public class InventoryServiceImpl implements InventoryService {
+
+	private static final String RESERVATION_NOT_FOUND_MSG = "Reservation not found";
+
+	private final StockLedger ledger;
+	private final BookTombstones tombstones;
+	private final InventoryConfig inventoryConfig;
+	private final ConcurrentMap<String, Reservation> reservations = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService scheduler;
+
+	public InventoryServiceImpl(StockLedger ledger, BookTombstones tombstones, InventoryConfig inventoryConfig) {
+		this.ledger = ledger;
+		this.tombstones = tombstones;
+		this.inventoryConfig = inventoryConfig;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "book-inventory");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		long flushMillis = inventoryConfig.getFlushInterval().toMillis();
+		long expiryMillis = inventoryConfig.getExpiryInterval().toMillis();
+		scheduler.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+		scheduler.scheduleWithFixedDelay(this::expireReservations, expiryMillis, expiryMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+	}
+
+	@Override
+	public Reservation reserve(List<CheckedOutBook> items) {
+		Map<Long, Long> quantities = quantities(items);
+		for (Long id : quantities.keySet()) {
+			if (tombstones.contains(id)) {
+				throw new BusinessException(HttpStatus.NOT_FOUND, "Book " + id + " is no longer sold here");
+			}
+		}
+		ledger.reserve(quantities);
+		Reservation reservation = new Reservation(UUID.randomUUID().toString(), quantities,
+				Instant.now().plus(inventoryConfig.getReservationTtl()));
+		reservations.put(reservation.getId(), reservation);
+		return reservation;
+	}
+
+	@Override
+	public boolean isLoaded(List<CheckedOutBook> items) {
+		return ledger.isLoaded(quantities(items).keySet());
+	}
+
+	@Override
+	public void confirm(String reservationId) {
+		Reservation reservation = reservations.remove(reservationId);
+		if (reservation == null) {
+			throw new BusinessException(HttpStatus.NOT_FOUND, RESERVATION_NOT_FOUND_MSG);
+		}
+		if (reservation.getExpiresAt().isBefore(Instant.now())) {
+			ledger.release(reservation.getQuantities());
+			throw new BusinessException(HttpStatus.GONE, "Reservation expired");
+		}
+		ledger.sell(reservation.getQuantities());
+	}
+
+	@Override
+	public void cancel(String reservationId) {
+		Reservation reservation = reservations.remove(reservationId);
+		if (reservation == null) {
+			throw new BusinessException(HttpStatus.NOT_FOUND, RESERVATION_NOT_FOUND_MSG);
+		}
+		ledger.release(reservation.getQuantities());
+	}
+
+	@Override
+	public StockDto getStock(Long id) {
+		return ledger.get(id);
+	}
+
+	@Override
+	public StockDto restock(Long id, long quantity) {
+		if (tombstones.contains(id)) {
+			throw new BusinessException(HttpStatus.NOT_FOUND, "Book " + id + " is no longer sold here");
+		}
+		ledger.restock(id, quantity);
+		return ledger.get(id);
+	}
+
+	@Override
+	public int expireReservations() {
+		Instant now = Instant.now();
+		int expired = 0;
+		for (Reservation reservation : reservations.values()) {
+			if (reservation.getExpiresAt().isBefore(now) && reservations.remove(reservation.getId(), reservation)) {
+				ledger.release(reservation.getQuantities());
+				expired++;
+			}
+		}
+		if (expired > 0) {
+			log.info("Expired {} stock reservations", expired);
+		}
+		return expired;
+	}
+
+	private void flush() {
+		try {
+			ledger.flush();
+		} catch (RuntimeException ex) {
+			log.warn("Could not write the stock back, keeping it for the next flush", ex);
+		}
+	}
+
+	/**
+	 * Adds up the quantities of the items by book id.
+	 */
+	private static Map<Long, Long> quantities(List<CheckedOutBook> items) {
+		Map<Long, Long> quantities = new TreeMap<>();
+		for (CheckedOutBook item : items) {
+			if (item.getId() == null) {
+				throw new BusinessException(HttpStatus.BAD_REQUEST, "id is required for every item");
+			}
+			quantities.merge(BookUtils.parse(item.getId()), item.getQuantity().longValue(), Long::sum);
+		}
+		return quantities;
+	}
+}
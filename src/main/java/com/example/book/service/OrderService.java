@@ -0,0 +1,23 @@
+package com.example.book.service;
+
+import com.example.book.dto.response.CheckoutBookResponse;
+import com.example.book.dto.response.OrderDto;
+import com.example.book.model.CheckedOutBook;
+
+import java.util.List;
+
+public interface OrderService {
+
+    /**
+     * Records the order of a completed checkout and sets its id on the response. Does nothing while orders are
+     * disabled.
+     *
+     * @param items the items as priced
+     */
+    void placeOrder(String promoCode, List<CheckedOutBook> items, CheckoutBookResponse response);
+
+    /**
+     * @return the order, whether it was already written to the database or not
+     */
+    OrderDto getOrder(Long id);
+}
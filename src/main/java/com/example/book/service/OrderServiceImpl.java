@@ -0,0 +1,252 @@
+package com.example.book.service;
+
+import com.example.book.config.OrderConfig;
+import com.example.book.dto.response.CheckoutBookResponse;
+import com.example.book.dto.response.OrderDto;
+import com.example.book.entity.Order;
+import com.example.book.entity.OrderLine;
+import com.example.book.exception.BusinessException;
+import com.example.book.model.CheckedOutBook;
+import com.example.book.orders.OrderJournal;
+import com.example.book.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Orders are acknowledged once they are in the {@link OrderJournal} and written behind it by a single daemon
+ * thread, in batches of whatever has queued up, each in one transaction. Orders placed but not yet written are also
+ * kept in a map so they can be read back at once.
+ * <p>
+ * On startup the journal queues the orders it holds after its checkpoint. Some of them may have been stored just
+ * before a crash, so the writer looks them up and skips those: every order ends up in the database exactly once.
+ * A failing database is retried every second, the orders wait in the journal meanwhile. On shutdown the writer
+ * empties the queue before the journal is closed.
+ */
+@Slf4j
+@Service
+public class OrderServiceImpl implements OrderService, MeterBinder {
+
+	private static final long POLL_MILLIS = 100;
+	private static final long RETRY_MILLIS = 1000;
+
+	private final OrderRepository repository;
+	private final OrderConfig orderConfig;
+	private final ObjectMapper objectMapper;
+	private final ConcurrentMap<Long, OrderDto> unwritten = new ConcurrentHashMap<>();
+	private final LongAdder written = new LongAdder();
+	private final ExecutorService writer;
+	private OrderJournal journal;
+	private volatile long writtenUpTo;
+	private volatile boolean stopping;
+
+	public OrderServiceImpl(OrderRepository repository, OrderConfig orderConfig, ObjectMapper objectMapper) {
+		this.repository = repository;
+		this.orderConfig = orderConfig;
+		this.objectMapper = objectMapper;
+		this.writer = Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "book-orders");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PostConstruct
+	public void open() throws IOException {
+		if (!orderConfig.isEnabled()) {
+			return;
+		}
+		journal = OrderJournal.open(Paths.get(orderConfig.getJournalDir()), (int) orderConfig.getSegmentSize().toBytes(),
+				orderConfig.isForceOnAppend(), repository.findMaxId().orElse(0L), objectMapper);
+		writer.execute(this::writeOrders);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		stopping = true;
+		writer.shutdown();
+		try {
+			writer.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		if (journal != null) {
+			journal.close();
+		}
+	}
+
+	@Override
+	public void placeOrder(String promoCode, List<CheckedOutBook> items, CheckoutBookResponse response) {
+		if (journal == null) {
+			return;
+		}
+		List<OrderDto.Line> lines = new ArrayList<>(items.size());
+		for (CheckedOutBook item : items) {
+			lines.add(new OrderDto.Line(bookId(item), item.getBookName(), item.getType(), item.getQuantity(),
+					item.getBookPrice()));
+		}
+		OrderDto order = new OrderDto(null, LocalDateTime.now(), promoCode, response.getOriginalPrice(),
+				response.getPriceAfterDiscount(), response.getReservationId(), lines);
+		long id = journal.append(order);
+		unwritten.put(id, order);
+		// the writer may have been faster than the put
+		if (id <= writtenUpTo) {
+			unwritten.remove(id);
+		}
+		response.setOrderId(order.getId());
+	}
+
+	@Override
+	public OrderDto getOrder(Long id) {
+		OrderDto order = unwritten.get(id);
+		if (order != null) {
+			return order;
+		}
+		return repository.findWithLinesById(id).map(OrderServiceImpl::toDto)
+				.orElseThrow(() -> new BusinessException(HttpStatus.NOT_FOUND, "Order not found"));
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("books.orders.queued", this, it -> it.journal == null ? 0 : it.journal.queued())
+				.description("orders in the journal waiting for the writer")
+				.register(registry);
+		FunctionCounter.builder("books.orders.written", written, LongAdder::sum)
+				.description("orders written to the database")
+				.register(registry);
+	}
+
+	private void writeOrders() {
+		List<OrderDto> batch = new ArrayList<>(orderConfig.getBatchSize());
+		while (true) {
+			batch.clear();
+			try {
+				journal.drainTo(batch, orderConfig.getBatchSize(), POLL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ex) {
+				return;
+			}
+			if (batch.isEmpty()) {
+				if (stopping) {
+					return;
+				}
+				continue;
+			}
+			while (true) {
+				try {
+					write(batch);
+					break;
+				} catch (RuntimeException ex) {
+					if (stopping) {
+						log.warn("Could not write {} orders on shutdown, they stay in the journal", batch.size(), ex);
+						return;
+					}
+					log.warn("Could not write {} orders, retrying", batch.size(), ex);
+					try {
+						Thread.sleep(RETRY_MILLIS);
+					} catch (InterruptedException interrupted) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stores the batch in one transaction, leaving out replayed orders that are stored already, then checkpoints
+	 * the journal.
+	 */
+	private void write(List<OrderDto> batch) {
+		Set<Long> stored = Collections.emptySet();
+		List<Long> replayed = new ArrayList<>();
+		for (OrderDto order : batch) {
+			long id = Long.parseLong(order.getId());
+			if (id <= journal.getReplayedUpTo()) {
+				replayed.add(id);
+			}
+		}
+		if (!replayed.isEmpty()) {
+			stored = new HashSet<>(repository.findExistingIds(replayed));
+		}
+		List<Order> orders = new ArrayList<>(batch.size());
+		for (OrderDto order : batch) {
+			if (!stored.contains(Long.parseLong(order.getId()))) {
+				orders.add(toEntity(order));
+			}
+		}
+		repository.saveAll(orders);
+
+		long lastId = Long.parseLong(batch.get(batch.size() - 1).getId());
+		journal.checkpoint(lastId);
+		writtenUpTo = lastId;
+		for (OrderDto order : batch) {
+			unwritten.remove(Long.parseLong(order.getId()));
+		}
+		written.add(orders.size());
+	}
+
+	/**
+	 * Items priced from the request may carry any id; only book ids are kept, so the writer never fails on one.
+	 */
+	private static String bookId(CheckedOutBook item) {
+		if (item.getId() == null) {
+			return null;
+		}
+		try {
+			return Long.valueOf(item.getId()).toString();
+		} catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
+	private static Order toEntity(OrderDto dto) {
+		Order order = new Order();
+		order.setId(Long.parseLong(dto.getId()));
+		order.setPlacedOn(dto.getPlacedOn());
+		order.setPromoCode(dto.getPromoCode());
+		order.setOriginalPrice(dto.getOriginalPrice());
+		order.setPriceAfterDiscount(dto.getPriceAfterDiscount());
+		order.setReservationId(dto.getReservationId());
+		for (OrderDto.Line line : dto.getLines()) {
+			order.addLine(OrderLine.builder()
+					.bookId(line.getBookId() == null ? null : Long.valueOf(line.getBookId()))
+					.bookName(line.getBookName())
+					.type(line.getType())
+					.quantity(line.getQuantity())
+					.bookPrice(line.getBookPrice())
+					.build());
+		}
+		return order;
+	}
+
+	private static OrderDto toDto(Order order) {
+		List<OrderDto.Line> lines = new ArrayList<>(order.getLines().size());
+		for (OrderLine line : order.getLines()) {
+			lines.add(new OrderDto.Line(line.getBookId() == null ? null : line.getBookId().toString(),
+					line.getBookName(), line.getType(), line.getQuantity(), line.getBookPrice()));
+		}
+		return new OrderDto(order.getId().toString(), order.getPlacedOn(), order.getPromoCode(),
+				order.getOriginalPrice(), order.getPriceAfterDiscount(), order.getReservationId(), lines);
+	}
+}
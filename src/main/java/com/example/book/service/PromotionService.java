@@ -0,0 +1,15 @@
+package com.example.book.service;
+
+import com.example.book.model.PromotionRule;
+
+import java.util.List;
+
+public interface PromotionService {
+
+    List<PromotionRule> getPromotionRules();
+
+    /**
+     * Builds a new rule set and publishes it to checkout in one step.
+     */
+    List<PromotionRule> replacePromotionRules(List<PromotionRule> promotionRules);
+}
@@ -0,0 +1,33 @@
+package com.example.book.service;
+
+import com.example.book.config.DiscountConfig;
+import com.example.book.model.PromotionIndex;
+import com.example.book.model.PromotionRule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Slf4j
+@Service
+public class PromotionServiceImpl implements PromotionService {
+
+	private final DiscountConfig discountConfig;
+
+	public PromotionServiceImpl(DiscountConfig discountConfig) {
+		this.discountConfig = discountConfig;
+	}
+
+	@Override
+	public List<PromotionRule> getPromotionRules() {
+		return discountConfig.getPromotionRules();
+	}
+
+	@Override
+	public List<PromotionRule> replacePromotionRules(List<PromotionRule> promotionRules) {
+		PromotionIndex promotionIndex = PromotionIndex.of(promotionRules);
+		discountConfig.publish(promotionIndex);
+		log.info("Published {} promotion codes", promotionIndex.size());
+		return promotionIndex.getPromotionRules();
+	}
+}
@@ -4,6 +4,9 @@ import com.example.book.exception.BusinessException;
 import lombok.experimental.UtilityClass;
 import org.springframework.http.HttpStatus;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 @UtilityClass
 public class BookUtils {
 
@@ -15,4 +18,63 @@ public class BookUtils {
         }
     }
 
+    /**
+     * If-Match compares ETags strongly (RFC 7232 section 3.1), so weak ETags in the list never match.
+     *
+     * @param ifMatch If-Match header holding one or more comma separated ETags sent with a book
+     * @return the versions of the book they stand for, null when the header is absent or '*'
+     */
+    public Set<Long> parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Set<Long> versions = new LinkedHashSet<>();
+        for (String entry : ifMatch.split(",")) {
+            String tag = entry.trim();
+            if (tag.startsWith("W/\"")) {
+                continue;
+            }
+            if (tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                tag = tag.substring(1, tag.length() - 1);
+            }
+            try {
+                versions.add(Long.valueOf(tag));
+            } catch (NumberFormatException ex) {
+                throw new BusinessException(HttpStatus.BAD_REQUEST, "If-Match must be an ETag of the book");
+            }
+        }
+        if (versions.isEmpty()) {
+            throw new BusinessException(HttpStatus.PRECONDITION_FAILED, "If-Match must be the strong ETag of the book");
+        }
+        return versions;
+    }
+
+    /**
+     * @param acceptEncoding Accept-Encoding header, null when absent
+     * @return whether it lists gzip or * without a zero quality
+     */
+    public boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=") && parameter.substring(2).matches("0(\\.0*)?")) {
+                    refused = true;
+                }
+            }
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
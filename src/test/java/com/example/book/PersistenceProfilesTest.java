@@ -0,0 +1,105 @@
+package com.example.book;
+
+import com.example.book.dto.BookDto;
+import com.example.book.dto.request.BookRequestDto;
+import com.example.book.service.BookService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Boots the persistence profiles against local H2 databases: a file for h2-file, and an in-memory database in MySQL
+ * mode standing in for a MySQL server.
+ */
+class PersistenceProfilesTest {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void production_H2File_KeepsBooksAcrossRestarts() {
+        String bookId;
+        try (ConfigurableApplicationContext context = start("production,h2-file", "BOOK_DATA_DIR=" + dataDir)) {
+            HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+            assertEquals("jdbc:h2:file:" + dataDir + "/bookstore;QUERY_CACHE_SIZE=64", dataSource.getJdbcUrl());
+            assertEquals(10, dataSource.getMaximumPoolSize());
+            assertEquals(10, dataSource.getMinimumIdle());
+            assertEquals(3000, dataSource.getConnectionTimeout());
+
+            Map<String, Object> jpaProperties = context.getBean(LocalContainerEntityManagerFactoryBean.class)
+                    .getJpaPropertyMap();
+            assertEquals("50", jpaProperties.get("hibernate.jdbc.batch_size"));
+            assertEquals("true", jpaProperties.get("hibernate.order_inserts"));
+            assertEquals("true", jpaProperties.get("hibernate.order_updates"));
+            assertEquals("false", context.getEnvironment().getProperty("spring.jpa.show-sql"));
+
+            bookId = crud(context.getBean(BookService.class));
+        }
+
+        try (ConfigurableApplicationContext context = start("production,h2-file", "BOOK_DATA_DIR=" + dataDir)) {
+            BookDto book = context.getBean(BookService.class).getBook(Long.valueOf(bookId));
+            assertEquals(0, new BigDecimal("12.50").compareTo(book.getBookPrice()));
+        }
+    }
+
+    @Test
+    void production_MySql() {
+        try (ConfigurableApplicationContext context = start("production,mysql", "BOOK_DATA_DIR=" + dataDir,
+                "spring.datasource.url=jdbc:h2:mem:mysqlprofile;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                "spring.datasource.driverClassName=org.h2.Driver",
+                "spring.datasource.username=sa")) {
+            HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+            assertEquals("true", dataSource.getDataSourceProperties().getProperty("cachePrepStmts"));
+            assertEquals("250", dataSource.getDataSourceProperties().getProperty("prepStmtCacheSize"));
+            assertEquals("true", dataSource.getDataSourceProperties().getProperty("rewriteBatchedStatements"));
+            assertEquals("true", dataSource.getDataSourceProperties().getProperty("useCursorFetch"));
+            assertEquals("org.hibernate.dialect.MySQL8Dialect", context.getEnvironment()
+                    .getProperty("spring.jpa.database-platform"));
+
+            crud(context.getBean(BookService.class));
+        }
+    }
+
+    /**
+     * The properties are passed as command line arguments, so they override the ones of the profiles.
+     */
+    private static ConfigurableApplicationContext start(String profiles, String... properties) {
+        String[] args = new String[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            args[i] = "--" + properties[i];
+        }
+        return new SpringApplicationBuilder(BooksApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(profiles.split(","))
+                .run(args);
+    }
+
+    /**
+     * @return id of a book created and updated, after a second one was created and deleted
+     */
+    private static String crud(BookService bookService) {
+        BookRequestDto request = BookHelper.getBookRequestDto();
+        String id = bookService.saveBook(request).getId();
+        request.setBookPrice(new BigDecimal("12.50"));
+        BookDto updated = bookService.updateBook(Long.valueOf(id), request, Set.of(0L));
+        assertEquals(1L, updated.getVersion());
+
+        BookRequestDto other = BookHelper.getBookRequestDto();
+        other.setIsbn("9999999999999");
+        Long otherId = Long.valueOf(bookService.saveBook(other).getId());
+        bookService.deleteBook(otherId);
+        assertEquals(1, bookService.getBooks(null, null).getBooks().size());
+        return id;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.book.cache;
+
+import com.example.book.BookHelper;
+import com.example.book.config.CacheConfig;
+import com.example.book.dto.BookDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookCacheTest {
+
+    private final BookCache bookCache = new BookCache(new CacheConfig());
+
+    @Test
+    void get_LoaderError_ReachesWaitingReadersAndIsNotKept() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<BookDto> first = executor.submit(() -> bookCache.get(1L, id -> {
+                loading.countDown();
+                await(fail);
+                throw new AssertionError("loader failed");
+            }));
+            loading.await(10, TimeUnit.SECONDS);
+            Future<BookDto> waiting = executor.submit(() -> bookCache.get(1L, id -> BookHelper.getBookDto()));
+            while (bookCache.collapsedLoads() == 0) {
+                Thread.sleep(1);
+            }
+            fail.countDown();
+
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> first.get(10, TimeUnit.SECONDS));
+            assertTrue(ex.getCause() instanceof AssertionError);
+            ex = assertThrows(ExecutionException.class, () -> waiting.get(10, TimeUnit.SECONDS));
+            assertTrue(ex.getCause() instanceof AssertionError);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // the failed load is forgotten, the next reader loads the book again
+        BookDto book = BookHelper.getBookDto();
+        assertEquals(book, bookCache.get(1L, id -> book));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
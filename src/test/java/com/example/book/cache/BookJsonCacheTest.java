@@ -0,0 +1,87 @@
+package com.example.book.cache;
+
+import com.example.book.BookHelper;
+import com.example.book.config.JsonCacheConfig;
+import com.example.book.context.AppContext;
+import com.example.book.dto.BookDto;
+import com.example.book.search.BookChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookJsonCacheTest {
+
+    private final JsonCacheConfig jsonCacheConfig = new JsonCacheConfig();
+
+    @Test
+    void get_ServesTheEncodedVersion() throws Exception {
+        BookJsonCache cache = new BookJsonCache(AppContext.objectMapper(), jsonCacheConfig);
+        BookDto book = book(3L);
+
+        EncodedBook encoded = cache.get(book);
+        assertArrayEquals(AppContext.objectMapper().writeValueAsBytes(book), encoded.getJson());
+        assertNull(encoded.getGzip());
+        assertSame(encoded, cache.get(book(3L)));
+
+        BookDto updated = book(4L);
+        updated.setAuthor("Someone Else");
+        EncodedBook reencoded = cache.get(updated);
+        assertNotSame(encoded, reencoded);
+        assertArrayEquals(AppContext.objectMapper().writeValueAsBytes(updated), reencoded.getJson());
+        assertSame(reencoded, cache.get(updated));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void get_WithoutVersion_NotCached() {
+        BookJsonCache cache = new BookJsonCache(AppContext.objectMapper(), jsonCacheConfig);
+
+        assertNotSame(cache.get(book(null)), cache.get(book(null)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void onBookChanged_Invalidates() {
+        BookJsonCache cache = new BookJsonCache(AppContext.objectMapper(), jsonCacheConfig);
+        EncodedBook encoded = cache.get(book(3L));
+
+        cache.onBookChanged(BookChangedEvent.removed(1L));
+
+        assertNotSame(encoded, cache.get(book(3L)));
+    }
+
+    @Test
+    void get_Gzip() throws IOException {
+        jsonCacheConfig.setGzip(true);
+        BookJsonCache cache = new BookJsonCache(AppContext.objectMapper(), jsonCacheConfig);
+        BookDto book = book(3L);
+        book.setBookDescription("A long description, a long description, a long description, a long description");
+
+        EncodedBook encoded = cache.get(book);
+
+        assertTrue(encoded.getGzip().length < encoded.getJson().length);
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(encoded.getGzip()))) {
+            assertArrayEquals(encoded.getJson(), gzip.readAllBytes());
+        }
+    }
+
+    @Test
+    void get_GzipNotSmaller_NotKept() {
+        jsonCacheConfig.setGzip(true);
+        BookJsonCache cache = new BookJsonCache(AppContext.objectMapper(), jsonCacheConfig);
+        BookDto book = BookDto.builder().id("1").version(3L).build();
+
+        assertNull(cache.get(book).getGzip());
+    }
+
+    private static BookDto book(Long version) {
+        BookDto book = BookHelper.getBookDto();
+        book.setVersion(version);
+        return book;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.book.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookTombstonesTest {
+
+    private final BookTombstones tombstones = new BookTombstones(null);
+
+    @Test
+    void addAndContains() {
+        long[] ids = {1L, 63L, 64L, 65535L, 65536L, 10_000_000_000L};
+        for (long id : ids) {
+            assertFalse(tombstones.contains(id));
+            tombstones.add(id);
+            assertTrue(tombstones.contains(id));
+        }
+        tombstones.add(64L);
+
+        assertEquals(ids.length, tombstones.size());
+        assertFalse(tombstones.contains(0L));
+        assertFalse(tombstones.contains(2L));
+        assertFalse(tombstones.contains(65537L));
+        assertFalse(tombstones.contains(-1L));
+    }
+
+    @Test
+    void concurrentAdds() throws Exception {
+        int threads = 8;
+        int idsPerThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                // interleaved ids, so every word of every block is written by all threads
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < idsPerThread; i++) {
+                        tombstones.add((long) i * threads + offset);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals((long) threads * idsPerThread, tombstones.size());
+        for (long id = 0; id < (long) threads * idsPerThread; id++) {
+            assertTrue(tombstones.contains(id));
+        }
+    }
+
+    @Test
+    void clear() {
+        tombstones.add(5L);
+        tombstones.clear();
+        assertFalse(tombstones.contains(5L));
+        assertEquals(0, tombstones.size());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.book.cache;
+
+import com.example.book.BookHelper;
+import com.example.book.config.HttpCacheConfig;
+import com.example.book.dto.BookDto;
+import com.example.book.repository.BookRepository;
+import com.example.book.search.BookChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogVersionTest {
+
+    private static final LocalDateTime UPDATED_ON = LocalDateTime.of(2021, 1, 2, 10, 0);
+
+    private final BookRepository repository = mock(BookRepository.class);
+    private final HttpCacheConfig httpCacheConfig = new HttpCacheConfig();
+    private final CatalogVersion catalogVersion = new CatalogVersion(repository, httpCacheConfig);
+
+    @Test
+    void current_KeptForItsTtl() {
+        when(repository.findCatalogStamp()).thenReturn(new CatalogStamp(2L, 5L, UPDATED_ON));
+        String eTag = catalogVersion.current().getETag();
+
+        // written by another instance, seen once the ttl is over
+        when(repository.findCatalogStamp()).thenReturn(new CatalogStamp(2L, 6L, UPDATED_ON));
+        httpCacheConfig.setPageMaxAge(Duration.ZERO);
+        assertEquals(eTag, catalogVersion.current().getETag());
+        verify(repository, times(1)).findCatalogStamp();
+
+        httpCacheConfig.setCatalogVersionTtl(Duration.ZERO);
+        assertNotEquals(eTag, catalogVersion.current().getETag());
+    }
+
+    @Test
+    void current_LocalChange_MovedInMemory() {
+        when(repository.findCatalogStamp()).thenReturn(new CatalogStamp(2L, 5L, UPDATED_ON));
+        String eTag = catalogVersion.current().getETag();
+
+        BookDto book = BookHelper.getBookDto();
+        book.setUpdatedOn(UPDATED_ON.plusMinutes(1));
+        catalogVersion.onBookChanged(BookChangedEvent.saved(book));
+        CatalogVersion.Version version = catalogVersion.current();
+        assertNotEquals(eTag, version.getETag());
+        assertEquals(6L, version.getVersions());
+        assertEquals(UPDATED_ON.plusMinutes(1).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                version.getLastModified());
+
+        catalogVersion.onBookChanged(BookChangedEvent.removed(1L));
+        assertEquals(7L, catalogVersion.current().getVersions());
+        verify(repository, times(1)).findCatalogStamp();
+    }
+
+    @Test
+    void current_NoBooks() {
+        when(repository.findCatalogStamp()).thenReturn(new CatalogStamp(0L, null, null));
+
+        CatalogVersion.Version version = catalogVersion.current();
+
+        assertEquals(0L, version.getLastModified());
+        assertEquals("0-0-0", version.getETag());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.book.cache;
+
+import com.example.book.BookHelper;
+import com.example.book.config.IdempotencyConfig;
+import com.example.book.context.AppContext;
+import com.example.book.dto.request.BookRequestDto;
+import com.example.book.dto.response.CreateBookResponseDto;
+import com.example.book.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private final IdempotencyStore store = new IdempotencyStore(AppContext.objectMapper(), new IdempotencyConfig());
+
+    @Test
+    void claim_ReplaysTheStoredResponse() throws Exception {
+        BookRequestDto request = BookHelper.getBookRequestDto();
+        assertNull(store.claim("POST /books", "k1", request));
+        IdempotentResponse completed = store.complete("POST /books", "k1", HttpStatus.CREATED,
+                new CreateBookResponseDto("1"));
+
+        IdempotentResponse replayed = store.claim("POST /books", "k1", BookHelper.getBookRequestDto());
+        assertSame(completed, replayed);
+        assertEquals(201, replayed.getStatus());
+        assertArrayEquals(AppContext.objectMapper().writeValueAsBytes(new CreateBookResponseDto("1")), replayed.getJson());
+    }
+
+    @Test
+    void claim_WhileRunning() {
+        store.claim("POST /books", "k1", BookHelper.getBookRequestDto());
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> store.claim("POST /books", "k1", BookHelper.getBookRequestDto()));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+    }
+
+    @Test
+    void claim_TimedOut_LetsTheRequestBeRetried() {
+        IdempotencyConfig idempotencyConfig = new IdempotencyConfig();
+        idempotencyConfig.setClaimTimeout(Duration.ZERO);
+        IdempotencyStore store = new IdempotencyStore(AppContext.objectMapper(), idempotencyConfig);
+        store.claim("POST /books", "k1", BookHelper.getBookRequestDto());
+
+        // the first request never completed nor released its key
+        assertNull(store.claim("POST /books", "k1", BookHelper.getBookRequestDto()));
+    }
+
+    @Test
+    void claim_OtherRequest() {
+        store.claim("POST /books", "k1", BookHelper.getBookRequestDto());
+        BookRequestDto other = BookHelper.getBookRequestDto();
+        other.setIsbn("9999999999999");
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> store.claim("POST /books", "k1", other));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatus());
+    }
+
+    @Test
+    void claim_KeysAreScopedToTheEndpoint() {
+        assertNull(store.claim("POST /books", "k1", BookHelper.getBookRequestDto()));
+        assertNull(store.claim("POST /books/checkout", "k1", BookHelper.getBookRequestDto()));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void claim_InvalidKey() {
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> store.claim("POST /books", " ", BookHelper.getBookRequestDto()));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void release_LetsTheRequestBeRetried() {
+        store.claim("POST /books", "k1", BookHelper.getBookRequestDto());
+        store.release("POST /books", "k1");
+
+        assertNull(store.claim("POST /books", "k1", BookHelper.getBookRequestDto()));
+    }
+
+    @Test
+    void release_KeepsAStoredResponse() {
+        store.claim("POST /books", "k1", BookHelper.getBookRequestDto());
+        store.complete("POST /books", "k1", HttpStatus.CREATED, new CreateBookResponseDto("1"));
+        store.release("POST /books", "k1");
+
+        assertNotNull(store.claim("POST /books", "k1", BookHelper.getBookRequestDto()));
+    }
+
+    @Test
+    void claim_OnlyOneConcurrentRequestRuns() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> claims = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<Boolean> claim = () -> {
+                    start.await();
+                    try {
+                        return store.claim("POST /books", "k1", BookHelper.getBookRequestDto()) == null;
+                    } catch (BusinessException ex) {
+                        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+                        return false;
+                    }
+                };
+                claims.add(executor.submit(claim));
+            }
+            start.countDown();
+            int won = 0;
+            for (Future<Boolean> claim : claims) {
+                if (claim.get(10, TimeUnit.SECONDS)) {
+                    won++;
+                }
+            }
+            assertEquals(1, won);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.book.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ExportConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(Properties.class);
+
+    @Test
+    void clearInterval_Bound() {
+        contextRunner.withPropertyValues("book.export.clearInterval=2")
+                .run(context -> assertEquals(2, context.getBean(ExportConfig.class).getClearInterval()));
+    }
+
+    @Test
+    void clearInterval_Zero_FailsStartup() {
+        contextRunner.withPropertyValues("book.export.clearInterval=0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+    }
+
+    @EnableConfigurationProperties(ExportConfig.class)
+    static class Properties {
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.book.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ImportConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(Properties.class);
+
+    @Test
+    void batchSize_Bound() {
+        contextRunner.withPropertyValues("book.import.batchSize=2")
+                .run(context -> assertEquals(2, context.getBean(ImportConfig.class).getBatchSize()));
+    }
+
+    @Test
+    void batchSize_Zero_FailsStartup() {
+        contextRunner.withPropertyValues("book.import.batchSize=0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+    }
+
+    @EnableConfigurationProperties(ImportConfig.class)
+    static class Properties {
+    }
+}
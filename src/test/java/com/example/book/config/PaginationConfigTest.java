@@ -0,0 +1,30 @@
+package com.example.book.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class PaginationConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(Properties.class);
+
+    @Test
+    void streamChunkSize_Bound() {
+        contextRunner.withPropertyValues("book.pagination.streamChunkSize=2")
+                .run(context -> assertEquals(2, context.getBean(PaginationConfig.class).getStreamChunkSize()));
+    }
+
+    @Test
+    void streamChunkSize_Zero_FailsStartup() {
+        contextRunner.withPropertyValues("book.pagination.streamChunkSize=0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+    }
+
+    @EnableConfigurationProperties(PaginationConfig.class)
+    static class Properties {
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.book.controller;
+
+import com.example.book.BookHelper;
+import com.example.book.advice.BooksAdvice;
+import com.example.book.cache.BookCache;
+import com.example.book.config.CacheConfig;
+import com.example.book.context.AppContext;
+import com.example.book.dto.request.PromotionRulesRequestDto;
+import com.example.book.model.DiscountRule;
+import com.example.book.model.PromotionRule;
+import com.example.book.service.PromotionService;
+import com.example.book.util.JsonTool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hamcrest.core.StringContains;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+public class AdminControllerTest {
+
+    @Mock
+    private PromotionService promotionService;
+
+    private final BookCache bookCache = new BookCache(new CacheConfig());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MockMvc mockMvc;
+    private final JsonTool jsonTool = JsonTool.custom(AppContext.objectMapper());
+
+    @BeforeEach
+    void before() {
+        this.mockMvc = MockMvcBuilders.standaloneSetup(new AdminController(promotionService, bookCache))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(AppContext.objectMapper()))
+                .setControllerAdvice(new BooksAdvice(meterRegistry))
+                .build();
+    }
+
+    @Test
+    void getPromotions() throws Exception {
+        when(promotionService.getPromotionRules()).thenReturn(List.of(
+                new PromotionRule("code1", List.of(new DiscountRule("FICTION", BigDecimal.TEN)))));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/admin/promotions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].promotionCode").value("code1"))
+                .andExpect(jsonPath("$[0].discountRules[0].type").value("FICTION"))
+                .andExpect(jsonPath("$[0].discountRules[0].discount").value(10));
+    }
+
+    @Test
+    void replacePromotions() throws Exception {
+        List<PromotionRule> rules = List.of(
+                new PromotionRule("sale", List.of(new DiscountRule("COMICS", BigDecimal.valueOf(20)))));
+        when(promotionService.replacePromotionRules(anyList())).thenReturn(rules);
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/admin/promotions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(new PromotionRulesRequestDto(rules))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].promotionCode").value("sale"))
+                .andExpect(jsonPath("$[0].discountRules[0].discount").value(20));
+    }
+
+    @Test
+    void replacePromotions_InvalidDiscount() throws Exception {
+        List<PromotionRule> rules = List.of(
+                new PromotionRule("sale", List.of(new DiscountRule("COMICS", BigDecimal.valueOf(120)))));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/admin/promotions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(new PromotionRulesRequestDto(rules))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message")
+                        .value(StringContains.containsString("discount must be between 0 and 100")));
+        verifyNoInteractions(promotionService);
+    }
+
+    @Test
+    void replacePromotions_MissingPromotionCode() throws Exception {
+        List<PromotionRule> rules = List.of(new PromotionRule(" ", List.of()));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/admin/promotions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(new PromotionRulesRequestDto(rules))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message")
+                        .value(StringContains.containsString("promotionCode cannot be blank")));
+        verifyNoInteractions(promotionService);
+    }
+
+    @Test
+    void getBookCacheStats() throws Exception {
+        bookCache.get(1L);
+        bookCache.put(1L, BookHelper.getBookDto());
+        bookCache.get(1L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/admin/caches/books"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(1))
+                .andExpect(jsonPath("$.hitCount").value(1))
+                .andExpect(jsonPath("$.missCount").value(1))
+                .andExpect(jsonPath("$.evictionCount").value(0))
+                .andExpect(jsonPath("$.hitRate").value(0.5));
+    }
+}
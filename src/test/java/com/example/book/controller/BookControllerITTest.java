@@ -4,6 +4,8 @@ import com.example.book.BookHelper;
 import com.example.book.dto.BookDto;
 import com.example.book.dto.request.BookRequestDto;
 import com.example.book.dto.request.CheckoutBookRequestDto;
+import com.example.book.dto.response.BookSearchResponseDto;
+import com.example.book.dto.response.CheckoutBatchResultDto;
 import com.example.book.dto.response.CheckoutBookResponse;
 import com.example.book.dto.response.CreateBookResponseDto;
 import com.example.book.model.CheckedOutBook;
@@ -18,6 +20,8 @@ import java.math.BigDecimal;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 public class BookControllerITTest {
@@ -56,9 +60,35 @@ public class BookControllerITTest {
                 new ParameterizedTypeReference<>() {});
         assertEquals(HttpStatus.OK, getBooksResponse.getStatusCode());
         assertEquals(1, getBooksResponse.getBody().size());
+        final String catalogETag = getBooksResponse.getHeaders().getETag();
+
+        // get all books again, nothing changed since
+        HttpHeaders ifNoneMatchCatalog = new HttpHeaders();
+        ifNoneMatchCatalog.setIfNoneMatch(catalogETag);
+        HttpEntity<Void> conditionalGetAllHttpEntity = new HttpEntity<>(ifNoneMatchCatalog);
+        ResponseEntity<String> notModifiedBooksResponse = testRestTemplate.exchange(
+                "/books", HttpMethod.GET, conditionalGetAllHttpEntity, String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModifiedBooksResponse.getStatusCode());
+        assertNull(notModifiedBooksResponse.getBody());
+
+        // stream all books
+        getBooksResponse = testRestTemplate.exchange(
+                "/books?stream=true",
+                HttpMethod.GET,
+                getAllHttpEntity,
+                new ParameterizedTypeReference<>() {});
+        assertEquals(HttpStatus.OK, getBooksResponse.getStatusCode());
+        assertEquals(1, getBooksResponse.getBody().size());
 
         final String bookId = createResponse.getBody().getId();
 
+        // search books
+        ResponseEntity<BookSearchResponseDto> searchResponse = testRestTemplate.getForEntity(
+                "/books/search?q=harry pot*", BookSearchResponseDto.class);
+        assertEquals(HttpStatus.OK, searchResponse.getStatusCode());
+        assertEquals(1, searchResponse.getBody().getTotal());
+        assertEquals(bookId, searchResponse.getBody().getBooks().get(0).getId());
+
         // get book details
         HttpEntity<Void> getBookHttpEntity = new HttpEntity<>(new HttpHeaders());
         ResponseEntity<BookDto> getBookResponse = testRestTemplate.exchange(
@@ -67,18 +97,47 @@ public class BookControllerITTest {
                 getBookHttpEntity,
                 BookDto.class);
         assertEquals(HttpStatus.OK, getBookResponse.getStatusCode());
+        final String eTag = getBookResponse.getHeaders().getETag();
+        assertNotEquals(-1, getBookResponse.getHeaders().getLastModified());
+
+        // get book details again, not changed since
+        HttpHeaders ifNoneMatchBook = new HttpHeaders();
+        ifNoneMatchBook.setIfNoneMatch(eTag);
+        ResponseEntity<String> notModifiedBookResponse = testRestTemplate.exchange(
+                "/books/" + bookId, HttpMethod.GET, new HttpEntity<>(ifNoneMatchBook), String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModifiedBookResponse.getStatusCode());
 
         // update book details
         BookRequestDto updateRequest = BookHelper.getBookRequestDto();
         updateRequest.setBookPrice(BigDecimal.valueOf(50));
-        HttpEntity<BookRequestDto> updateHttpEntity = new HttpEntity<>(updateRequest);
+        HttpHeaders updateHeaders = new HttpHeaders();
+        updateHeaders.setIfMatch(eTag);
+        HttpEntity<BookRequestDto> updateHttpEntity = new HttpEntity<>(updateRequest, updateHeaders);
         ResponseEntity<BookDto> updateResponse = testRestTemplate.exchange(
                 "/books/" + bookId,
                 HttpMethod.PUT,
                 updateHttpEntity,
                 BookDto.class);
         assertEquals(HttpStatus.OK, updateResponse.getStatusCode());
-        assertEquals(BigDecimal.valueOf(50), updateResponse.getBody().getBookPrice());
+        assertEquals(new BigDecimal("50.00"), updateResponse.getBody().getBookPrice());
+        assertNotEquals(eTag, updateResponse.getHeaders().getETag());
+
+        // update again with the version read before the first update
+        ResponseEntity<BookDto> staleUpdateResponse = testRestTemplate.exchange(
+                "/books/" + bookId,
+                HttpMethod.PUT,
+                updateHttpEntity,
+                BookDto.class);
+        assertEquals(HttpStatus.PRECONDITION_FAILED, staleUpdateResponse.getStatusCode());
+
+        // the catalog changed with the update
+        getBooksResponse = testRestTemplate.exchange(
+                "/books",
+                HttpMethod.GET,
+                conditionalGetAllHttpEntity,
+                new ParameterizedTypeReference<>() {});
+        assertEquals(HttpStatus.OK, getBooksResponse.getStatusCode());
+        assertEquals(BigDecimal.valueOf(50).setScale(2), getBooksResponse.getBody().get(0).getBookPrice());
 
         BookDto bookDto = updateResponse.getBody();
         CheckoutBookRequestDto checkoutRequest = new CheckoutBookRequestDto();
@@ -101,6 +160,19 @@ public class BookControllerITTest {
                 CheckoutBookResponse.class);
         assertEquals(HttpStatus.OK, checkoutResponse.getStatusCode());
 
+        // price several carts at once
+        CheckoutBookRequestDto unknownPromoRequest = new CheckoutBookRequestDto();
+        unknownPromoRequest.setPromoCode("unknown");
+        unknownPromoRequest.setItems(List.of(item));
+        ResponseEntity<List<CheckoutBatchResultDto>> batchResponse = testRestTemplate.exchange(
+                "/books/checkout/batch",
+                HttpMethod.POST,
+                new HttpEntity<>(List.of(checkoutRequest, unknownPromoRequest)),
+                new ParameterizedTypeReference<>() {});
+        assertEquals(HttpStatus.OK, batchResponse.getStatusCode());
+        assertEquals(checkoutResponse.getBody().getPriceAfterDiscount(), batchResponse.getBody().get(0).getPriceAfterDiscount());
+        assertEquals(400, batchResponse.getBody().get(1).getStatus());
+
         // delete book details
         HttpEntity<Void> deleteHttpEntity = new HttpEntity<>(new HttpHeaders());
         ResponseEntity<Void> deleteResponse = testRestTemplate.exchange(
@@ -110,6 +182,16 @@ public class BookControllerITTest {
                 Void.class);
         assertEquals(HttpStatus.NO_CONTENT, deleteResponse.getStatusCode());
 
+        // delete it again
+        deleteResponse = testRestTemplate.exchange(
+                "/books/" + bookId,
+                HttpMethod.DELETE,
+                deleteHttpEntity,
+                Void.class);
+        assertEquals(HttpStatus.CONFLICT, deleteResponse.getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND,
+                testRestTemplate.getForEntity("/books/" + bookId, String.class).getStatusCode());
+
         // get all books
         getBooksResponse = testRestTemplate.exchange(
                 "/books",
@@ -3,14 +3,41 @@ package com.example.book.controller;
 import com.example.book.BookHelper;
 import com.example.book.context.AppContext;
 import com.example.book.advice.BooksAdvice;
+import com.example.book.cache.BookJsonCache;
+import com.example.book.cache.CatalogStamp;
+import com.example.book.cache.CatalogVersion;
+import com.example.book.cache.IdempotencyStore;
+import com.example.book.config.CheckoutConfig;
+import com.example.book.config.ExecutionConfig;
+import com.example.book.config.HttpCacheConfig;
+import com.example.book.config.IdempotencyConfig;
+import com.example.book.config.JsonCacheConfig;
+import com.example.book.config.PaginationConfig;
 import com.example.book.dto.BookDto;
+import com.example.book.dto.request.BookPatchRequestDto;
 import com.example.book.dto.request.BookRequestDto;
 import com.example.book.dto.request.CheckoutBookRequestDto;
+import com.example.book.dto.response.BookBatchResponseDto;
+import com.example.book.dto.response.BookPageDto;
+import com.example.book.dto.response.BookSearchResponseDto;
+import com.example.book.dto.response.CheckoutBatchResultDto;
 import com.example.book.dto.response.CheckoutBookResponse;
 import com.example.book.dto.response.CreateBookResponseDto;
+import com.example.book.exception.BusinessException;
 import com.example.book.model.CheckedOutBook;
+import com.example.book.dto.response.BookImportErrorDto;
+import com.example.book.dto.response.BookImportResponseDto;
+import com.example.book.model.CatalogFormat;
+import com.example.book.model.ExecutionMode;
+import com.example.book.model.PricingMode;
+import com.example.book.repository.BookRepository;
+import com.example.book.search.BookChangedEvent;
+import com.example.book.service.BookExportService;
+import com.example.book.service.BookImportService;
+import com.example.book.service.BookSearchService;
 import com.example.book.service.BookService;
 import com.example.book.util.JsonTool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hamcrest.core.StringContains;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,23 +48,53 @@ import org.junit.jupiter.params.provider.NullSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -46,14 +103,41 @@ public class BooksControllerTest {
     @Mock
     private BookService bookService;
 
+    @Mock
+    private BookImportService bookImportService;
+
+    @Mock
+    private BookExportService bookExportService;
+
+    @Mock
+    private BookSearchService bookSearchService;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutionConfig executionConfig = new ExecutionConfig();
+    private final CheckoutConfig checkoutConfig = new CheckoutConfig();
+    private final PaginationConfig paginationConfig = new PaginationConfig();
+    private final JsonCacheConfig jsonCacheConfig = new JsonCacheConfig();
+    private CatalogVersion catalogVersion;
+    private BookJsonCache bookJsonCache;
     private MockMvc mockMvc;
     private final JsonTool jsonTool = JsonTool.custom(AppContext.objectMapper());
 
     @BeforeEach
     void before() {
-        this.mockMvc = MockMvcBuilders.standaloneSetup(new BooksController(bookService))
-                .setMessageConverters(new MappingJackson2HttpMessageConverter(AppContext.objectMapper()))
-                .setControllerAdvice(new BooksAdvice())
+        lenient().when(bookRepository.findCatalogStamp()).thenReturn(new CatalogStamp(0L, null, null));
+        catalogVersion = new CatalogVersion(bookRepository, new HttpCacheConfig());
+        bookJsonCache = new BookJsonCache(AppContext.objectMapper(), jsonCacheConfig);
+        this.mockMvc = MockMvcBuilders.standaloneSetup(new BooksController(
+                bookService, bookImportService, bookExportService, bookSearchService, AppContext.objectMapper(),
+                executionConfig, checkoutConfig, paginationConfig, Validation.buildDefaultValidatorFactory().getValidator(),
+                catalogVersion, new HttpCacheConfig(), bookJsonCache,
+                new IdempotencyStore(AppContext.objectMapper(), new IdempotencyConfig())))
+                .setMessageConverters(new ByteArrayHttpMessageConverter(),
+                        new MappingJackson2HttpMessageConverter(AppContext.objectMapper()))
+                .setControllerAdvice(new BooksAdvice(meterRegistry))
                 .build();
     }
 
@@ -79,6 +163,80 @@ public class BooksControllerTest {
         assertEquals(expectedResponse, actualResponse);
     }
 
+    @Test
+    void addBook_IdempotencyKey_ReplaysFirstResponse() throws Exception {
+        when(bookService.saveBook(isA(BookRequestDto.class))).thenReturn(new CreateBookResponseDto("1"));
+        String body = jsonTool.toJson(BookHelper.getBookRequestDto());
+
+        MvcResult first = mockMvc.perform(MockMvcRequestBuilders.post("/books")
+                .header("Idempotency-Key", "a1")
+                .content(body)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn();
+        MvcResult retried = mockMvc.perform(MockMvcRequestBuilders.post("/books")
+                .header("Idempotency-Key", "a1")
+                .content(body)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andReturn();
+
+        assertEquals("1", jsonTool.load(first.getResponse().getContentAsString(), CreateBookResponseDto.class).getId());
+        assertEquals(first.getResponse().getContentAsString(), retried.getResponse().getContentAsString());
+        verify(bookService, times(1)).saveBook(isA(BookRequestDto.class));
+    }
+
+    @Test
+    void addBook_IdempotencyKey_OtherBook() throws Exception {
+        when(bookService.saveBook(isA(BookRequestDto.class))).thenReturn(new CreateBookResponseDto("1"));
+        BookRequestDto request = BookHelper.getBookRequestDto();
+        mockMvc.perform(MockMvcRequestBuilders.post("/books")
+                .header("Idempotency-Key", "a1")
+                .content(jsonTool.toJson(request))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        request.setIsbn("9999999999999");
+        mockMvc.perform(MockMvcRequestBuilders.post("/books")
+                .header("Idempotency-Key", "a1")
+                .content(jsonTool.toJson(request))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnprocessableEntity());
+        verify(bookService, times(1)).saveBook(isA(BookRequestDto.class));
+    }
+
+    @Test
+    void addBook_IdempotencyKey_FailureIsNotStored() throws Exception {
+        when(bookService.saveBook(isA(BookRequestDto.class)))
+                .thenThrow(new BusinessException(HttpStatus.SERVICE_UNAVAILABLE, "Database unavailable"))
+                .thenReturn(new CreateBookResponseDto("1"));
+        String body = jsonTool.toJson(BookHelper.getBookRequestDto());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books")
+                .header("Idempotency-Key", "a1")
+                .content(body)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable());
+        mockMvc.perform(MockMvcRequestBuilders.post("/books")
+                .header("Idempotency-Key", "a1")
+                .content(body)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value("1"));
+    }
+
+    @Test
+    void addBook_IdempotencyKey_TooLong() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/books")
+                .header("Idempotency-Key", "k".repeat(256))
+                .content(jsonTool.toJson(BookHelper.getBookRequestDto()))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(bookService);
+    }
+
     @ParameterizedTest
     @NullSource
     @EmptySource
@@ -211,20 +369,242 @@ public class BooksControllerTest {
                         .value(StringContains.containsString("msg : isbn must be exactly 13 digits")));
     }
 
+    @Test
+    void importBooks_Csv() throws Exception {
+
+        BookImportResponseDto expectedResponse = new BookImportResponseDto(1, 1,
+                List.of(new BookImportErrorDto(3, "1234567890123", "duplicate isbn")));
+        when(bookImportService.importBooks(any(), eq(CatalogFormat.CSV))).thenReturn(expectedResponse);
+
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.post("/books/import")
+                        .content("bookName,author,isbn\n")
+                        .contentType("text/csv;charset=UTF-8"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals(expectedResponse,
+                jsonTool.load(result.getResponse().getContentAsString(), BookImportResponseDto.class));
+    }
+
+    @Test
+    void importBooks_UnsupportedContentType() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/books/import")
+                        .content("[]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
     @Test
     void getAllBooks() throws Exception {
 
         List<BookDto> expectedResponse = BookHelper.getBooksDto();
-        when(bookService.getBooks()).thenReturn(expectedResponse);
+        when(bookService.getBooks(null, null)).thenReturn(new BookPageDto(expectedResponse, null));
 
         MvcResult result = mockMvc.perform(
                 MockMvcRequestBuilders.get("/books"))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andReturn();
+
+        assertEquals(jsonTool.toJson(expectedResponse), result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void getAllBooks_CatalogVersionAsETag() throws Exception {
+        when(bookRepository.findCatalogStamp()).thenReturn(new CatalogStamp(2L, 5L, LocalDateTime.of(2021, 1, 2, 10, 0)));
+        String eTag = "\"" + catalogVersion.current().getETag() + "\"";
+        when(bookService.getBooks(null, null)).thenReturn(new BookPageDto(BookHelper.getBooksDto(), null));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(header().dateValue("Last-Modified",
+                        LocalDateTime.of(2021, 1, 2, 10, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()))
+                .andExpect(header().string("Cache-Control", "max-age=10, public"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(header().string("Cache-Control", "max-age=10, public"))
+                .andExpect(content().string(""));
+        verify(bookService, times(1)).getBooks(null, null);
+
+        // a local write moves the version without another aggregate
+        catalogVersion.onBookChanged(BookChangedEvent.removed(1L));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)));
+        verify(bookService, times(2)).getBooks(null, null);
+        verify(bookRepository, times(1)).findCatalogStamp();
+    }
+
+    @Test
+    void getAllBooks_NextPage() throws Exception {
+
+        List<BookDto> expectedResponse = BookHelper.getBooksDto();
+        when(bookService.getBooks(10L, 2)).thenReturn(new BookPageDto(expectedResponse, "2"));
+
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/books").param("after", "10").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "2"))
                 .andReturn();
 
         assertEquals(jsonTool.toJson(expectedResponse), result.getResponse().getContentAsString());
     }
 
+    @Test
+    void getAllBooks_ByType() throws Exception {
+
+        List<BookDto> expectedResponse = BookHelper.getBooksDto();
+        when(bookService.getBooksByType("COMICS", 10L, null)).thenReturn(new BookPageDto(expectedResponse, null));
+
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/books").param("type", "COMICS").param("after", "10"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals(jsonTool.toJson(expectedResponse), result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void getAllBooks_ByPrice() throws Exception {
+
+        List<BookDto> expectedResponse = BookHelper.getBooksDto();
+        when(bookService.getBooksByPrice(new BigDecimal("10.5"), null, "12.00:7", 2))
+                .thenReturn(new BookPageDto(expectedResponse, "100:2"));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/books")
+                        .param("minPrice", "10.5").param("after", "12.00:7").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "100:2"));
+    }
+
+    @Test
+    void getAllBooks_SeveralFilters() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("type", "COMICS").param("maxPrice", "10"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Filter by one of type, author or price at a time"));
+    }
+
+    @Test
+    void getAllBooks_InvalidCursor() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("after", "1a"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(
+                        StringContains.containsString("Book Id format not valid")));
+    }
+
+    @Test
+    void getAllBooks_InvalidLimit() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("limit", "ten"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid value for parameter 'limit'"));
+    }
+
+    @Test
+    void getBooksByIds() throws Exception {
+        BookBatchResponseDto expectedResponse = new BookBatchResponseDto(BookHelper.getBooksDto(), List.of("7"));
+        when(bookService.getBooksByIds(List.of(1L, 2L, 7L))).thenReturn(expectedResponse);
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/books").param("ids", "1,2,7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.missingIds[0]").value("7"))
+                .andReturn();
+
+        assertEquals(expectedResponse, jsonTool.load(result.getResponse().getContentAsString(), BookBatchResponseDto.class));
+        verify(bookService, never()).getBooks(any(), any());
+    }
+
+    @Test
+    void getBooksByIds_InvalidId() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("ids", "1,abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Book Id format not valid"));
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void getBooksByIds_TooMany() throws Exception {
+        paginationConfig.setMaxIds(2);
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("ids", "1,2,abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Between 1 and 2 ids can be read at a time"));
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void streamAllBooks() throws Exception {
+
+        List<BookDto> expectedResponse = BookHelper.getBooksDto();
+        doAnswer(invocation -> {
+            Consumer<BookDto> action = invocation.getArgument(0);
+            expectedResponse.forEach(action);
+            return null;
+        }).when(bookService).forEachBook(any());
+
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/books").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult streamed = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals(jsonTool.toJson(expectedResponse), streamed.getResponse().getContentAsString());
+    }
+
+    @Test
+    void exportBooks_Csv() throws Exception {
+
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("id,bookName\n1,Dune\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(bookExportService).exportBooks(eq(CatalogFormat.CSV), any());
+
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/books/export").param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult exported = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andReturn();
+
+        assertEquals("id,bookName\n1,Dune\n", exported.getResponse().getContentAsString());
+    }
+
+    @Test
+    void exportBooks_UnsupportedFormat() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/export").param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unsupported export format xml"));
+    }
+
+    @Test
+    void searchBooks() throws Exception {
+
+        BookSearchResponseDto expectedResponse = new BookSearchResponseDto(2, BookHelper.getBooksDto(),
+                Map.of("COMICS", 2L), Map.of("100+", 2L), false);
+        when(bookSearchService.search("harry pot*", "COMICS", null, 5)).thenReturn(expectedResponse);
+
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/books/search")
+                        .param("q", "harry pot*").param("type", "COMICS").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals(expectedResponse,
+                jsonTool.load(result.getResponse().getContentAsString(), BookSearchResponseDto.class));
+    }
+
     @Test
     void getBook() throws Exception {
 
@@ -246,6 +626,8 @@ public class BooksControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message").value(
                         StringContains.containsString("Book Id format not valid")));
+        assertEquals(1, meterRegistry.get("book.errors")
+                .tags("status", "400", "exception", "BusinessException").counter().count());
     }
 
     @Test
@@ -256,7 +638,7 @@ public class BooksControllerTest {
         BookDto expectedResponse = BookHelper.getBookDto();
         expectedResponse.setBookDescription("Best selling sci-fi book");
 
-        when(bookService.updateBook(eq(1L), isA(BookRequestDto.class))).thenReturn(expectedResponse);
+        when(bookService.updateBook(eq(1L), isA(BookRequestDto.class), isNull())).thenReturn(expectedResponse);
 
         MvcResult result = mockMvc.perform(MockMvcRequestBuilders.put("/books/1")
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
@@ -268,6 +650,196 @@ public class BooksControllerTest {
         assertEquals(expectedResponse, actualResponse);
     }
 
+    @Test
+    void getBook_SendsVersionAsETag() throws Exception {
+        BookDto book = BookHelper.getBookDto();
+        book.setVersion(3L);
+        when(bookService.getBook(1L)).thenReturn(book);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    void getBook_SendsLastModifiedAndCacheControl() throws Exception {
+        BookDto book = BookHelper.getBookDto();
+        book.setVersion(3L);
+        book.setUpdatedOn(LocalDateTime.of(2021, 1, 2, 10, 0, 30));
+        when(bookService.getBook(1L)).thenReturn(book);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().dateValue("Last-Modified",
+                        book.getUpdatedOn().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()))
+                .andExpect(header().string("Cache-Control", "max-age=60, public"))
+                .andExpect(jsonPath("$.updatedOn").doesNotExist());
+    }
+
+    @Test
+    void getBook_Gzip() throws Exception {
+        jsonCacheConfig.setGzip(true);
+        before();
+        BookDto book = BookHelper.getBookDto();
+        book.setVersion(3L);
+        book.setBookDescription("A long description, a long description, a long description, a long description");
+        when(bookService.getBook(1L)).thenReturn(book);
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/books/1")
+                .header("Accept-Encoding", "deflate, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(header().string("ETag", "\"3\""))
+                .andReturn();
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertEquals(jsonTool.toJson(book), new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1").header("If-None-Match", "\"3\"")
+                .header("Accept-Encoding", "gzip"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(header().string("Vary", "Accept-Encoding"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1").header("Accept-Encoding", "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().json(jsonTool.toJson(book), true));
+    }
+
+    @Test
+    void getBook_GzipNotSmaller_SendsJson() throws Exception {
+        jsonCacheConfig.setGzip(true);
+        before();
+        BookDto book = BookDto.builder().id("1").version(3L).build();
+        when(bookService.getBook(1L)).thenReturn(book);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1").header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(header().stringValues("ETag", "\"3\""))
+                .andExpect(content().json(jsonTool.toJson(book), true));
+    }
+
+    @Test
+    void getBook_NotModified() throws Exception {
+        BookDto book = BookHelper.getBookDto();
+        book.setVersion(3L);
+        book.setUpdatedOn(LocalDateTime.of(2021, 1, 2, 10, 0, 30));
+        when(bookService.getBook(1L)).thenReturn(book);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(header().string("Cache-Control", "max-age=60, public"))
+                .andExpect(content().string(""));
+        // answered without encoding the book
+        assertEquals(0, bookJsonCache.size());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1").header("If-None-Match", "\"2\""))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1")
+                .header("If-Modified-Since", "Sat, 02 Jan 2100 10:00:00 GMT"))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void updateBook_IfMatch() throws Exception {
+        BookDto updated = BookHelper.getBookDto();
+        updated.setVersion(4L);
+        when(bookService.updateBook(eq(1L), isA(BookRequestDto.class), eq(Set.of(3L)))).thenReturn(updated);
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/books/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(jsonTool.toJson(BookHelper.getBookRequestDto())))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    void updateBook_IfMatchList() throws Exception {
+        BookDto updated = BookHelper.getBookDto();
+        updated.setVersion(6L);
+        when(bookService.updateBook(eq(1L), isA(BookRequestDto.class), eq(Set.of(3L, 5L)))).thenReturn(updated);
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/books/1")
+                .header("If-Match", "\"3\", W/\"4\" ,\"5\"")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(jsonTool.toJson(BookHelper.getBookRequestDto())))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"6\""));
+    }
+
+    @Test
+    void updateBook_WeakIfMatch() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/books/1")
+                .header("If-Match", "W/\"3\", W/\"4\"")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(jsonTool.toJson(BookHelper.getBookRequestDto())))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.message").value("If-Match must be the strong ETag of the book"));
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void updateBook_StaleIfMatch() throws Exception {
+        when(bookService.updateBook(eq(1L), isA(BookRequestDto.class), eq(Set.of(3L))))
+                .thenThrow(new BusinessException(HttpStatus.PRECONDITION_FAILED, "Book was modified since it was read"));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/books/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(jsonTool.toJson(BookHelper.getBookRequestDto())))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.message").value("Book was modified since it was read"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"abc", "\"\"", "W/"})
+    void updateBook_InvalidIfMatch(String ifMatch) throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/books/1")
+                .header("If-Match", ifMatch)
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(jsonTool.toJson(BookHelper.getBookRequestDto())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("If-Match must be an ETag of the book"));
+    }
+
+    @Test
+    void patchBook() throws Exception {
+        BookDto patched = BookHelper.getBookDto();
+        patched.setAuthor("Someone Else");
+        patched.setVersion(2L);
+        when(bookService.patchBook(eq(1L), isA(BookPatchRequestDto.class), eq(Set.of(1L)))).thenReturn(patched);
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.patch("/books/1")
+                .header("If-Match", "\"1\"")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("{\"author\":\"Someone Else\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andReturn();
+
+        assertEquals("Someone Else",
+                jsonTool.load(result.getResponse().getContentAsString(), BookDto.class).getAuthor());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"{\"author\":\" \"}", "{\"isbn\":\"123\"}", "{\"bookPrice\":0}", "{\"bookName\":\"  \"}"})
+    void patchBook_InvalidField(String body) throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.patch("/books/1")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(body))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void updateBook_InvalidId() throws Exception {
         mockMvc.perform(MockMvcRequestBuilders.put("/books/1a")
@@ -452,6 +1024,227 @@ public class BooksControllerTest {
                 result.getResponse().getContentAsString(), CheckoutBookResponse.class));
     }
 
+    @Test
+    void checkout_Async() throws Exception {
+        executionConfig.setMode(ExecutionMode.ASYNC);
+        CheckoutBookResponse expectedResponse = new CheckoutBookResponse(BigDecimal.valueOf(300), BigDecimal.valueOf(270));
+        CompletableFuture<CheckoutBookResponse> pending = new CompletableFuture<>();
+        when(bookService.calculateBookPaymentAsync(isA(CheckoutBookRequestDto.class))).thenReturn(pending);
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(checkoutRequest())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        pending.complete(expectedResponse);
+
+        MvcResult completed = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals(expectedResponse, jsonTool.load(
+                completed.getResponse().getContentAsString(), CheckoutBookResponse.class));
+    }
+
+    @Test
+    void checkout_Async_Failed() throws Exception {
+        executionConfig.setMode(ExecutionMode.ASYNC);
+        when(bookService.calculateBookPaymentAsync(isA(CheckoutBookRequestDto.class))).thenReturn(
+                CompletableFuture.failedFuture(new BusinessException(HttpStatus.NOT_FOUND, "Book 1 is no longer sold here")));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(checkoutRequest())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Book 1 is no longer sold here"));
+    }
+
+    @Test
+    void checkout_Async_Rejected() throws Exception {
+        executionConfig.setMode(ExecutionMode.ASYNC);
+        when(bookService.calculateBookPaymentAsync(isA(CheckoutBookRequestDto.class)))
+                .thenThrow(new RejectedExecutionException());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(checkoutRequest())))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void checkout_IdempotencyKey_ReplaysFirstResponse() throws Exception {
+        when(bookService.calculateBookPayment(isA(CheckoutBookRequestDto.class)))
+                .thenReturn(new CheckoutBookResponse(BigDecimal.valueOf(300), BigDecimal.valueOf(270)));
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout")
+                    .header("Idempotency-Key", "c1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(jsonTool.toJson(checkoutRequest())))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.priceAfterDiscount").value(270));
+        }
+        verify(bookService, times(1)).calculateBookPayment(isA(CheckoutBookRequestDto.class));
+    }
+
+    @Test
+    void checkout_IdempotencyKey_Async() throws Exception {
+        executionConfig.setMode(ExecutionMode.ASYNC);
+        CompletableFuture<CheckoutBookResponse> pending = new CompletableFuture<>();
+        when(bookService.calculateBookPaymentAsync(isA(CheckoutBookRequestDto.class))).thenReturn(pending);
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout")
+                .header("Idempotency-Key", "c1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(checkoutRequest())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // the first checkout still runs
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout")
+                .header("Idempotency-Key", "c1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(checkoutRequest())))
+                .andExpect(status().isConflict());
+
+        pending.complete(new CheckoutBookResponse(BigDecimal.valueOf(300), BigDecimal.valueOf(270)));
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.priceAfterDiscount").value(270));
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout")
+                .header("Idempotency-Key", "c1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(checkoutRequest())))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.priceAfterDiscount").value(270));
+        verify(bookService, times(1)).calculateBookPaymentAsync(isA(CheckoutBookRequestDto.class));
+    }
+
+    @Test
+    void checkout_IdempotencyKey_Async_Failed() throws Exception {
+        executionConfig.setMode(ExecutionMode.ASYNC);
+        when(bookService.calculateBookPaymentAsync(isA(CheckoutBookRequestDto.class))).thenReturn(
+                CompletableFuture.failedFuture(new BusinessException(HttpStatus.NOT_FOUND, "Book 1 is no longer sold here")),
+                CompletableFuture.completedFuture(new CheckoutBookResponse(BigDecimal.valueOf(300), BigDecimal.valueOf(270))));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout")
+                .header("Idempotency-Key", "c1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(checkoutRequest())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Book 1 is no longer sold here"));
+
+        result = mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout")
+                .header("Idempotency-Key", "c1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(checkoutRequest())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
+    private static CheckoutBookRequestDto checkoutRequest() {
+        CheckedOutBook checkedOutBook = new CheckedOutBook();
+        checkedOutBook.setId("1");
+        checkedOutBook.setType("FICTION");
+        checkedOutBook.setQuantity(3);
+        checkedOutBook.setBookPrice(BigDecimal.valueOf(100));
+        CheckoutBookRequestDto request = new CheckoutBookRequestDto();
+        request.setItems(List.of(checkedOutBook));
+        return request;
+    }
+
+    @Test
+    void checkoutBatch() throws Exception {
+        CheckoutBookRequestDto invalid = new CheckoutBookRequestDto();
+        List<CheckoutBookRequestDto> carts = List.of(checkoutRequest(), invalid, checkoutRequest());
+        when(bookService.calculateBookPayments(any())).thenReturn(List.of(
+                new CheckoutBatchResultDto(200, BigDecimal.valueOf(300), BigDecimal.valueOf(270), null),
+                new CheckoutBatchResultDto(400, null, null, "Invalid promo code")));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(carts)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].priceAfterDiscount").value(270))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].message").value(StringContains.containsString("field: 'items'")))
+                .andExpect(jsonPath("$[2].status").value(400))
+                .andExpect(jsonPath("$[2].message").value("Invalid promo code"));
+
+        // only the valid carts reach the service
+        verify(bookService).calculateBookPayments(argThat(priced -> priced.size() == 2));
+    }
+
+    @Test
+    void checkoutBatch_TooLarge() throws Exception {
+        checkoutConfig.setMaxBatchSize(2);
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(List.of(checkoutRequest(), checkoutRequest(), checkoutRequest()))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("A batch holds between 1 and 2 carts"));
+    }
+
+    @Test
+    void checkoutBatch_Empty() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void checkout_MissingPrice() throws Exception {
+        CheckoutBookRequestDto request = checkoutRequest();
+        request.getItems().get(0).setBookPrice(null);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(
+                        StringContains.containsString("field: 'items[0].bookPrice', rejected val: [null]")));
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(List.of(request))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(400))
+                .andExpect(jsonPath("$[0].message").value(
+                        StringContains.containsString("field: 'items[0].bookPrice', rejected val: [null]")));
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void checkout_CatalogPricing_WithoutPrice() throws Exception {
+        checkoutConfig.setPricing(PricingMode.CATALOG);
+        CheckoutBookRequestDto request = checkoutRequest();
+        request.getItems().get(0).setBookPrice(null);
+        when(bookService.calculateBookPayment(isA(CheckoutBookRequestDto.class)))
+                .thenReturn(new CheckoutBookResponse(BigDecimal.valueOf(300), BigDecimal.valueOf(300)));
+        when(bookService.calculateBookPayments(anyList()))
+                .thenReturn(List.of(new CheckoutBatchResultDto(200, BigDecimal.valueOf(300), BigDecimal.valueOf(300), null)));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(request)))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/checkout/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(List.of(request))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200));
+    }
+
     @Test
     void checkout_MissingItems() throws Exception {
         CheckoutBookRequestDto request = new CheckoutBookRequestDto();
@@ -0,0 +1,155 @@
+package com.example.book.controller;
+
+import com.example.book.BookHelper;
+import com.example.book.context.AppContext;
+import com.example.book.dto.response.CheckoutBookResponse;
+import com.example.book.entity.Book;
+import com.example.book.model.BookStatus;
+import com.example.book.repository.BookRepository;
+import com.example.book.util.JsonTool;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test of the async checkout path: catalog priced checkouts on a server with 4 request threads and 4 jdbc
+ * threads. Every book load is held back until all checkouts have reached the server, which shows that thousands of
+ * them can be in flight at once, each parked in the jdbc queue rather than on a thread. The number of checkouts can
+ * be raised with -Dcheckout.load.requests.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loaddb",
+        "book.execution.mode=ASYNC",
+        "book.execution.jdbcThreads=" + CheckoutLoadTest.JDBC_THREADS,
+        "book.checkout.pricing=CATALOG",
+        "server.tomcat.threads.max=" + CheckoutLoadTest.REQUEST_THREADS,
+        "server.tomcat.threads.min-spare=" + CheckoutLoadTest.REQUEST_THREADS,
+        "server.tomcat.accept-count=10000",
+        "spring.mvc.async.request-timeout=120s",
+        "spring.jpa.show-sql=false"})
+@Slf4j
+public class CheckoutLoadTest {
+
+    static final int REQUEST_THREADS = 4;
+    static final int JDBC_THREADS = 4;
+    private static final int REQUESTS = Integer.getInteger("checkout.load.requests", 2000);
+    private static final CountDownLatch LOADS_RELEASED = new CountDownLatch(1);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final JsonTool jsonTool = JsonTool.custom(AppContext.objectMapper());
+
+    @TestConfiguration
+    static class HoldBackLoads {
+
+        /**
+         * Makes every findAllById wait for the test to release it, the way a slow database would.
+         */
+        @Bean
+        static BeanPostProcessor holdBackLoadsPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                    if (bean instanceof RepositoryFactoryBeanSupport) {
+                        ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                                factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                                            if (invocation.getMethod().getName().equals("findAllById")) {
+                                                LOADS_RELEASED.await(120, TimeUnit.SECONDS);
+                                            }
+                                            return invocation.proceed();
+                                        })));
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    @Test
+    void thousandsOfCheckoutsInFlight() throws Exception {
+        Book book = BookHelper.getBookWithoutId();
+        book.setType("FICTION");
+        book.setStatus(BookStatus.ACTIVE);
+        book = bookRepository.save(book);
+        String body = "{\"promoCode\":\"code1\",\"items\":[{\"id\":\"" + book.getId() + "\",\"quantity\":2}]}";
+
+        ExecutorService clientThreads = Executors.newFixedThreadPool(2);
+        try {
+            HttpClient client = HttpClient.newBuilder().executor(clientThreads).version(HttpClient.Version.HTTP_1_1).build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/books/checkout"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+
+            long started = System.nanoTime();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+
+            // every checkout is on the server: JDBC_THREADS loads held back, the others queued for a jdbc thread
+            long deadline = System.currentTimeMillis() + 60_000;
+            while (queuedLoads() < REQUESTS - JDBC_THREADS && System.currentTimeMillis() < deadline
+                    && responses.stream().noneMatch(CompletableFuture::isDone)) {
+                Thread.sleep(50);
+            }
+            int liveThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+            assertEquals(REQUESTS - JDBC_THREADS, queuedLoads());
+            assertTrue(liveThreads < 200, "live threads: " + liveThreads);
+
+            LOADS_RELEASED.countDown();
+            CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).get(120, TimeUnit.SECONDS);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+            CheckoutBookResponse expected = new CheckoutBookResponse(new BigDecimal("200.00"), new BigDecimal("180.00"));
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals(200, response.get().statusCode(), response.get().body());
+                assertEquals(expected, jsonTool.load(response.get().body(), CheckoutBookResponse.class));
+            }
+            log.info("{} checkouts in flight at once on {} request threads and {} jdbc threads "
+                            + "({} live JVM threads), all answered in {} ms",
+                    REQUESTS, REQUEST_THREADS, JDBC_THREADS, liveThreads, elapsedMillis);
+        } finally {
+            LOADS_RELEASED.countDown();
+            clientThreads.shutdownNow();
+            bookRepository.deleteAll();
+        }
+    }
+
+    private double queuedLoads() {
+        return meterRegistry.get("executor.queued").tag("name", "jdbc").gauge().value();
+    }
+}
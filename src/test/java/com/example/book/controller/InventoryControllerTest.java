@@ -0,0 +1,99 @@
+package com.example.book.controller;
+
+import com.example.book.advice.BooksAdvice;
+import com.example.book.context.AppContext;
+import com.example.book.dto.request.RestockRequestDto;
+import com.example.book.dto.response.StockDto;
+import com.example.book.exception.BusinessException;
+import com.example.book.service.InventoryService;
+import com.example.book.util.JsonTool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+public class InventoryControllerTest {
+
+    @Mock
+    private InventoryService inventoryService;
+
+    private MockMvc mockMvc;
+    private final JsonTool jsonTool = JsonTool.custom(AppContext.objectMapper());
+
+    @BeforeEach
+    void before() {
+        this.mockMvc = MockMvcBuilders.standaloneSetup(new InventoryController(inventoryService))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(AppContext.objectMapper()))
+                .setControllerAdvice(new BooksAdvice(new SimpleMeterRegistry()))
+                .build();
+    }
+
+    @Test
+    void getStock() throws Exception {
+        when(inventoryService.getStock(1L)).thenReturn(new StockDto("1", 95, 5));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/1/stock"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookId").value("1"))
+                .andExpect(jsonPath("$.available").value(95))
+                .andExpect(jsonPath("$.reserved").value(5));
+    }
+
+    @Test
+    void restock() throws Exception {
+        when(inventoryService.restock(1L, 100L)).thenReturn(new StockDto("1", 100, 0));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/1/stock")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(new RestockRequestDto(100L))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available").value(100));
+    }
+
+    @Test
+    void restock_InvalidQuantity() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/1/stock")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonTool.toJson(new RestockRequestDto(0L))))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(inventoryService);
+    }
+
+    @Test
+    void confirmReservation() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/reservations/abc/confirm"))
+                .andExpect(status().isNoContent());
+        verify(inventoryService).confirm("abc");
+    }
+
+    @Test
+    void confirmReservation_Expired() throws Exception {
+        doThrow(new BusinessException(HttpStatus.GONE, "Reservation expired")).when(inventoryService).confirm("abc");
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/books/reservations/abc/confirm"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void cancelReservation() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/books/reservations/abc"))
+                .andExpect(status().isNoContent());
+        verify(inventoryService).cancel("abc");
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.book.controller;
+
+import com.example.book.BookHelper;
+import com.example.book.dto.request.BookRequestDto;
+import com.example.book.dto.response.CreateBookResponseDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMetrics
+public class MetricsITTest {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Test
+    void prometheusScrape() {
+        BookRequestDto createRequest = BookHelper.getBookRequestDto();
+        createRequest.setIsbn("9999999999999");
+        ResponseEntity<CreateBookResponseDto> createResponse = testRestTemplate.postForEntity(
+                "/books", createRequest, CreateBookResponseDto.class);
+        assertEquals(HttpStatus.CREATED, createResponse.getStatusCode());
+        testRestTemplate.getForEntity("/books", String.class);
+        testRestTemplate.getForEntity("/books/" + createResponse.getBody().getId(), String.class);
+        assertEquals(HttpStatus.NOT_FOUND, testRestTemplate.getForEntity("/books/123456", String.class).getStatusCode());
+        testRestTemplate.delete("/books/" + createResponse.getBody().getId());
+
+        ResponseEntity<String> scrape = testRestTemplate.getForEntity("/actuator/prometheus", String.class);
+        assertEquals(HttpStatus.OK, scrape.getStatusCode());
+        List<Sample> samples = parse(scrape.getBody());
+
+        // latency histogram and percentiles per controller operation
+        assertTrue(has(samples, "http_server_requests_seconds_bucket", Map.of("uri", "/books", "method", "GET")));
+        assertTrue(has(samples, "http_server_requests_seconds", Map.of("uri", "/books/{id}", "quantile", "0.99")));
+        // latency per repository method, including the inherited CRUD methods
+        assertTrue(has(samples, "book_repository_invocations_seconds_bucket", Map.of("repository", "BookRepository", "method", "save")));
+        assertTrue(has(samples, "book_repository_invocations_seconds", Map.of("method", "existsById", "quantile", "0.95")));
+        // errors by status
+        assertEquals(1.0, value(samples, "book_errors_total", Map.of("status", "404", "exception", "BusinessException")));
+        // cache, jvm and connection pool gauges
+        assertTrue(has(samples, "cache_gets_total", Map.of("cache", "books", "result", "miss")));
+        assertTrue(has(samples, "jvm_memory_used_bytes", Map.of()));
+        assertTrue(has(samples, "jvm_gc_memory_allocated_bytes_total", Map.of()));
+        assertTrue(has(samples, "hikaricp_connections_active", Map.of()));
+    }
+
+    private static boolean has(List<Sample> samples, String name, Map<String, String> labels) {
+        return samples.stream().anyMatch(sample -> sample.matches(name, labels));
+    }
+
+    private static double value(List<Sample> samples, String name, Map<String, String> labels) {
+        return samples.stream().filter(sample -> sample.matches(name, labels)).findFirst()
+                .orElseThrow(() -> new AssertionError("no sample " + name + labels)).value;
+    }
+
+    private static final Pattern SAMPLE = Pattern.compile("^([a-zA-Z_:][a-zA-Z0-9_:]*)(?:\\{(.*)})?\\s+(\\S+)(?:\\s+-?\\d+)?$");
+    private static final Pattern LABEL = Pattern.compile("([a-zA-Z_][a-zA-Z0-9_]*)=\"((?:[^\"\\\\]|\\\\.)*)\",?");
+
+    /**
+     * Minimal parser of the Prometheus text exposition format: comments are skipped and every other line must be a
+     * valid sample.
+     */
+    private static List<Sample> parse(String body) {
+        List<Sample> samples = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            Matcher matcher = SAMPLE.matcher(line);
+            assertTrue(matcher.matches(), "invalid sample line: " + line);
+            Map<String, String> labels = new HashMap<>();
+            if (matcher.group(2) != null) {
+                Matcher label = LABEL.matcher(matcher.group(2));
+                while (label.find()) {
+                    labels.put(label.group(1), label.group(2).replace("\\\"", "\"").replace("\\\\", "\\"));
+                }
+            }
+            samples.add(new Sample(matcher.group(1), labels, Double.parseDouble(matcher.group(3))));
+        }
+        return samples;
+    }
+
+    private static class Sample {
+
+        private final String name;
+        private final Map<String, String> labels;
+        private final double value;
+
+        Sample(String name, Map<String, String> labels, double value) {
+            this.name = name;
+            this.labels = labels;
+            this.value = value;
+        }
+
+        boolean matches(String name, Map<String, String> labels) {
+            return this.name.equals(name) && this.labels.entrySet().containsAll(labels.entrySet());
+        }
+    }
+}
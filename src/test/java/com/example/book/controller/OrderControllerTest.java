@@ -0,0 +1,72 @@
+package com.example.book.controller;
+
+import com.example.book.advice.BooksAdvice;
+import com.example.book.context.AppContext;
+import com.example.book.dto.response.OrderDto;
+import com.example.book.exception.BusinessException;
+import com.example.book.service.OrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderControllerTest {
+
+    @Mock
+    private OrderService orderService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void before() {
+        this.mockMvc = MockMvcBuilders.standaloneSetup(new OrderController(orderService))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(AppContext.objectMapper()))
+                .setControllerAdvice(new BooksAdvice(new SimpleMeterRegistry()))
+                .build();
+    }
+
+    @Test
+    void getOrder() throws Exception {
+        when(orderService.getOrder(7L)).thenReturn(new OrderDto("7", LocalDateTime.now(), "code1",
+                new BigDecimal("200"), new BigDecimal("190"), null,
+                List.of(new OrderDto.Line("1", "harry potter", "FICTION", 2, new BigDecimal("100")))));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders/7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("7"))
+                .andExpect(jsonPath("$.priceAfterDiscount").value(190))
+                .andExpect(jsonPath("$.lines[0].quantity").value(2));
+    }
+
+    @Test
+    void getOrder_InvalidId() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders/abc"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void getOrder_NotFound() throws Exception {
+        when(orderService.getOrder(7L)).thenThrow(new BusinessException(HttpStatus.NOT_FOUND, "Order not found"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders/7"))
+                .andExpect(status().isNotFound());
+    }
+}
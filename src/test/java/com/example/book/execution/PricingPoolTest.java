@@ -0,0 +1,58 @@
+package com.example.book.execution;
+
+import com.example.book.config.CheckoutConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PricingPoolTest {
+
+    private final CheckoutConfig checkoutConfig = new CheckoutConfig();
+    private PricingPool pricingPool;
+
+    @AfterEach
+    void after() {
+        pricingPool.shutdown();
+    }
+
+    @Test
+    void map_SmallBatchOnCallingThread() {
+        checkoutConfig.setBatchParallelism(4);
+        checkoutConfig.setParallelBatchThreshold(10);
+        pricingPool = new PricingPool(checkoutConfig);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        List<Integer> doubled = pricingPool.map(List.of(1, 2, 3), i -> {
+            threads.add(Thread.currentThread());
+            return i * 2;
+        });
+
+        assertEquals(List.of(2, 4, 6), doubled);
+        assertEquals(Set.of(Thread.currentThread()), threads);
+    }
+
+    @Test
+    void map_LargeBatchInPoolKeepsOrder() {
+        checkoutConfig.setBatchParallelism(4);
+        checkoutConfig.setParallelBatchThreshold(10);
+        pricingPool = new PricingPool(checkoutConfig);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        List<Integer> elements = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+
+        List<Integer> doubled = pricingPool.map(elements, i -> {
+            threads.add(Thread.currentThread());
+            return i * 2;
+        });
+
+        assertEquals(elements.stream().map(i -> i * 2).collect(Collectors.toList()), doubled);
+        assertTrue(threads.stream().allMatch(thread -> thread.getName().startsWith("ForkJoinPool-")), threads.toString());
+    }
+}
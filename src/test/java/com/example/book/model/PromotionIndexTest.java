@@ -0,0 +1,44 @@
+package com.example.book.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionIndexTest {
+
+    @Test
+    void getDiscounts() {
+        PromotionIndex index = PromotionIndex.of(List.of(
+                new PromotionRule("code1", List.of(
+                        new DiscountRule("FICTION", BigDecimal.TEN),
+                        new DiscountRule("COMICS", BigDecimal.valueOf(5)))),
+                new PromotionRule("code2", List.of(new DiscountRule("FICTION", BigDecimal.valueOf(5))))));
+
+        assertEquals(2, index.size());
+        assertEquals(Map.of("FICTION", BigDecimal.TEN, "COMICS", BigDecimal.valueOf(5)), index.getDiscounts("code1"));
+        assertEquals(Map.of("FICTION", BigDecimal.valueOf(5)), index.getDiscounts("code2"));
+        assertNull(index.getDiscounts("code3"));
+    }
+
+    @Test
+    void getDiscounts_FirstRuleWins() {
+        PromotionIndex index = PromotionIndex.of(List.of(
+                new PromotionRule("code1", List.of(
+                        new DiscountRule("FICTION", BigDecimal.TEN),
+                        new DiscountRule("FICTION", BigDecimal.ONE))),
+                new PromotionRule("code1", List.of(new DiscountRule("COMICS", BigDecimal.ONE)))));
+
+        assertEquals(Map.of("FICTION", BigDecimal.TEN), index.getDiscounts("code1"));
+    }
+
+    @Test
+    void getDiscounts_NoRules() {
+        assertSame(PromotionIndex.EMPTY, PromotionIndex.of(null));
+        assertNull(PromotionIndex.of(List.of()).getDiscounts("code1"));
+        assertTrue(PromotionIndex.of(List.of(new PromotionRule("code1", null))).getDiscounts("code1").isEmpty());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.book.orders;
+
+import com.example.book.context.AppContext;
+import com.example.book.dto.response.OrderDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private final ObjectMapper objectMapper = AppContext.objectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void append_AssignsIdsAfterTheLastStoredOne() throws IOException {
+        try (OrderJournal journal = open(41)) {
+            OrderDto order = order("code1");
+            assertEquals(42, journal.append(order));
+            assertEquals("42", order.getId());
+            assertEquals(43, journal.append(order("code1")));
+
+            assertEquals(List.of("42", "43"), ids(drain(journal)));
+            assertEquals(0, journal.queued());
+        }
+    }
+
+    @Test
+    void open_ReplaysTheOrdersAfterTheCheckpoint() throws IOException {
+        try (OrderJournal journal = open(0)) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(order("code" + i));
+            }
+            journal.checkpoint(2);
+        }
+
+        try (OrderJournal journal = open(0)) {
+            assertEquals(5, journal.getReplayedUpTo());
+            List<OrderDto> replayed = drain(journal);
+            assertEquals(List.of("3", "4", "5"), ids(replayed));
+            assertEquals("code2", replayed.get(0).getPromoCode());
+            assertEquals(2, replayed.get(0).getLines().size());
+            assertEquals(6, journal.append(order("code5")));
+        }
+    }
+
+    @Test
+    void open_DropsATornRecord() throws IOException {
+        try (OrderJournal journal = open(0)) {
+            journal.append(order("code1"));
+            journal.append(order("code2"));
+        }
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // flips a byte in the payload of the second record
+            int first = file.readInt();
+            file.seek(OrderJournal.HEADER_SIZE + first + OrderJournal.HEADER_SIZE + 5);
+            file.write('#');
+        }
+
+        try (OrderJournal journal = open(0)) {
+            assertEquals(List.of("1"), ids(drain(journal)));
+            assertEquals(2, journal.append(order("code3")));
+        }
+        try (OrderJournal journal = open(0)) {
+            List<OrderDto> replayed = drain(journal);
+            assertEquals(List.of("1", "2"), ids(replayed));
+            assertEquals("code3", replayed.get(1).getPromoCode());
+        }
+    }
+
+    @Test
+    void checkpoint_DeletesSegmentsOfStoredOrders() throws IOException {
+        try (OrderJournal journal = open(0)) {
+            for (int i = 0; i < 40; i++) {
+                journal.append(order("code" + i));
+            }
+            assertTrue(segments().size() > 2);
+
+            journal.checkpoint(40);
+            assertEquals(1, segments().size());
+            assertEquals(41, journal.append(order("code40")));
+        }
+
+        try (OrderJournal journal = open(0)) {
+            assertEquals(List.of("41"), ids(drain(journal)));
+        }
+    }
+
+    private OrderJournal open(long lastStoredId) throws IOException {
+        return OrderJournal.open(dir, SEGMENT_SIZE, false, lastStoredId, objectMapper);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<OrderDto> drain(OrderJournal journal) {
+        List<OrderDto> orders = new ArrayList<>();
+        try {
+            journal.drainTo(orders, Integer.MAX_VALUE, 0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return orders;
+    }
+
+    private static List<String> ids(List<OrderDto> orders) {
+        return orders.stream().map(OrderDto::getId).collect(Collectors.toList());
+    }
+
+    private static OrderDto order(String promoCode) {
+        return new OrderDto(null, LocalDateTime.now(), promoCode, new BigDecimal("300"), new BigDecimal("285"), null,
+                List.of(new OrderDto.Line("1", "Harry Potter", "FICTION", 2, new BigDecimal("100")),
+                        new OrderDto.Line(null, "The Hobbit", "FICTION", 1, new BigDecimal("100"))));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.book.pricing;
+
+import com.example.book.dto.response.CheckoutBookResponse;
+import com.example.book.model.CheckedOutBook;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CentsPricingTest {
+
+    private static final String[] TYPES = {"FICTION", "COMICS", "THRILLER", "ROMANCE"};
+
+    /**
+     * Random carts and promotions, seeded so a failure can be replayed, must price exactly like the decimal engine,
+     * scale of the amounts included.
+     */
+    @Test
+    void price_MatchesDecimalPricing() {
+        for (int run = 1; run <= 20; run++) {
+            long seed = run;
+            Random random = new Random(seed);
+            for (int cart = 0; cart < 2000; cart++) {
+                List<CheckedOutBook> items = randomItems(random);
+                Map<String, BigDecimal> discounts = randomDiscounts(random);
+
+                assertEquals(DecimalPricing.price(items, discounts), CentsPricing.price(items, discounts),
+                        () -> "seed " + seed + ": " + describe(items) + " " + discounts);
+            }
+        }
+    }
+
+    @Test
+    void price_RoundsTiesToEven() {
+        Map<String, BigDecimal> discounts = Map.of("FICTION", new BigDecimal("50"), "COMICS", new BigDecimal("12.5"));
+
+        // 50% of 0.01 and 0.03 are ties, 12.5% of 0.20 is 0.025
+        assertPrice("0.01", "0.01", CentsPricing.price(List.of(item("FICTION", "0.01", 1)), discounts));
+        assertPrice("0.03", "0.01", CentsPricing.price(List.of(item("FICTION", "0.03", 1)), discounts));
+        assertPrice("0.20", "0.18", CentsPricing.price(List.of(item("COMICS", "0.20", 1)), discounts));
+        assertPrice("0.60", "0.52", CentsPricing.price(List.of(item("COMICS", "0.20", 3)), discounts));
+    }
+
+    @Test
+    void price_FallsBackToDecimalPricing() {
+        Map<String, BigDecimal> discounts = Map.of("FICTION", new BigDecimal("10.125"));
+        List<CheckedOutBook> finerThanCents = List.of(item("COMICS", "10.005", 3));
+        List<CheckedOutBook> finerDiscount = List.of(item("FICTION", "10.01", 3));
+        List<CheckedOutBook> overflowing = List.of(item("COMICS", "92233720368547758.07", 2));
+
+        assertPrice("30.02", "30.02", CentsPricing.price(finerThanCents, discounts));
+        assertEquals(DecimalPricing.price(finerDiscount, discounts), CentsPricing.price(finerDiscount, discounts));
+        assertPrice("184467440737095516.14", "184467440737095516.14", CentsPricing.price(overflowing, discounts));
+    }
+
+    @Test
+    void price_EmptyCart() {
+        assertPrice("0.00", "0", CentsPricing.price(List.of(), Map.of()));
+    }
+
+    @Test
+    void divideHalfEven() {
+        assertEquals(0, CentsPricing.divideHalfEven(5, 10));
+        assertEquals(2, CentsPricing.divideHalfEven(15, 10));
+        assertEquals(2, CentsPricing.divideHalfEven(16, 10));
+        assertEquals(1, CentsPricing.divideHalfEven(14, 10));
+        assertEquals(-2, CentsPricing.divideHalfEven(-15, 10));
+        assertEquals(-2, CentsPricing.divideHalfEven(-25, 10));
+        assertEquals(-3, CentsPricing.divideHalfEven(-26, 10));
+    }
+
+    private static void assertPrice(String originalPrice, String priceAfterDiscount, CheckoutBookResponse response) {
+        assertEquals(new CheckoutBookResponse(new BigDecimal(originalPrice), new BigDecimal(priceAfterDiscount)), response);
+    }
+
+    private static List<CheckedOutBook> randomItems(Random random) {
+        int size = random.nextInt(20);
+        List<CheckedOutBook> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int quantity = random.nextInt(100) == 0 ? Integer.MAX_VALUE - random.nextInt(10) : 1 + random.nextInt(1000);
+            items.add(new CheckedOutBook(quantity, null, null, null, TYPES[random.nextInt(TYPES.length)],
+                    String.valueOf(i + 1), randomPrice(random), null));
+        }
+        return items;
+    }
+
+    /**
+     * Mostly whole cents of any scale up to 2, some with trailing zeros, a few finer than a cent or huge.
+     */
+    private static BigDecimal randomPrice(Random random) {
+        switch (random.nextInt(20)) {
+            case 0:
+                return BigDecimal.valueOf(1 + random.nextInt(1_000_000), 3);
+            case 1:
+                return BigDecimal.valueOf(1 + random.nextInt(100_000), 2).setScale(4);
+            case 2:
+                return BigDecimal.valueOf(Long.MAX_VALUE - random.nextInt(1000), 2);
+            default:
+                return BigDecimal.valueOf(1 + random.nextInt(10_000_000), random.nextInt(3));
+        }
+    }
+
+    /**
+     * Percentages with up to 2 decimals, the ones ending in 5 rounding ties, a few finer or above 100%.
+     */
+    private static Map<String, BigDecimal> randomDiscounts(Random random) {
+        Map<String, BigDecimal> discounts = new HashMap<>();
+        for (String type : TYPES) {
+            switch (random.nextInt(10)) {
+                case 0:
+                    break;
+                case 1:
+                    discounts.put(type, BigDecimal.valueOf(random.nextInt(100_000), 3));
+                    break;
+                case 2:
+                    discounts.put(type, BigDecimal.valueOf(100 + random.nextInt(100)));
+                    break;
+                case 3:
+                    discounts.put(type, BigDecimal.valueOf(5 + 10 * random.nextInt(10), 1));
+                    break;
+                default:
+                    discounts.put(type, BigDecimal.valueOf(random.nextInt(10_001), random.nextInt(3)));
+            }
+        }
+        return discounts;
+    }
+
+    private static CheckedOutBook item(String type, String price, int quantity) {
+        return new CheckedOutBook(quantity, null, null, null, type, "1", new BigDecimal(price), null);
+    }
+
+    private static String describe(List<CheckedOutBook> items) {
+        StringBuilder description = new StringBuilder();
+        for (CheckedOutBook item : items) {
+            description.append(item.getType()).append(' ').append(item.getBookPrice()).append('x')
+                    .append(item.getQuantity()).append(", ");
+        }
+        return description.toString();
+    }
+}
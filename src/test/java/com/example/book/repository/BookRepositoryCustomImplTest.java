@@ -0,0 +1,112 @@
+package com.example.book.repository;
+
+import com.example.book.BookHelper;
+import com.example.book.entity.Book;
+import com.example.book.model.BookStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:updatedb")
+public class BookRepositoryCustomImplTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private Book book;
+
+    @BeforeEach
+    void before() {
+        Book toSave = BookHelper.getBookWithoutId();
+        toSave.setType("COMICS");
+        toSave.setStatus(BookStatus.ACTIVE);
+        book = bookRepository.save(toSave);
+    }
+
+    @AfterEach
+    void after() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void updateActiveBook_OnlySetsGivenColumns() {
+        assertEquals(0L, book.getVersion());
+        // as stored: the database keeps microseconds of the nanoseconds the saved book holds
+        LocalDateTime createdOn = bookRepository.findById(book.getId()).orElseThrow().getCreatedOn();
+
+        int updated = bookRepository.updateActiveBook(book.getId(),
+                Map.of("bookPrice", new BigDecimal("12.50"), "author", "Someone Else"), Set.of(0L), LocalDateTime.now());
+
+        assertEquals(1, updated);
+        Book reloaded = bookRepository.findById(book.getId()).orElseThrow();
+        assertEquals(new BigDecimal("12.50"), reloaded.getBookPrice());
+        assertEquals("Someone Else", reloaded.getAuthor());
+        assertEquals(book.getBookName(), reloaded.getBookName());
+        assertEquals(book.getIsbn(), reloaded.getIsbn());
+        assertEquals(1L, reloaded.getVersion());
+        assertEquals(createdOn, reloaded.getCreatedOn());
+        assertTrue(reloaded.getUpdatedOn().isAfter(book.getUpdatedOn()));
+    }
+
+    @Test
+    void save_HoldsTheValuesAsStored() {
+        Book toSave = BookHelper.getBookWithoutId();
+        toSave.setIsbn("9999999999999");
+        toSave.setBookPrice(new BigDecimal("20.005"));
+        toSave.setType("COMICS");
+        toSave.setStatus(BookStatus.ACTIVE);
+
+        Book saved = bookRepository.save(toSave);
+
+        Book reloaded = bookRepository.findById(saved.getId()).orElseThrow();
+        assertEquals(new BigDecimal("20.01"), saved.getBookPrice());
+        assertEquals(reloaded.getBookPrice(), saved.getBookPrice());
+        assertEquals(reloaded.getCreatedOn(), saved.getCreatedOn());
+        assertEquals(reloaded.getUpdatedOn(), saved.getUpdatedOn());
+    }
+
+    @Test
+    void updateActiveBook_StaleVersion() {
+        assertEquals(1, bookRepository.updateActiveBook(book.getId(), Map.of("author", "First"), Set.of(0L), LocalDateTime.now()));
+        assertEquals(0, bookRepository.updateActiveBook(book.getId(), Map.of("author", "Second"), Set.of(0L), LocalDateTime.now()));
+
+        Book reloaded = bookRepository.findById(book.getId()).orElseThrow();
+        assertEquals("First", reloaded.getAuthor());
+        assertEquals(1L, reloaded.getVersion());
+    }
+
+    @Test
+    void updateActiveBook_AnyOfSeveralVersions() {
+        assertEquals(1, bookRepository.updateActiveBook(book.getId(), Map.of("author", "First"), Set.of(0L), LocalDateTime.now()));
+        assertEquals(1, bookRepository.updateActiveBook(book.getId(), Map.of("author", "Second"), Set.of(0L, 1L), LocalDateTime.now()));
+
+        assertEquals(2L, bookRepository.findById(book.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void updateActiveBook_AnyVersion() {
+        assertEquals(1, bookRepository.updateActiveBook(book.getId(), Map.of("author", "First"), null, LocalDateTime.now()));
+        assertEquals(1, bookRepository.updateActiveBook(book.getId(), Map.of("author", "Second"), null, LocalDateTime.now()));
+        assertEquals(2L, bookRepository.findById(book.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void updateActiveBook_DeletedOrMissing() {
+        book.setStatus(BookStatus.DELETED);
+        bookRepository.save(book);
+
+        assertEquals(0, bookRepository.updateActiveBook(book.getId(), Map.of("author", "Someone Else"), null, LocalDateTime.now()));
+        assertEquals(0, bookRepository.updateActiveBook(book.getId() + 1000, Map.of("author", "Someone Else"), null, LocalDateTime.now()));
+        assertEquals(BookStatus.DELETED, bookRepository.findStatusById(book.getId()).orElseThrow());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.book.repository;
+
+import com.example.book.entity.Book;
+import com.example.book.model.BookStatus;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every listing query of BookRepository, then asks H2 to EXPLAIN the SQL Hibernate sent and checks that it
+ * reads through the expected index instead of scanning TBL_BOOK.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:plandb",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.book.repository.SqlCapture"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookRepositoryQueryPlanTest {
+
+    private static final String[] TYPES = {"FICTION", "COMICS", "HISTORY"};
+    private static final PageRequest PAGE = PageRequest.of(0, 20);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void before() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 1; i <= 300; i++) {
+            books.add(Book.builder()
+                    .bookName("book " + i)
+                    .author("author " + i % 30)
+                    .type(TYPES[i % TYPES.length])
+                    .bookPrice(BigDecimal.valueOf(i % 90 + 1))
+                    .isbn(String.valueOf(2000000000000L + i))
+                    .status(i % 10 == 0 ? BookStatus.DELETED : BookStatus.ACTIVE)
+                    .build());
+        }
+        bookRepository.saveAll(books);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    void after() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void findDtoPage() {
+        bookRepository.findDtoPage(BookStatus.ACTIVE, 0L, PAGE);
+        assertUsesIndex("IDX_BOOK_STATUS_ID", "ACTIVE", 0L, 20);
+    }
+
+    @Test
+    void findDtoPageByType() {
+        bookRepository.findDtoPageByType(BookStatus.ACTIVE, "COMICS", 0L, PAGE);
+        assertUsesIndex("IDX_BOOK_STATUS_TYPE", "ACTIVE", "COMICS", 0L, 20);
+    }
+
+    @Test
+    void findDtoPageByAuthor() {
+        bookRepository.findDtoPageByAuthor(BookStatus.ACTIVE, "author 7", 0L, PAGE);
+        assertUsesIndex("IDX_BOOK_STATUS_AUTHOR", "ACTIVE", "author 7", 0L, 20);
+    }
+
+    @Test
+    void findDtoPageByPrice() {
+        BigDecimal min = BigDecimal.valueOf(10);
+        BigDecimal max = BigDecimal.valueOf(20);
+        bookRepository.findDtoPageByPrice(BookStatus.ACTIVE, min, max, min, 0L, PAGE);
+        assertUsesIndex("IDX_BOOK_STATUS_PRICE", "ACTIVE", min, max, min, min, 0L, 20);
+    }
+
+    private void assertUsesIndex(String index, Object... parameters) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + SqlCapture.lastSql(), String.class, parameters);
+        assertFalse(plan.contains("tableScan"), plan);
+        assertTrue(plan.contains(index), plan);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.book.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Remembers the last SQL statement Hibernate prepared, so its query plan can be checked.
+ */
+public class SqlCapture implements StatementInspector {
+
+    private static volatile String lastSql;
+
+    @Override
+    public String inspect(String sql) {
+        lastSql = sql;
+        return sql;
+    }
+
+    static String lastSql() {
+        return lastSql;
+    }
+}
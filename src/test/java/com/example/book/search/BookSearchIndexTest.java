@@ -0,0 +1,154 @@
+package com.example.book.search;
+
+import com.example.book.config.SearchConfig;
+import com.example.book.dto.BookDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void before() {
+        index = new BookSearchIndex(null, new SearchConfig());
+        add(1, "Harry Potter and the Philosopher's Stone", "J.K. Rowling", "FICTION", "8.99");
+        add(2, "Harry Potter and the Chamber of Secrets", "J.K. Rowling", "FICTION", "12.50");
+        add(3, "Dirty Harry", "Phillip Rock", "THRILLER", "30");
+        add(4, "Pottery for beginners", "Harriet Clay", "HOBBY", "45");
+        add(5, "The Hobbit", "J.R.R. Tolkien", "FICTION", "120");
+    }
+
+    @Test
+    void search_AllTermsMustMatch() {
+        SearchHits hits = index.search(new SearchQuery("harry potter", null, null, 10));
+
+        assertEquals(2, hits.getTotal());
+        assertEquals(List.of(1L, 2L), hits.getBookIds());
+    }
+
+    @Test
+    void search_Prefix() {
+        SearchHits hits = index.search(new SearchQuery("pott*", null, null, 10));
+
+        assertEquals(List.of(1L, 2L, 4L), hits.getBookIds());
+        assertFalse(hits.isTruncated());
+    }
+
+    @Test
+    void search_PrefixOverMaxExpansions_Truncated() {
+        SearchConfig searchConfig = new SearchConfig();
+        searchConfig.setMaxPrefixExpansions(1);
+        index = new BookSearchIndex(null, searchConfig);
+        add(1, "Harry Potter and the Philosopher's Stone", "J.K. Rowling", "FICTION", "8.99");
+        add(4, "Pottery for beginners", "Harriet Clay", "HOBBY", "45");
+
+        // only harriet, the first word starting with har, is searched
+        SearchHits hits = index.search(new SearchQuery("har*", null, null, 10));
+
+        assertEquals(1, hits.getTotal());
+        assertEquals(List.of(4L), hits.getBookIds());
+        assertTrue(hits.isTruncated());
+    }
+
+    @Test
+    void search_RanksNameAboveAuthorAboveDescription() {
+        add(6, "Gardening", "Harry Green", "HOBBY", "20");
+        add(7, "Cooking", "Someone", "HOBBY", "20", "Harry cooks");
+
+        SearchHits hits = index.search(new SearchQuery("harry", null, null, 10));
+
+        assertEquals(List.of(1L, 2L, 3L, 6L, 7L), hits.getBookIds());
+    }
+
+    @Test
+    void search_TopK() {
+        SearchHits hits = index.search(new SearchQuery("har*", null, null, 2));
+
+        assertEquals(4, hits.getTotal());
+        assertEquals(List.of(1L, 2L), hits.getBookIds());
+    }
+
+    @Test
+    void search_Facets() {
+        SearchHits hits = index.search(new SearchQuery("harry", "FICTION", "10-25", 10));
+
+        assertEquals(1, hits.getTotal());
+        assertEquals(List.of(2L), hits.getBookIds());
+        assertEquals(Map.of("FICTION", 2L, "THRILLER", 1L), hits.getTypes());
+        assertEquals(Map.of("0-10", 1L, "10-25", 1L, "25-50", 1L), hits.getPriceBands());
+    }
+
+    @Test
+    void search_OnlyFacets() {
+        SearchHits hits = index.search(new SearchQuery(null, "FICTION", null, 10));
+
+        assertEquals(List.of(1L, 2L, 5L), hits.getBookIds());
+        assertEquals(Map.of("100+", 1L, "0-10", 1L, "10-25", 1L, "25-50", 2L), hits.getPriceBands());
+    }
+
+    @Test
+    void search_UnknownType() {
+        assertEquals(0, index.search(new SearchQuery("harry", "POETRY", null, 10)).getTotal());
+    }
+
+    @Test
+    void search_UnknownTerm() {
+        assertEquals(SearchHits.EMPTY, index.search(new SearchQuery("harry quidditch", null, null, 10)));
+    }
+
+    @Test
+    void onBookChanged_UpdateAndRemove() {
+        add(3, "Clean Harry", "Phillip Rock", "THRILLER", "30");
+        index.onBookChanged(BookChangedEvent.removed(1L));
+
+        assertEquals(List.of(2L, 3L), index.search(new SearchQuery("harry", null, null, 10)).getBookIds());
+        assertEquals(0, index.search(new SearchQuery("dirty", null, null, 10)).getTotal());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void onBookChanged_CompactsDeadBooks() {
+        for (int round = 0; round < 3; round++) {
+            for (long id = 100; id < 1100; id++) {
+                add(id, "Volume " + id + " round " + round, "Author", "FICTION", "10");
+            }
+        }
+
+        assertEquals(1, index.search(new SearchQuery("volume 500", null, null, 10)).getTotal());
+        assertEquals(1000, index.search(new SearchQuery("volume", null, null, 10)).getTotal());
+        assertEquals(0, index.search(new SearchQuery("round 0", null, null, 10)).getTotal());
+        assertEquals(1000, index.search(new SearchQuery("round 2", null, null, 10)).getTotal());
+        assertEquals(List.of(2L), index.search(new SearchQuery("chamber", null, null, 10)).getBookIds());
+        // 3000 saves of 1000 books, the dead documents are dropped from the slots too
+        assertTrue(index.documents() <= index.size() + 1024);
+    }
+
+    @Test
+    void tokenize() {
+        assertEquals(List.of("spider", "man", "2"), BookSearchIndex.tokenize("Spider-Man 2!"));
+    }
+
+    private void add(long id, String name, String author, String type, String price) {
+        add(id, name, author, type, price, null);
+    }
+
+    private void add(long id, String name, String author, String type, String price, String description) {
+        index.onBookChanged(BookChangedEvent.saved(BookDto.builder()
+                .id(String.valueOf(id))
+                .bookName(name)
+                .author(author)
+                .type(type)
+                .bookPrice(new BigDecimal(price))
+                .bookDescription(description)
+                .build()));
+    }
+}
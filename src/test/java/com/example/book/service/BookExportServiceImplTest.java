@@ -0,0 +1,78 @@
+package com.example.book.service;
+
+import com.example.book.entity.Book;
+import com.example.book.model.BookStatus;
+import com.example.book.model.CatalogFormat;
+import com.example.book.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:exportdb",
+        "book.export.clearInterval=2"})
+public class BookExportServiceImplTest {
+
+    @Autowired
+    private BookExportService bookExportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @BeforeEach
+    void before() {
+        List<Book> books = IntStream.rangeClosed(1, 5)
+                .mapToObj(i -> Book.builder()
+                        .bookName("book " + i)
+                        .author("author " + i)
+                        .type("FICTION")
+                        .bookPrice(BigDecimal.valueOf(i))
+                        .isbn(String.valueOf(1000000000000L + i))
+                        .status(i == 3 ? BookStatus.DELETED : BookStatus.ACTIVE)
+                        .build())
+                .collect(Collectors.toList());
+        bookRepository.saveAll(books);
+    }
+
+    @AfterEach
+    void after() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void exportBooks_Ndjson() throws Exception {
+        String[] lines = export(CatalogFormat.NDJSON).split("\n");
+
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":"));
+        assertTrue(lines[0].contains("\"isbn\":\"1000000000001\""));
+        assertTrue(lines[2].contains("\"isbn\":\"1000000000004\""));
+    }
+
+    @Test
+    void exportBooks_Csv() throws Exception {
+        String[] lines = export(CatalogFormat.CSV).split("\n");
+
+        assertEquals(5, lines.length);
+        assertEquals("id,bookName,bookDescription,author,type,bookPrice,isbn", lines[0]);
+        assertTrue(lines[1].endsWith(",\"book 1\",,\"author 1\",FICTION,1.00,1000000000001"));
+    }
+
+    private String export(CatalogFormat format) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        bookExportService.exportBooks(format, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.book.service;
+
+import com.example.book.config.ImportConfig;
+import com.example.book.dto.response.BookImportErrorDto;
+import com.example.book.dto.response.BookImportResponseDto;
+import com.example.book.exception.BusinessException;
+import com.example.book.mapper.BookMapper;
+import com.example.book.model.CatalogFormat;
+import com.example.book.repository.BookRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:importdb",
+        "book.import.batchSize=2",
+        "book.import.maxReportedErrors=3"})
+public class BookImportServiceImplTest {
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ImportConfig importConfig;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @AfterEach
+    void after() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void importBooks_Ndjson() {
+        BookImportResponseDto response = bookImportService.importBooks(input(
+                ndjson("Dune", "1000000000001", "10.50"),
+                "",
+                ndjson("Emma", "1000000000002", "7"),
+                ndjson("Ulysses", "1000000000003", "12")), CatalogFormat.NDJSON);
+
+        assertEquals(3, response.getImported());
+        assertEquals(0, response.getFailed());
+        assertEquals(3, bookRepository.count());
+        assertTrue(bookRepository.findExistingIsbns(List.of("1000000000002")).contains("1000000000002"));
+    }
+
+    @Test
+    void importBooks_Csv() {
+        BookImportResponseDto response = bookImportService.importBooks(input(
+                "bookName,author,type,bookPrice,isbn",
+                "Dune,Frank Herbert,FICTION,10.50,1000000000001",
+                "Emma,Jane Austen,FICTION,7,1000000000002"), CatalogFormat.CSV);
+
+        assertEquals(2, response.getImported());
+        assertEquals(0, response.getFailed());
+        assertEquals(2, bookRepository.count());
+    }
+
+    @Test
+    void importBooks_CsvQuotedValues() {
+        BookImportResponseDto response = bookImportService.importBooks(input(
+                "bookName,bookDescription,author,type,bookPrice,isbn",
+                "Dune,\"Sand, spice\nand \"\"worms\"\"\",Frank Herbert,FICTION,10.50,1000000000001",
+                "Emma,,Jane Austen,FICTION,abc,1000000000002",
+                "",
+                "Ulysses,,James Joyce,FICTION,12,1000000000003"), CatalogFormat.CSV);
+
+        assertEquals(2, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertEquals(4, response.getErrors().get(0).getLine());
+        assertTrue(response.getErrors().get(0).getMessage().startsWith("malformed row"));
+        assertEquals("Sand, spice\nand \"worms\"", bookRepository.findAll().stream()
+                .filter(book -> book.getIsbn().equals("1000000000001"))
+                .findFirst().orElseThrow().getBookDescription());
+    }
+
+    @Test
+    void importBooks_CsvUnterminatedQuote_ReportsTheRowsRead() {
+        BookImportResponseDto response = bookImportService.importBooks(input(
+                "bookName,author,type,bookPrice,isbn",
+                "Dune,Frank Herbert,FICTION,10.50,1000000000001",
+                "Emma,Jane Austen,FICTION,7,1000000000002",
+                "Ulysses,James Joyce,FICTION,12,1000000000003",
+                "\"Hamlet,William Shakespeare,FICTION,9,1000000000004",
+                "Persuasion,Jane Austen,FICTION,8,1000000000005"), CatalogFormat.CSV);
+
+        // the first batch was committed before the bad row was read, the row before it is written after
+        assertEquals(3, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertEquals(5, response.getErrors().get(0).getLine());
+        assertTrue(response.getErrors().get(0).getMessage().startsWith("malformed row"));
+        assertEquals(3, bookRepository.count());
+    }
+
+    @Test
+    void importBooks_CsvUploadBreaksOff_ReportsTheRowsRead() {
+        // longer than the buffers of the readers, so that batches are written before the upload breaks off
+        StringBuilder csv = new StringBuilder("bookName,author,type,bookPrice,isbn\n");
+        for (int i = 0; i < 300; i++) {
+            csv.append("Book ").append(i).append(",Someone,FICTION,10,").append(1000000000000L + i).append('\n');
+        }
+        InputStream brokenOff = new SequenceInputStream(input(csv.toString()), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+
+        BookImportResponseDto response = bookImportService.importBooks(brokenOff, CatalogFormat.CSV);
+
+        assertTrue(response.getImported() > 0);
+        assertEquals(response.getImported(), bookRepository.count());
+        assertEquals(1, response.getFailed());
+        assertEquals("could not read the rest of the import: connection reset", response.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void importBooks_CsvWithoutHeader() {
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> bookImportService.importBooks(input(""), CatalogFormat.CSV));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+    }
+
+    @Test
+    void importBooks_RejectedRowsAreReported() {
+        bookImportService.importBooks(input(ndjson("Dune", "1000000000001", "10.50")), CatalogFormat.NDJSON);
+
+        BookImportResponseDto response = bookImportService.importBooks(input(
+                ndjson("Dune", "1000000000001", "10.50"),
+                "{not json",
+                ndjson("Emma", "1000000000002", "-1"),
+                ndjson("Ulysses", "1000000000003", "12"),
+                ndjson("Ulysses again", "1000000000003", "12"),
+                ndjson("Hamlet", "1000000000004", "9")), CatalogFormat.NDJSON);
+
+        assertEquals(2, response.getImported());
+        assertEquals(4, response.getFailed());
+        assertEquals(3, response.getErrors().size());
+        assertEquals(new BookImportErrorDto(1, "1000000000001", "duplicate isbn"), response.getErrors().get(0));
+        assertEquals(2, response.getErrors().get(1).getLine());
+        assertTrue(response.getErrors().get(1).getMessage().startsWith("malformed row"));
+        assertEquals(new BookImportErrorDto(3, "1000000000002", "bookPrice: bookPrice must be greater than 0"),
+                response.getErrors().get(2));
+        assertEquals(3, bookRepository.count());
+    }
+
+    @Test
+    void importBooks_RowRejectedByTheDatabase() {
+        String tooLong = "x".repeat(300);
+        BookImportResponseDto response = bookImportService.importBooks(input(
+                ndjson("Dune", "1000000000001", "10.50"),
+                String.format("{\"bookName\":\"Emma\",\"bookDescription\":\"%s\",\"author\":\"Someone\","
+                        + "\"type\":\"FICTION\",\"bookPrice\":7,\"isbn\":\"1000000000002\"}", tooLong)),
+                CatalogFormat.NDJSON);
+
+        assertEquals(1, response.getImported());
+        assertEquals(1, response.getFailed());
+        BookImportErrorDto error = response.getErrors().get(0);
+        assertEquals(2, error.getLine());
+        assertTrue(error.getMessage().startsWith("rejected by the database"), error.getMessage());
+        assertEquals(1, bookRepository.count());
+    }
+
+    @Test
+    void importBooks_FailedBatchIsRetriedRowByRow() {
+        bookImportService.importBooks(input(ndjson("Dune", "1000000000001", "10.50")), CatalogFormat.NDJSON);
+        // another writer takes the isbn after the batch looked for existing ones
+        BookRepository racingRepository = mock(BookRepository.class, AdditionalAnswers.delegatesTo(bookRepository));
+        doReturn(List.of()).when(racingRepository).findExistingIsbns(List.of("1000000000001", "1000000000002"));
+        BookImportService racingImport = new BookImportServiceImpl(racingRepository, bookMapper, objectMapper,
+                validator, entityManager, transactionTemplate, importConfig, eventPublisher);
+
+        BookImportResponseDto response = racingImport.importBooks(input(
+                ndjson("Dune again", "1000000000001", "10.50"),
+                ndjson("Emma", "1000000000002", "7")), CatalogFormat.NDJSON);
+
+        assertEquals(1, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertEquals(List.of(new BookImportErrorDto(1, "1000000000001", "duplicate isbn")), response.getErrors());
+        assertEquals(2, bookRepository.count());
+    }
+
+    private static String ndjson(String name, String isbn, String price) {
+        return String.format("{\"bookName\":\"%s\",\"author\":\"Someone\",\"type\":\"FICTION\",\"bookPrice\":%s,\"isbn\":\"%s\"}",
+                name, price, isbn);
+    }
+
+    private static InputStream input(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
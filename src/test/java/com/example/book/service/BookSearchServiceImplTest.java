@@ -0,0 +1,68 @@
+package com.example.book.service;
+
+import com.example.book.BookHelper;
+import com.example.book.cache.BookCache;
+import com.example.book.config.CacheConfig;
+import com.example.book.config.SearchConfig;
+import com.example.book.dto.BookDto;
+import com.example.book.dto.response.BookSearchResponseDto;
+import com.example.book.model.BookStatus;
+import com.example.book.repository.BookRepository;
+import com.example.book.search.BookSearchIndex;
+import com.example.book.search.SearchHits;
+import com.example.book.search.SearchQuery;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookSearchServiceImplTest {
+
+    private final BookSearchIndex searchIndex = mock(BookSearchIndex.class);
+    private final BookRepository repository = mock(BookRepository.class);
+    private final BookCache bookCache = new BookCache(new CacheConfig());
+    private final BookSearchService searchService = new BookSearchServiceImpl(searchIndex, repository, bookCache,
+            new SearchConfig());
+
+    @Test
+    void search_LoadsMissesInRankOrder() {
+        BookDto cached = BookHelper.getBookDto();
+        cached.setId("2");
+        bookCache.put(2L, cached);
+        BookDto loaded = BookHelper.getBookDto();
+        when(searchIndex.search(any(SearchQuery.class)))
+                .thenReturn(new SearchHits(2, List.of(2L, 1L), Map.of("FICTION", 2L), Map.of(), false));
+        when(repository.findDtosByIds(List.of(1L), BookStatus.ACTIVE)).thenReturn(List.of(loaded));
+
+        BookSearchResponseDto response = searchService.search("harry", null, null, null);
+
+        assertEquals(List.of(cached, loaded), response.getBooks());
+        assertEquals(loaded, bookCache.get(1L));
+    }
+
+    @Test
+    void search_WriteDuringLoad_NotOverwritten() {
+        BookDto read = BookHelper.getBookDto();
+        read.setVersion(1L);
+        BookDto updated = BookHelper.getBookDto();
+        updated.setBookPrice(BigDecimal.valueOf(120));
+        updated.setVersion(2L);
+        when(searchIndex.search(any(SearchQuery.class)))
+                .thenReturn(new SearchHits(1, List.of(1L), Map.of("FICTION", 1L), Map.of(), false));
+        when(repository.findDtosByIds(List.of(1L), BookStatus.ACTIVE)).thenAnswer(invocation -> {
+            // a price change lands while the book is read
+            bookCache.put(1L, updated);
+            return List.of(read);
+        });
+
+        searchService.search("harry", null, null, null);
+
+        assertEquals(updated, bookCache.get(1L));
+    }
+}
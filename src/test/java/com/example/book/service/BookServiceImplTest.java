@@ -1,33 +1,78 @@
 package com.example.book.service;
 
 import com.example.book.BookHelper;
+import com.example.book.cache.BookCache;
+import com.example.book.cache.BookTombstones;
+import com.example.book.config.CheckoutConfig;
 import com.example.book.config.DiscountConfig;
+import com.example.book.config.InventoryConfig;
+import com.example.book.config.PaginationConfig;
 import com.example.book.dto.BookDto;
+import com.example.book.dto.request.BookPatchRequestDto;
 import com.example.book.dto.request.BookRequestDto;
 import com.example.book.dto.request.CheckoutBookRequestDto;
+import com.example.book.dto.response.BookBatchResponseDto;
+import com.example.book.dto.response.BookPageDto;
+import com.example.book.dto.response.CheckoutBatchResultDto;
 import com.example.book.dto.response.CheckoutBookResponse;
 import com.example.book.dto.response.CreateBookResponseDto;
 import com.example.book.entity.Book;
 import com.example.book.exception.BusinessException;
+import com.example.book.execution.JdbcExecutor;
+import com.example.book.execution.PricingPool;
+import com.example.book.inventory.StockLedger;
+import com.example.book.inventory.StockLevel;
 import com.example.book.mapper.BookMapper;
 import com.example.book.model.BookStatus;
 import com.example.book.model.CheckedOutBook;
+import com.example.book.model.DiscountRule;
+import com.example.book.model.PricingMode;
+import com.example.book.model.PromotionRule;
 import com.example.book.repository.BookRepository;
+import com.example.book.search.BookChangedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -40,11 +85,32 @@ class BookServiceImplTest {
     private BookMapper bookMapper;
     @Autowired
     private DiscountConfig discountConfig;
+    @Autowired
+    private PaginationConfig paginationConfig;
+    @Autowired
+    private BookCache bookCache;
+    @Autowired
+    private BookTombstones tombstones;
+    @Autowired
+    private JdbcExecutor jdbcExecutor;
+    @Autowired
+    private PricingPool pricingPool;
+    @Autowired
+    private OrderService orderService;
+    private final CheckoutConfig checkoutConfig = new CheckoutConfig();
+    private InventoryService inventoryService;
+    private final List<Object> events = new ArrayList<>();
 
 
     @BeforeEach
     void before() {
-        bookService = new BookServiceImpl(repository, bookMapper, discountConfig);
+        bookCache.invalidateAll();
+        tombstones.clear();
+        events.clear();
+        inventoryService = new InventoryServiceImpl(new StockLedger(repository), tombstones, new InventoryConfig());
+        bookService = new BookServiceImpl(repository, bookMapper, discountConfig, paginationConfig, bookCache,
+                tombstones, checkoutConfig, jdbcExecutor, pricingPool, inventoryService,
+                orderService, events::add);
     }
 
     @Test
@@ -53,29 +119,261 @@ class BookServiceImplTest {
         Book book = BookHelper.getBookWithId();
         when(repository.save(isA(Book.class))).thenReturn(book);
         assertEquals(new CreateBookResponseDto("1"), bookService.saveBook(request));
+        assertEquals(List.of(BookChangedEvent.saved(BookHelper.getBookDto())), events);
     }
 
     @Test
     void getBooks() {
         List<BookDto> expectedResponse = BookHelper.getBooksDto();
-        List<Book> books = BookHelper.getBooks();
-        when(repository.findByStatus(isA(BookStatus.class))).thenReturn(books);
-        assertEquals(expectedResponse, bookService.getBooks());
+        when(repository.findDtoPage(BookStatus.ACTIVE, 0L, PageRequest.of(0, 100)))
+                .thenReturn(BookHelper.getBooksDto());
+        assertEquals(new BookPageDto(expectedResponse, null), bookService.getBooks(null, null));
+    }
+
+    @Test
+    void getBooks_FullPage() {
+        List<BookDto> expectedResponse = BookHelper.getBooksDto();
+        when(repository.findDtoPage(BookStatus.ACTIVE, 5L, PageRequest.of(0, 2)))
+                .thenReturn(BookHelper.getBooksDto());
+        assertEquals(new BookPageDto(expectedResponse, "2"), bookService.getBooks(5L, 2));
+    }
+
+    @Test
+    void getBooksByType() {
+        when(repository.findDtoPageByType(BookStatus.ACTIVE, "COMICS", 0L, PageRequest.of(0, 2)))
+                .thenReturn(BookHelper.getBooksDto());
+        assertEquals(new BookPageDto(BookHelper.getBooksDto(), "2"), bookService.getBooksByType("COMICS", null, 2));
+    }
+
+    @Test
+    void getBooksByAuthor() {
+        when(repository.findDtoPageByAuthor(BookStatus.ACTIVE, "JK Rowling", 1L, PageRequest.of(0, 100)))
+                .thenReturn(BookHelper.getBooksDto());
+        assertEquals(new BookPageDto(BookHelper.getBooksDto(), null), bookService.getBooksByAuthor("JK Rowling", 1L, null));
+    }
+
+    @Test
+    void getBooksByPrice() {
+        BigDecimal min = BigDecimal.valueOf(50);
+        when(repository.findDtoPageByPrice(BookStatus.ACTIVE, min, new BigDecimal("99999999999999999.99"), min, 0L,
+                PageRequest.of(0, 2)))
+                .thenReturn(BookHelper.getBooksDto());
+        assertEquals(new BookPageDto(BookHelper.getBooksDto(), "100:2"), bookService.getBooksByPrice(min, null, null, 2));
+    }
+
+    @Test
+    void getBooksByPrice_NextPage() {
+        BigDecimal price = BigDecimal.valueOf(100);
+        when(repository.findDtoPageByPrice(BookStatus.ACTIVE, price, BigDecimal.valueOf(200), price, 2L,
+                PageRequest.of(0, 2)))
+                .thenReturn(List.of(BookHelper.getBookDto()));
+        assertEquals(new BookPageDto(List.of(BookHelper.getBookDto()), null),
+                bookService.getBooksByPrice(null, BigDecimal.valueOf(200), "100:2", 2));
+    }
+
+    @Test
+    void getBooksByPrice_InvalidCursor() {
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> bookService.getBooksByPrice(null, null, "12", null));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+        assertEquals("Invalid cursor", ex.getMessage());
+    }
+
+    @Test
+    void getBooks_LimitOutOfRange() {
+        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.getBooks(null, 1001));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+        assertEquals("limit must be between 1 and 1000", ex.getMessage());
+    }
+
+    @Test
+    void forEachBook() {
+        paginationConfig.setStreamChunkSize(2);
+        try {
+            BookDto book3 = BookHelper.getBookDto();
+            book3.setId("3");
+            when(repository.findDtoPage(BookStatus.ACTIVE, 0L, PageRequest.of(0, 2)))
+                    .thenReturn(BookHelper.getBooksDto());
+            when(repository.findDtoPage(BookStatus.ACTIVE, 2L, PageRequest.of(0, 2)))
+                    .thenReturn(List.of(book3));
+
+            List<String> ids = new ArrayList<>();
+            bookService.forEachBook(book -> ids.add(book.getId()));
+
+            assertEquals(List.of("1", "2", "3"), ids);
+            verify(repository).findDtoPage(eq(BookStatus.ACTIVE), eq(2L), isA(PageRequest.class));
+        } finally {
+            paginationConfig.setStreamChunkSize(500);
+        }
     }
 
     @Test
     void getBookbyId() {
-        Book book = BookHelper.getBookWithId();
         BookDto expectedResponse = BookHelper.getBookDto();
-        when(repository.findById(1L)).thenReturn(Optional.of(book));
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenReturn(Optional.of(BookHelper.getBookDto()));
         assertEquals(expectedResponse, bookService.getBook(1L));
     }
 
     @Test
-    void getBookbyId_NotFound() {
-        Book book = BookHelper.getBookWithId();
+    void getBookbyId_Cached() {
         BookDto expectedResponse = BookHelper.getBookDto();
-        when(repository.findById(1L)).thenReturn(Optional.empty());
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenReturn(Optional.of(BookHelper.getBookDto()));
+
+        assertEquals(expectedResponse, bookService.getBook(1L));
+        assertEquals(expectedResponse, bookService.getBook(1L));
+
+        verify(repository, times(1)).findDtoByIdAndStatus(1L, BookStatus.ACTIVE);
+    }
+
+    @Test
+    void getBookbyId_ConcurrentMissesShareOneQuery() throws Exception {
+        int readers = 16;
+        long collapsedBefore = bookCache.collapsedLoads();
+        // the query only returns once every other reader waits for it
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenAnswer(invocation -> {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (bookCache.collapsedLoads() - collapsedBefore < readers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            return Optional.of(BookHelper.getBookDto());
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<BookDto>> reads = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                reads.add(executor.submit(() -> {
+                    start.await();
+                    return bookService.getBook(1L);
+                }));
+            }
+            start.countDown();
+            for (Future<BookDto> read : reads) {
+                assertEquals(BookHelper.getBookDto(), read.get(20, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(repository, times(1)).findDtoByIdAndStatus(1L, BookStatus.ACTIVE);
+        assertEquals(readers - 1, bookCache.collapsedLoads() - collapsedBefore);
+        assertEquals(BookHelper.getBookDto(), bookCache.get(1L));
+    }
+
+    @Test
+    void getBookbyId_ConcurrentMissesShareTheFailure() throws Exception {
+        long collapsedBefore = bookCache.collapsedLoads();
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenAnswer(invocation -> {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (bookCache.collapsedLoads() == collapsedBefore && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            return Optional.empty();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> bookService.getBook(1L));
+            Future<?> second = executor.submit(() -> bookService.getBook(1L));
+            for (Future<?> read : List.of(first, second)) {
+                ExecutionException ex = assertThrows(ExecutionException.class, () -> read.get(20, TimeUnit.SECONDS));
+                assertEquals(HttpStatus.NOT_FOUND, ((BusinessException) ex.getCause()).getStatus());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(repository, times(1)).findDtoByIdAndStatus(1L, BookStatus.ACTIVE);
+        assertNull(bookCache.get(1L));
+    }
+
+    @Test
+    void getBookbyId_WriteDuringLoad_NotOverwritten() {
+        BookDto updated = BookHelper.getBookDto();
+        updated.setBookName("harry potter 2");
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenAnswer(invocation -> {
+            // an update of the book lands while it is read
+            bookCache.put(1L, updated);
+            return Optional.of(BookHelper.getBookDto());
+        });
+
+        assertEquals(BookHelper.getBookDto(), bookService.getBook(1L));
+        assertEquals(updated, bookCache.get(1L));
+    }
+
+    @Test
+    void getBooksByIds() {
+        BookDto cached = BookHelper.getBookDto();
+        bookCache.put(1L, cached);
+        tombstones.add(3L);
+        BookDto loaded = BookHelper.getBookDto();
+        loaded.setId("2");
+        when(repository.findDtosByIds(List.of(4L, 2L), BookStatus.ACTIVE)).thenReturn(List.of(loaded));
+
+        BookBatchResponseDto books = bookService.getBooksByIds(List.of(4L, 3L, 2L, 1L, 2L));
+
+        assertEquals(List.of(loaded, cached), books.getBooks());
+        assertEquals(List.of("4", "3"), books.getMissingIds());
+        assertEquals(loaded, bookCache.get(2L));
+        verify(repository, times(1)).findDtosByIds(anyCollection(), eq(BookStatus.ACTIVE));
+    }
+
+    @Test
+    void getBooksByIds_WriteDuringLoad_NotOverwritten() {
+        BookDto read = BookHelper.getBookDto();
+        read.setVersion(1L);
+        BookDto updated = BookHelper.getBookDto();
+        updated.setBookName("harry potter 2");
+        updated.setVersion(2L);
+        when(repository.findDtosByIds(List.of(1L), BookStatus.ACTIVE)).thenAnswer(invocation -> {
+            // an update of the book lands while it is read
+            bookCache.put(1L, updated);
+            return List.of(read);
+        });
+
+        assertEquals(List.of(read), bookService.getBooksByIds(List.of(1L)).getBooks());
+        assertEquals(updated, bookCache.get(1L));
+    }
+
+    @Test
+    void getBooksByIds_AllCached() {
+        bookCache.put(1L, BookHelper.getBookDto());
+
+        assertEquals(new BookBatchResponseDto(List.of(BookHelper.getBookDto()), List.of()),
+                bookService.getBooksByIds(List.of(1L)));
+        verify(repository, never()).findDtosByIds(anyCollection(), any());
+    }
+
+    @Test
+    void getBooksByIds_TooMany() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 1001; id++) {
+            ids.add(id);
+        }
+        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.getBooksByIds(ids));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+        assertThrows(BusinessException.class, () -> bookService.getBooksByIds(List.of()));
+        verify(repository, never()).findDtosByIds(anyCollection(), any());
+    }
+
+    @Test
+    void getBookbyId_Deleted() {
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenReturn(Optional.empty());
+        when(repository.existsById(1L)).thenReturn(true);
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.getBook(1L));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatus());
+        assertEquals("This book is no longer sold here", ex.getMessage());
+        assertNull(bookCache.get(1L));
+
+        // the deleted id is remembered, the second read does not reach the database
+        assertThrows(BusinessException.class, () -> bookService.getBook(1L));
+        verify(repository, times(1)).findDtoByIdAndStatus(1L, BookStatus.ACTIVE);
+    }
+
+    @Test
+    void getBookbyId_NotFound() {
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenReturn(Optional.empty());
         BusinessException ex = assertThrows(BusinessException.class, () -> bookService.getBook(1L));
         assertEquals(HttpStatus.NOT_FOUND, ex.getStatus());
         assertEquals("Requested book is not available in the store!!!", ex.getMessage());
@@ -83,35 +381,66 @@ class BookServiceImplTest {
 
     @Test
     void deleteBook() {
-        Book book = BookHelper.getBookWithId();
-        when(repository.findById(1L)).thenReturn(Optional.of(book));
+        when(repository.updateStatus(eq(1L), eq(BookStatus.ACTIVE), eq(BookStatus.DELETED), any())).thenReturn(1);
         bookService.deleteBook(1L);
+        assertEquals(List.of(BookChangedEvent.removed(1L)), events);
+        assertTrue(tombstones.contains(1L));
+        verify(repository, never()).findStatusById(1L);
+    }
+
+    @Test
+    void deleteBook_InvalidatesCache() {
+        when(repository.updateStatus(eq(1L), eq(BookStatus.ACTIVE), eq(BookStatus.DELETED), any())).thenReturn(1);
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenReturn(Optional.of(BookHelper.getBookDto()));
+        bookService.getBook(1L);
+        assertNotNull(bookCache.get(1L));
+
+        bookService.deleteBook(1L);
+
+        assertNull(bookCache.get(1L));
+        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.getBook(1L));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatus());
+        assertEquals("This book is no longer sold here", ex.getMessage());
     }
 
     @Test
     void deleteBook_NotFound() {
         final String errorMsg = "Requested book is not available in the store!!!";
 
-        when(repository.findById(1L))
-                .thenThrow(new BusinessException(HttpStatus.NOT_FOUND, errorMsg));
+        when(repository.updateStatus(eq(1L), eq(BookStatus.ACTIVE), eq(BookStatus.DELETED), any())).thenReturn(0);
+        when(repository.findStatusById(1L)).thenReturn(Optional.empty());
 
         BusinessException ex = assertThrows(BusinessException.class, () -> bookService.deleteBook(1L));
         assertEquals(HttpStatus.NOT_FOUND, ex.getStatus());
         assertEquals(errorMsg, ex.getMessage());
+        assertFalse(tombstones.contains(1L));
     }
 
     @Test
     void deleteBook_AlreadyDeleted() {
         final String errorMsg = "This book is no longer sold here";
 
-        Book book = BookHelper.getBookWithId();
-        book.setStatus(BookStatus.DELETED);
-
-        when(repository.findById(1L)).thenReturn(Optional.of(book));
+        when(repository.updateStatus(eq(1L), eq(BookStatus.ACTIVE), eq(BookStatus.DELETED), any())).thenReturn(0);
+        when(repository.findStatusById(1L)).thenReturn(Optional.of(BookStatus.DELETED));
 
         BusinessException ex = assertThrows(BusinessException.class, () -> bookService.deleteBook(1L));
         assertEquals(HttpStatus.CONFLICT, ex.getStatus());
         assertEquals(errorMsg, ex.getMessage());
+
+        // known deleted now, answered without touching the database
+        ex = assertThrows(BusinessException.class, () -> bookService.deleteBook(1L));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+        verify(repository, times(1)).updateStatus(eq(1L), any(), any(), any());
+    }
+
+    @Test
+    void updateBook_Tombstoned() {
+        tombstones.add(1L);
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> bookService.updateBook(1L, BookHelper.getBookRequestDto(), null));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+        verify(repository, never()).updateActiveBook(eq(1L), anyMap(), any(), any());
     }
 
     @Test
@@ -121,11 +450,64 @@ class BookServiceImplTest {
 
         BookDto expectedResponse = BookHelper.getBookDto();
         expectedResponse.setAuthor("JK Rowling!");
+        expectedResponse.setVersion(4L);
+        expectedResponse.setBookPrice(new BigDecimal("100.00"));
 
-        Book book = BookHelper.getBookWithId();
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(repository.updateActiveBook(eq(1L), anyMap(), eq(Set.of(3L)), now.capture())).thenReturn(1);
+        BookDto updated = bookService.updateBook(1L, request, Set.of(3L));
+        // the stored updatedOn is known too, so the book gets its Last-Modified without a read
+        expectedResponse.setUpdatedOn(now.getValue());
+        assertEquals(expectedResponse, updated);
+        assertEquals(expectedResponse, bookCache.get(1L));
+        assertEquals(List.of(BookChangedEvent.saved(expectedResponse)), events);
+        verify(repository, never()).findDtoByIdAndStatus(1L, BookStatus.ACTIVE);
+    }
 
-        when(repository.findById(1L)).thenReturn(Optional.of(book));
-        assertEquals(expectedResponse, bookService.updateBook(1L, request));
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateBook_CachesTheBookAsStored() {
+        BookRequestDto request = BookHelper.getBookRequestDto();
+        request.setBookPrice(new BigDecimal("20.005"));
+
+        ArgumentCaptor<Map<String, Object>> changes = ArgumentCaptor.forClass(Map.class);
+        when(repository.updateActiveBook(eq(1L), changes.capture(), eq(Set.of(3L)), any())).thenReturn(1);
+        BookDto updated = bookService.updateBook(1L, request, Set.of(3L));
+
+        assertEquals(new BigDecimal("20.01"), changes.getValue().get("bookPrice"));
+        assertEquals(new BigDecimal("20.01"), updated.getBookPrice());
+        assertEquals(0, updated.getUpdatedOn().getNano() % 1000);
+        assertEquals(updated, bookCache.get(1L));
+    }
+
+    @Test
+    void updateBook_AnyOfSeveralVersions_ReadsBack() {
+        BookDto updated = BookHelper.getBookDto();
+        updated.setVersion(6L);
+        when(repository.updateActiveBook(eq(1L), anyMap(), eq(Set.of(3L, 5L)), any())).thenReturn(1);
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenReturn(Optional.of(updated));
+
+        assertEquals(updated, bookService.updateBook(1L, BookHelper.getBookRequestDto(), Set.of(3L, 5L)));
+        assertEquals(updated, bookCache.get(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateBook_WithoutVersion_SetsEveryColumnAndReadsBack() {
+        BookRequestDto request = BookHelper.getBookRequestDto();
+        request.setBookDescription(null);
+        BookDto updated = BookHelper.getBookDto();
+        updated.setBookDescription(null);
+        updated.setVersion(8L);
+
+        ArgumentCaptor<Map<String, Object>> changes = ArgumentCaptor.forClass(Map.class);
+        when(repository.updateActiveBook(eq(1L), changes.capture(), isNull(), any())).thenReturn(1);
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenReturn(Optional.of(updated));
+
+        assertEquals(updated, bookService.updateBook(1L, request, null));
+        assertEquals(6, changes.getValue().size());
+        assertTrue(changes.getValue().containsKey("bookDescription"));
+        assertNull(changes.getValue().get("bookDescription"));
     }
 
     @Test
@@ -133,14 +515,81 @@ class BookServiceImplTest {
         BookRequestDto request = BookHelper.getBookRequestDto();
         final String errorMsg = "Requested book is not available in the store!!!";
 
-        when(repository.findById(1L))
-                .thenThrow(new BusinessException(HttpStatus.NOT_FOUND, errorMsg));
+        when(repository.updateActiveBook(eq(1L), anyMap(), isNull(), any())).thenReturn(0);
+        when(repository.findStatusById(1L)).thenReturn(Optional.empty());
 
-        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.updateBook(1L, request));
+        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.updateBook(1L, request, null));
         assertEquals(HttpStatus.NOT_FOUND, ex.getStatus());
         assertEquals(errorMsg, ex.getMessage());
     }
 
+    @Test
+    void updateBook_Deleted() {
+        when(repository.updateActiveBook(eq(1L), anyMap(), eq(Set.of(3L)), any())).thenReturn(0);
+        when(repository.findStatusById(1L)).thenReturn(Optional.of(BookStatus.DELETED));
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> bookService.updateBook(1L, BookHelper.getBookRequestDto(), Set.of(3L)));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+        assertEquals("This book is no longer sold here. Cannot update it", ex.getMessage());
+    }
+
+    @Test
+    void updateBook_StaleVersion() {
+        bookCache.put(1L, BookHelper.getBookDto());
+        when(repository.updateActiveBook(eq(1L), anyMap(), eq(Set.of(3L)), any())).thenReturn(0);
+        when(repository.findStatusById(1L)).thenReturn(Optional.of(BookStatus.ACTIVE));
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> bookService.updateBook(1L, BookHelper.getBookRequestDto(), Set.of(3L)));
+        assertEquals(HttpStatus.PRECONDITION_FAILED, ex.getStatus());
+        assertEquals("Book was modified since it was read", ex.getMessage());
+        assertNull(bookCache.get(1L));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void patchBook_OnlySetsGivenFields() {
+        BookDto patched = BookHelper.getBookDto();
+        patched.setBookPrice(BigDecimal.valueOf(12));
+        patched.setVersion(2L);
+
+        ArgumentCaptor<Map<String, Object>> changes = ArgumentCaptor.forClass(Map.class);
+        when(repository.updateActiveBook(eq(1L), changes.capture(), eq(Set.of(1L)), any())).thenReturn(1);
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenReturn(Optional.of(patched));
+
+        BookPatchRequestDto request = BookPatchRequestDto.builder().bookPrice(BigDecimal.valueOf(12)).build();
+        assertEquals(patched, bookService.patchBook(1L, request, Set.of(1L)));
+        assertEquals(Map.of("bookPrice", new BigDecimal("12.00")), changes.getValue());
+        assertEquals(patched, bookCache.get(1L));
+        assertEquals(List.of(BookChangedEvent.saved(patched)), events);
+    }
+
+    @Test
+    void patchBook_StaleVersion() {
+        when(repository.updateActiveBook(eq(1L), anyMap(), eq(Set.of(1L)), any())).thenReturn(0);
+        when(repository.findStatusById(1L)).thenReturn(Optional.of(BookStatus.ACTIVE));
+
+        BookPatchRequestDto request = BookPatchRequestDto.builder().author("Someone Else").build();
+        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.patchBook(1L, request, Set.of(1L)));
+        assertEquals(HttpStatus.PRECONDITION_FAILED, ex.getStatus());
+    }
+
+    @Test
+    void patchBook_Empty_ChecksVersionWithoutUpdating() {
+        BookDto current = BookHelper.getBookDto();
+        current.setVersion(5L);
+        when(repository.findDtoByIdAndStatus(1L, BookStatus.ACTIVE)).thenReturn(Optional.of(current));
+
+        assertEquals(current, bookService.patchBook(1L, new BookPatchRequestDto(), Set.of(5L)));
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> bookService.patchBook(1L, new BookPatchRequestDto(), Set.of(4L)));
+        assertEquals(HttpStatus.PRECONDITION_FAILED, ex.getStatus());
+        verify(repository, never()).updateActiveBook(eq(1L), anyMap(), any(), any());
+        assertTrue(events.isEmpty());
+    }
+
     @Test
     void checkout() {
         CheckoutBookRequestDto requestDto = new CheckoutBookRequestDto();
@@ -235,4 +684,383 @@ class BookServiceImplTest {
         assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
         assertEquals("Invalid promo code", ex.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void checkout_AfterPromotionReload() {
+        List<PromotionRule> configuredRules = discountConfig.getPromotionRules();
+        PromotionService promotionService = new PromotionServiceImpl(discountConfig);
+        try {
+            promotionService.replacePromotionRules(List.of(
+                    new PromotionRule("code3", List.of(new DiscountRule("FICTION", BigDecimal.valueOf(50))))));
+
+            CheckoutBookRequestDto requestDto = new CheckoutBookRequestDto();
+            requestDto.setPromoCode("code3");
+            CheckedOutBook checkedOutBook = new CheckedOutBook();
+            checkedOutBook.setType("FICTION");
+            checkedOutBook.setQuantity(2);
+            checkedOutBook.setBookPrice(BigDecimal.valueOf(100));
+            requestDto.setItems(Collections.singletonList(checkedOutBook));
+
+            assertEquals(getBigDecimal(100), bookService.calculateBookPayment(requestDto).getPriceAfterDiscount());
+
+            requestDto.setPromoCode("code1");
+            BusinessException ex = assertThrows(BusinessException.class, () -> bookService.calculateBookPayment(requestDto));
+            assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+        } finally {
+            promotionService.replacePromotionRules(configuredRules);
+        }
+    }
+
+    @Test
+    void checkout_CatalogPricing() {
+        checkoutConfig.setPricing(PricingMode.CATALOG);
+
+        // the catalog has book 1 as COMICS for 100, book 2 as FICTION for 20
+        Book book1 = BookHelper.getBookWithId();
+        Book book2 = BookHelper.getBookWithId();
+        book2.setId(2L);
+        book2.setType("FICTION");
+        book2.setBookPrice(BigDecimal.valueOf(20));
+        when(repository.findAllById(List.of(1L, 2L))).thenReturn(List.of(book1, book2));
+
+        CheckoutBookRequestDto requestDto = new CheckoutBookRequestDto();
+        requestDto.setPromoCode("code1");
+        requestDto.setItems(List.of(
+                checkedOutBook("1", "FICTION", 1, 1),
+                checkedOutBook("2", "COMICS", 2, 1),
+                checkedOutBook("1", "FICTION", 1, 1)));
+
+        CheckoutBookResponse response = bookService.calculateBookPayment(requestDto);
+
+        // 2 * 100 + 2 * 20 = 240
+        assertEquals(getBigDecimal(240), response.getOriginalPrice());
+        // 200 - 5% + 40 - 10% = 190 + 36 = 226
+        assertEquals(getBigDecimal(226), response.getPriceAfterDiscount());
+        verify(repository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    void checkout_CatalogPricing_WriteDuringLoad_NotOverwritten() {
+        checkoutConfig.setPricing(PricingMode.CATALOG);
+        Book read = BookHelper.getBookWithId();
+        read.setVersion(1L);
+        BookDto updated = BookHelper.getBookDto();
+        updated.setBookPrice(BigDecimal.valueOf(120));
+        updated.setVersion(2L);
+        when(repository.findAllById(List.of(1L))).thenAnswer(invocation -> {
+            // a price change lands while the book is read
+            bookCache.put(1L, updated);
+            return List.of(read);
+        });
+
+        CheckoutBookRequestDto requestDto = new CheckoutBookRequestDto();
+        requestDto.setItems(List.of(checkedOutBook("1", "FICTION", 1, 1)));
+        bookService.calculateBookPayment(requestDto);
+        assertEquals(updated, bookCache.get(1L));
+
+        bookCache.invalidate(1L);
+        when(repository.findAllById(List.of(1L))).thenAnswer(invocation -> {
+            bookCache.put(1L, updated);
+            return List.of(read);
+        });
+        bookService.calculateBookPayments(List.of(requestDto));
+        assertEquals(updated, bookCache.get(1L));
+    }
+
+    @Test
+    void checkout_CatalogPricing_FromCache() {
+        checkoutConfig.setPricing(PricingMode.CATALOG);
+        bookCache.put(1L, BookHelper.getBookDto());
+
+        CheckoutBookRequestDto requestDto = new CheckoutBookRequestDto();
+        requestDto.setItems(List.of(checkedOutBook("1", "FICTION", 3, 1)));
+
+        assertEquals(getBigDecimal(300), bookService.calculateBookPayment(requestDto).getOriginalPrice());
+        verify(repository, never()).findAllById(anyIterable());
+    }
+
+    @Test
+    void checkout_CatalogPricing_UnknownBook() {
+        checkoutConfig.setPricing(PricingMode.CATALOG);
+        when(repository.findAllById(List.of(1L, 7L))).thenReturn(List.of(BookHelper.getBookWithId()));
+
+        CheckoutBookRequestDto requestDto = new CheckoutBookRequestDto();
+        requestDto.setItems(List.of(checkedOutBook("1", "FICTION", 1, 1), checkedOutBook("7", "FICTION", 1, 1)));
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.calculateBookPayment(requestDto));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatus());
+        assertEquals("Book 7 is not available in the store", ex.getMessage());
+    }
+
+    @Test
+    void checkout_CatalogPricing_DeletedBook() {
+        checkoutConfig.setPricing(PricingMode.CATALOG);
+        Book book = BookHelper.getBookWithId();
+        book.setStatus(BookStatus.DELETED);
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(book));
+
+        CheckoutBookRequestDto requestDto = new CheckoutBookRequestDto();
+        requestDto.setItems(List.of(checkedOutBook("1", "FICTION", 1, 1)));
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.calculateBookPayment(requestDto));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatus());
+        assertEquals("Book 1 is no longer sold here", ex.getMessage());
+    }
+
+    @Test
+    void checkout_CatalogPricing_MissingId() {
+        checkoutConfig.setPricing(PricingMode.CATALOG);
+
+        CheckoutBookRequestDto requestDto = new CheckoutBookRequestDto();
+        requestDto.setItems(List.of(checkedOutBook(null, "FICTION", 1, 1)));
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.calculateBookPayment(requestDto));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+        assertEquals("id is required for every item", ex.getMessage());
+    }
+
+    @Test
+    void checkoutAsync_CatalogPricing() throws Exception {
+        checkoutConfig.setPricing(PricingMode.CATALOG);
+        Thread caller = Thread.currentThread();
+        List<Thread> loaders = new ArrayList<>();
+        when(repository.findAllById(List.of(1L))).thenAnswer(invocation -> {
+            loaders.add(Thread.currentThread());
+            return List.of(BookHelper.getBookWithId());
+        });
+
+        CheckoutBookRequestDto requestDto = new CheckoutBookRequestDto();
+        requestDto.setItems(List.of(checkedOutBook("1", "FICTION", 3, 1)));
+
+        assertEquals(getBigDecimal(300),
+                bookService.calculateBookPaymentAsync(requestDto).get(5, TimeUnit.SECONDS).getOriginalPrice());
+        assertEquals(1, loaders.size());
+        assertNotEquals(caller, loaders.get(0));
+
+        // the book is cached now, the second checkout completes without a query
+        CompletableFuture<CheckoutBookResponse> cached = bookService.calculateBookPaymentAsync(requestDto);
+        assertTrue(cached.isDone());
+        assertEquals(getBigDecimal(300), cached.get().getOriginalPrice());
+        verify(repository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    void checkoutAsync_DeletedBook_CompletesExceptionally() {
+        checkoutConfig.setPricing(PricingMode.CATALOG);
+        Book book = BookHelper.getBookWithId();
+        book.setStatus(BookStatus.DELETED);
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(book));
+
+        CheckoutBookRequestDto requestDto = new CheckoutBookRequestDto();
+        requestDto.setItems(List.of(checkedOutBook("1", "FICTION", 1, 1)));
+
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> bookService.calculateBookPaymentAsync(requestDto).get(5, TimeUnit.SECONDS));
+        assertEquals(HttpStatus.NOT_FOUND, ((BusinessException) ex.getCause()).getStatus());
+    }
+
+    @Test
+    void checkoutAsync_InvalidPromoCode_ThrowsAtOnce() {
+        CheckoutBookRequestDto requestDto = new CheckoutBookRequestDto();
+        requestDto.setPromoCode("nope");
+        requestDto.setItems(List.of(checkedOutBook("1", "FICTION", 1, 1)));
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> bookService.calculateBookPaymentAsync(requestDto));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+    }
+
+    @Test
+    void checkoutBatch_PerCartResults() {
+        CheckoutBookRequestDto withCode1 = cart("code1", checkedOutBook("1", "FICTION", 10, 100));
+        CheckoutBookRequestDto withUnknownCode = cart("nope", checkedOutBook("1", "FICTION", 1, 100));
+        CheckoutBookRequestDto withoutCode = cart(null, checkedOutBook("1", "FICTION", 2, 10));
+
+        List<CheckoutBatchResultDto> results = bookService.calculateBookPayments(
+                List.of(withCode1, withUnknownCode, withoutCode, withCode1));
+
+        CheckoutBatchResultDto code1Result = new CheckoutBatchResultDto(200, getBigDecimal(1000), getBigDecimal(900), null);
+        assertEquals(List.of(
+                code1Result,
+                new CheckoutBatchResultDto(400, null, null, "Invalid promo code"),
+                new CheckoutBatchResultDto(200, getBigDecimal(20), getBigDecimal(20), null),
+                code1Result), results);
+    }
+
+    @Test
+    void checkoutBatch_LargeBatchKeepsOrder() {
+        List<CheckoutBookRequestDto> carts = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            carts.add(cart(null, checkedOutBook("1", "FICTION", i, 1)));
+        }
+
+        List<CheckoutBatchResultDto> results = bookService.calculateBookPayments(carts);
+
+        assertEquals(500, results.size());
+        for (int i = 1; i <= 500; i++) {
+            assertEquals(getBigDecimal(i), results.get(i - 1).getOriginalPrice());
+        }
+    }
+
+    @Test
+    void checkoutBatch_CatalogPricing_OneQueryForTheBatch() {
+        checkoutConfig.setPricing(PricingMode.CATALOG);
+        Book book1 = BookHelper.getBookWithId();
+        Book book2 = BookHelper.getBookWithId();
+        book2.setId(2L);
+        book2.setBookPrice(BigDecimal.valueOf(20));
+        Book deleted = BookHelper.getBookWithId();
+        deleted.setId(3L);
+        deleted.setStatus(BookStatus.DELETED);
+        when(repository.findAllById(anyIterable())).thenReturn(List.of(book1, book2, deleted));
+
+        List<CheckoutBatchResultDto> results = bookService.calculateBookPayments(List.of(
+                cart(null, checkedOutBook("1", "FICTION", 1, 1), checkedOutBook("2", "FICTION", 1, 1)),
+                cart(null, checkedOutBook("3", "FICTION", 1, 1)),
+                cart(null, checkedOutBook("2", "FICTION", 2, 1)),
+                cart(null, checkedOutBook("9", "FICTION", 1, 1)),
+                cart(null, checkedOutBook(null, "FICTION", 1, 1))));
+
+        assertEquals(getBigDecimal(120), results.get(0).getOriginalPrice());
+        assertEquals(new CheckoutBatchResultDto(404, null, null, "Book 3 is no longer sold here"), results.get(1));
+        assertEquals(getBigDecimal(40), results.get(2).getOriginalPrice());
+        assertEquals(new CheckoutBatchResultDto(404, null, null, "Book 9 is not available in the store"), results.get(3));
+        assertEquals(new CheckoutBatchResultDto(400, null, null, "id is required for every item"), results.get(4));
+        verify(repository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    void checkout_ReserveStock() {
+        checkoutConfig.setReserveStock(true);
+        when(repository.findStockLevels(List.of(1L), BookStatus.ACTIVE)).thenReturn(List.of(new StockLevel(1L, 5)));
+
+        CheckoutBookRequestDto requestDto = cart(null, checkedOutBook("1", "FICTION", 2, 10), checkedOutBook("1", "FICTION", 1, 10));
+        CheckoutBookResponse response = bookService.calculateBookPayment(requestDto);
+
+        assertEquals(getBigDecimal(30), response.getOriginalPrice());
+        assertNotNull(response.getReservationId());
+        assertNotNull(response.getReservedUntil());
+        assertEquals(2L, inventoryService.getStock(1L).getAvailable());
+        assertEquals(3L, inventoryService.getStock(1L).getReserved());
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.calculateBookPayment(requestDto));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+        assertEquals("Not enough copies of book 1 in stock", ex.getMessage());
+        assertEquals(2L, inventoryService.getStock(1L).getAvailable());
+        verify(repository, times(1)).findStockLevels(anyCollection(), eq(BookStatus.ACTIVE));
+    }
+
+    @Test
+    void checkout_ReserveStock_ShortItemReleasesTheOthers() {
+        checkoutConfig.setReserveStock(true);
+        when(repository.findStockLevels(List.of(1L, 2L), BookStatus.ACTIVE))
+                .thenReturn(List.of(new StockLevel(1L, 5), new StockLevel(2L, 1)));
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> bookService.calculateBookPayment(
+                cart(null, checkedOutBook("1", "FICTION", 4, 10), checkedOutBook("2", "FICTION", 2, 10))));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+        assertEquals("Not enough copies of book 2 in stock", ex.getMessage());
+        assertEquals(5L, inventoryService.getStock(1L).getAvailable());
+        assertEquals(0L, inventoryService.getStock(1L).getReserved());
+    }
+
+    @Test
+    void checkout_ReserveStock_OrderNotRecorded_ReleasesTheCopies() {
+        checkoutConfig.setReserveStock(true);
+        OrderService orders = mock(OrderService.class);
+        doThrow(new UncheckedIOException(new IOException("journal is full")))
+                .when(orders).placeOrder(any(), anyList(), any(CheckoutBookResponse.class));
+        bookService = new BookServiceImpl(repository, bookMapper, discountConfig, paginationConfig, bookCache,
+                tombstones, checkoutConfig, jdbcExecutor, pricingPool, inventoryService, orders, events::add);
+        when(repository.findStockLevels(List.of(1L), BookStatus.ACTIVE)).thenReturn(List.of(new StockLevel(1L, 5)));
+
+        assertThrows(UncheckedIOException.class,
+                () -> bookService.calculateBookPayment(cart(null, checkedOutBook("1", "FICTION", 2, 10))));
+
+        assertEquals(5L, inventoryService.getStock(1L).getAvailable());
+        assertEquals(0L, inventoryService.getStock(1L).getReserved());
+    }
+
+    @Test
+    void checkout_ReserveStock_UnpricedCartHoldsNothing() {
+        checkoutConfig.setReserveStock(true);
+
+        assertThrows(BusinessException.class,
+                () -> bookService.calculateBookPayment(cart("nope", checkedOutBook("1", "FICTION", 1, 10))));
+        verify(repository, never()).findStockLevels(anyCollection(), any());
+    }
+
+    @Test
+    void checkoutAsync_ReserveStock_LoadsStockOnJdbcThread() throws Exception {
+        checkoutConfig.setReserveStock(true);
+        Thread caller = Thread.currentThread();
+        List<Thread> loaders = new ArrayList<>();
+        when(repository.findStockLevels(List.of(1L), BookStatus.ACTIVE)).thenAnswer(invocation -> {
+            loaders.add(Thread.currentThread());
+            return List.of(new StockLevel(1L, 5));
+        });
+        CheckoutBookRequestDto requestDto = cart(null, checkedOutBook("1", "FICTION", 2, 10));
+
+        assertNotNull(bookService.calculateBookPaymentAsync(requestDto).get(5, TimeUnit.SECONDS).getReservationId());
+        assertEquals(1, loaders.size());
+        assertNotEquals(caller, loaders.get(0));
+
+        // the stock is in memory now, the second checkout completes at once
+        CompletableFuture<CheckoutBookResponse> loaded = bookService.calculateBookPaymentAsync(requestDto);
+        assertTrue(loaded.isDone());
+        assertNotNull(loaded.get().getReservationId());
+        assertEquals(1L, inventoryService.getStock(1L).getAvailable());
+    }
+
+    @Test
+    void checkoutBatch_ReserveStock_ReservesNothing() {
+        checkoutConfig.setReserveStock(true);
+        when(repository.findStockLevels(anyCollection(), eq(BookStatus.ACTIVE))).thenReturn(List.of(new StockLevel(1L, 3)));
+
+        List<CheckoutBatchResultDto> results = bookService.calculateBookPayments(List.of(
+                cart(null, checkedOutBook("1", "FICTION", 2, 10)),
+                cart(null, checkedOutBook("1", "FICTION", 2, 10))));
+
+        // more copies than in stock are priced, as nothing is taken from it
+        assertEquals(new CheckoutBatchResultDto(200, getBigDecimal(20), getBigDecimal(20), null), results.get(0));
+        assertEquals(new CheckoutBatchResultDto(200, getBigDecimal(20), getBigDecimal(20), null), results.get(1));
+        assertEquals(3L, inventoryService.getStock(1L).getAvailable());
+        assertEquals(0L, inventoryService.getStock(1L).getReserved());
+    }
+
+    @Test
+    void checkoutBatch_RecordsNoOrders() {
+        OrderService orders = mock(OrderService.class);
+        bookService = new BookServiceImpl(repository, bookMapper, discountConfig, paginationConfig, bookCache,
+                tombstones, checkoutConfig, jdbcExecutor, pricingPool, inventoryService, orders, events::add);
+
+        List<CheckoutBatchResultDto> results = bookService.calculateBookPayments(List.of(
+                cart("code1", checkedOutBook("1", "FICTION", 2, 10)),
+                cart(null, checkedOutBook("2", "COMIC", 1, 10))));
+
+        assertEquals(200, results.get(0).getStatus());
+        assertEquals(200, results.get(1).getStatus());
+        verifyNoInteractions(orders);
+
+        // a single checkout of the same cart is recorded
+        bookService.calculateBookPayment(cart(null, checkedOutBook("2", "COMIC", 1, 10)));
+        verify(orders).placeOrder(isNull(), anyList(), any(CheckoutBookResponse.class));
+    }
+
+    private static CheckoutBookRequestDto cart(String promoCode, CheckedOutBook... items) {
+        CheckoutBookRequestDto request = new CheckoutBookRequestDto();
+        request.setPromoCode(promoCode);
+        request.setItems(List.of(items));
+        return request;
+    }
+
+    private static CheckedOutBook checkedOutBook(String id, String type, int quantity, double bookPrice) {
+        CheckedOutBook checkedOutBook = new CheckedOutBook();
+        checkedOutBook.setId(id);
+        checkedOutBook.setType(type);
+        checkedOutBook.setQuantity(quantity);
+        checkedOutBook.setBookPrice(BigDecimal.valueOf(bookPrice));
+        return checkedOutBook;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.book.service;
+
+import com.example.book.BookHelper;
+import com.example.book.dto.request.CheckoutBookRequestDto;
+import com.example.book.dto.response.CheckoutBookResponse;
+import com.example.book.dto.response.StockDto;
+import com.example.book.entity.Book;
+import com.example.book.exception.BusinessException;
+import com.example.book.inventory.StockLedger;
+import com.example.book.inventory.StockLevel;
+import com.example.book.model.BookStatus;
+import com.example.book.model.CheckedOutBook;
+import com.example.book.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Launch of a hot title: many threads check out through the real service, database and stock ledger, blocking and
+ * async, a few copies at a time and often with a second book in the cart, while copies are restocked and the
+ * ledger is flushed concurrently. Far more copies are asked for than exist. The number of checkouts per thread
+ * can be raised with -Dcheckout.stock.attempts.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stockdb",
+        "book.checkout.pricing=CATALOG",
+        "book.checkout.reserveStock=true",
+        "book.inventory.flushInterval=10ms",
+        "spring.jpa.show-sql=false"})
+@Slf4j
+class CheckoutStockStressTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = Integer.getInteger("checkout.stock.attempts", 500);
+    private static final long HOT_STOCK = 500;
+    private static final long COLD_STOCK = 300;
+    private static final long RESTOCKS = 20;
+
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private StockLedger ledger;
+    @Autowired
+    private BookRepository bookRepository;
+
+    @AfterEach
+    void after() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void hotTitleIsNeverOversold() throws Exception {
+        Long hot = save("111", HOT_STOCK);
+        Long cold = save("222", COLD_STOCK);
+        Map<Long, LongAdder> sold = Map.of(hot, new LongAdder(), cold, new LongAdder());
+        LongAdder rejected = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong lowestAvailable = new AtomicLong(Long.MAX_VALUE);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 2);
+        try {
+            List<Future<?>> buyers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                boolean async = t % 2 == 1;
+                buyers.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < ATTEMPTS; i++) {
+                        long hotCopies = 1 + random.nextInt(3);
+                        long coldCopies = random.nextInt(2);
+                        CheckoutBookResponse response;
+                        try {
+                            response = checkOut(async, item(hot, hotCopies), item(cold, coldCopies));
+                        } catch (BusinessException ex) {
+                            assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+                            rejected.increment();
+                            continue;
+                        }
+                        if (random.nextInt(4) == 0) {
+                            inventoryService.cancel(response.getReservationId());
+                        } else {
+                            inventoryService.confirm(response.getReservationId());
+                            sold.get(hot).add(hotCopies);
+                            sold.get(cold).add(coldCopies);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            // copies received during the launch, and a watcher of the available copies
+            Future<?> restocker = executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < RESTOCKS; i++) {
+                    inventoryService.restock(hot, 1);
+                    Thread.sleep(1);
+                }
+                return null;
+            });
+            executor.submit(() -> {
+                while (running.get()) {
+                    lowestAvailable.accumulateAndGet(inventoryService.getStock(hot).getAvailable(), Math::min);
+                }
+            });
+
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> buyer : buyers) {
+                buyer.get(120, TimeUnit.SECONDS);
+            }
+            restocker.get(120, TimeUnit.SECONDS);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            running.set(false);
+
+            StockDto hotStock = inventoryService.getStock(hot);
+            StockDto coldStock = inventoryService.getStock(cold);
+            assertEquals(0L, hotStock.getReserved());
+            assertEquals(0L, coldStock.getReserved());
+            assertEquals(HOT_STOCK + RESTOCKS, sold.get(hot).sum() + hotStock.getAvailable());
+            assertEquals(COLD_STOCK, sold.get(cold).sum() + coldStock.getAvailable());
+            assertTrue(lowestAvailable.get() >= 0L, "available copies went below zero: " + lowestAvailable.get());
+            assertTrue(rejected.sum() > 0, "the launch was expected to run out of copies");
+
+            ledger.flush();
+            Map<Long, Long> persisted = bookRepository.findStockLevels(List.of(hot, cold), BookStatus.ACTIVE).stream()
+                    .collect(Collectors.toMap(StockLevel::getBookId, StockLevel::getStock));
+            assertEquals(hotStock.getAvailable(), persisted.get(hot));
+            assertEquals(coldStock.getAvailable(), persisted.get(cold));
+            assertFalse(persisted.get(hot) < 0L);
+            log.info("{} checkouts on {} threads in {} ms: {} hot and {} cold copies sold, {} rejected",
+                    THREADS * ATTEMPTS, THREADS, elapsedMillis, sold.get(hot).sum(), sold.get(cold).sum(),
+                    rejected.sum());
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    private CheckoutBookResponse checkOut(boolean async, CheckedOutBook... items) throws InterruptedException {
+        CheckoutBookRequestDto request = new CheckoutBookRequestDto();
+        List<CheckedOutBook> cart = new ArrayList<>();
+        for (CheckedOutBook item : items) {
+            if (item.getQuantity() > 0) {
+                cart.add(item);
+            }
+        }
+        request.setItems(cart);
+        if (!async) {
+            return bookService.calculateBookPayment(request);
+        }
+        try {
+            return bookService.calculateBookPaymentAsync(request).get(30, TimeUnit.SECONDS);
+        } catch (ExecutionException ex) {
+            throw (BusinessException) ex.getCause();
+        } catch (java.util.concurrent.TimeoutException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Long save(String isbn, long stock) {
+        Book book = BookHelper.getBookWithoutId();
+        book.setIsbn(isbn);
+        book.setType("FICTION");
+        book.setStatus(BookStatus.ACTIVE);
+        book.setStock(stock);
+        return bookRepository.save(book).getId();
+    }
+
+    private static CheckedOutBook item(Long id, long quantity) {
+        CheckedOutBook item = new CheckedOutBook();
+        item.setId(id.toString());
+        item.setQuantity((int) quantity);
+        return item;
+    }
+}
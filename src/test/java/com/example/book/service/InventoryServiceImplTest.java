@@ -0,0 +1,134 @@
+package com.example.book.service;
+
+import com.example.book.cache.BookTombstones;
+import com.example.book.config.InventoryConfig;
+import com.example.book.dto.response.StockDto;
+import com.example.book.exception.BusinessException;
+import com.example.book.inventory.StockLedger;
+import com.example.book.inventory.StockLevel;
+import com.example.book.model.BookStatus;
+import com.example.book.model.CheckedOutBook;
+import com.example.book.model.Reservation;
+import com.example.book.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceImplTest {
+
+    private final BookRepository repository = mock(BookRepository.class);
+    private final BookTombstones tombstones = new BookTombstones(null);
+    private final InventoryConfig inventoryConfig = new InventoryConfig();
+    private StockLedger ledger;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void before() {
+        when(repository.findStockLevels(anyCollection(), eq(BookStatus.ACTIVE)))
+                .thenReturn(List.of(new StockLevel(1L, 10), new StockLevel(2L, 4)));
+        ledger = new StockLedger(repository);
+        inventoryService = new InventoryServiceImpl(ledger, tombstones, inventoryConfig);
+    }
+
+    @Test
+    void confirm_SellsTheReservedCopies() {
+        Reservation reservation = inventoryService.reserve(List.of(item("1", 3), item("2", 4)));
+        assertEquals(Map.of(1L, 3L, 2L, 4L), reservation.getQuantities());
+        assertEquals(new StockDto("2", 0, 4), inventoryService.getStock(2L));
+
+        inventoryService.confirm(reservation.getId());
+
+        assertEquals(new StockDto("1", 7, 0), inventoryService.getStock(1L));
+        assertEquals(new StockDto("2", 0, 0), inventoryService.getStock(2L));
+        assertEquals(2, ledger.flush());
+        verify(repository).addStock(Map.of(1L, -3L, 2L, -4L));
+        // nothing left to write
+        assertEquals(0, ledger.flush());
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> inventoryService.confirm(reservation.getId()));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatus());
+    }
+
+    @Test
+    void cancel_ReturnsTheReservedCopies() {
+        Reservation reservation = inventoryService.reserve(List.of(item("2", 4)));
+
+        inventoryService.cancel(reservation.getId());
+
+        assertEquals(new StockDto("2", 4, 0), inventoryService.getStock(2L));
+        assertEquals(0, ledger.flush());
+        verify(repository, never()).addStock(anyMap());
+        assertThrows(BusinessException.class, () -> inventoryService.cancel(reservation.getId()));
+    }
+
+    @Test
+    void expiredReservations_GoBackToTheStock() {
+        inventoryConfig.setReservationTtl(Duration.ofMillis(-1));
+        Reservation expired = inventoryService.reserve(List.of(item("1", 6)));
+        Reservation swept = inventoryService.reserve(List.of(item("1", 4)));
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> inventoryService.confirm(expired.getId()));
+        assertEquals(HttpStatus.GONE, ex.getStatus());
+        assertEquals(1, inventoryService.expireReservations());
+
+        assertEquals(new StockDto("1", 10, 0), inventoryService.getStock(1L));
+        assertThrows(BusinessException.class, () -> inventoryService.cancel(swept.getId()));
+    }
+
+    @Test
+    void restock_IsWrittenBackWithTheSales() {
+        Reservation reservation = inventoryService.reserve(List.of(item("2", 4)));
+        assertEquals(new StockDto("2", 6, 4), inventoryService.restock(2L, 6));
+        inventoryService.confirm(reservation.getId());
+
+        ledger.flush();
+
+        verify(repository).addStock(Map.of(2L, 2L));
+    }
+
+    @Test
+    void failedFlush_IsRetried() {
+        doThrow(new IllegalStateException("database down")).doNothing().when(repository).addStock(anyMap());
+        inventoryService.restock(1L, 5);
+
+        assertThrows(IllegalStateException.class, () -> ledger.flush());
+        inventoryService.restock(1L, 1);
+        assertEquals(1, ledger.flush());
+
+        verify(repository).addStock(Map.of(1L, 5L));
+        verify(repository).addStock(Map.of(1L, 6L));
+    }
+
+    @Test
+    void unknownOrDeletedBook() {
+        BusinessException unknown = assertThrows(BusinessException.class, () -> inventoryService.reserve(List.of(item("9", 1))));
+        assertEquals(HttpStatus.NOT_FOUND, unknown.getStatus());
+
+        tombstones.add(2L);
+        BusinessException deleted = assertThrows(BusinessException.class, () -> inventoryService.reserve(List.of(item("2", 1))));
+        assertEquals(HttpStatus.NOT_FOUND, deleted.getStatus());
+        assertThrows(BusinessException.class, () -> inventoryService.restock(2L, 1));
+    }
+
+    private static CheckedOutBook item(String id, int quantity) {
+        CheckedOutBook item = new CheckedOutBook();
+        item.setId(id);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
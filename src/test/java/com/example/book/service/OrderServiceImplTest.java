@@ -0,0 +1,172 @@
+package com.example.book.service;
+
+import com.example.book.config.OrderConfig;
+import com.example.book.dto.request.CheckoutBookRequestDto;
+import com.example.book.dto.response.CheckoutBookResponse;
+import com.example.book.dto.response.OrderDto;
+import com.example.book.entity.Order;
+import com.example.book.exception.BusinessException;
+import com.example.book.model.CheckedOutBook;
+import com.example.book.orders.OrderJournal;
+import com.example.book.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Orders written behind the journal to a real database, and recovered from a journal left behind by a crash.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ordersdb",
+        "book.orders.enabled=true",
+        "spring.jpa.show-sql=false"})
+class OrderServiceImplTest {
+
+    @TempDir
+    static Path journalDir;
+
+    @TempDir
+    Path crashDir;
+
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) {
+        registry.add("book.orders.journalDir", journalDir::toString);
+    }
+
+    @Test
+    void checkout_PlacesAnOrderWrittenBehind() {
+        CheckoutBookRequestDto request = new CheckoutBookRequestDto();
+        request.setPromoCode("code1");
+        request.setItems(List.of(item("1", 2, "100"), item("not-a-book", 1, "50")));
+
+        CheckoutBookResponse response = bookService.calculateBookPayment(request);
+        assertNotNull(response.getOrderId());
+        Long orderId = Long.valueOf(response.getOrderId());
+
+        OrderDto order = orderService.getOrder(orderId);
+        assertEquals("code1", order.getPromoCode());
+        assertEquals(0, response.getPriceAfterDiscount().compareTo(order.getPriceAfterDiscount()));
+
+        awaitWritten(orderId);
+        OrderDto stored = orderService.getOrder(orderId);
+        assertEquals(2, stored.getLines().size());
+        assertEquals("1", stored.getLines().get(0).getBookId());
+        assertEquals(2, stored.getLines().get(0).getQuantity());
+        assertNull(stored.getLines().get(1).getBookId());
+        assertEquals(0, new BigDecimal("50").compareTo(stored.getLines().get(1).getBookPrice()));
+    }
+
+    @Test
+    void getOrder_NotFound() {
+        BusinessException ex = assertThrows(BusinessException.class, () -> orderService.getOrder(Long.MAX_VALUE));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatus());
+    }
+
+    /**
+     * The journal of a crashed instance holds orders past its checkpoint, some of them stored already. A new
+     * instance stores each of them exactly once.
+     */
+    @Test
+    void open_WritesTheOrdersOfACrashedInstanceOnce() throws IOException {
+        // far past the ids of the application's own journal
+        long lastStoredId = 1_000_000;
+        List<Long> ids = new ArrayList<>();
+        OrderJournal crashed = OrderJournal.open(crashDir, 1 << 16, false, lastStoredId, objectMapper);
+        for (int i = 0; i < 10; i++) {
+            ids.add(crashed.append(order("code" + i)));
+        }
+        List<OrderDto> batch = new ArrayList<>();
+        try {
+            crashed.drainTo(batch, 4, 0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // stored, then the instance dies before its checkpoint
+        for (OrderDto order : batch) {
+            Order entity = new Order();
+            entity.setId(Long.valueOf(order.getId()));
+            entity.setPlacedOn(order.getPlacedOn());
+            entity.setPromoCode(order.getPromoCode());
+            entity.setOriginalPrice(order.getOriginalPrice());
+            entity.setPriceAfterDiscount(order.getPriceAfterDiscount());
+            orderRepository.save(entity);
+        }
+        crashed.close();
+
+        OrderConfig config = new OrderConfig();
+        config.setEnabled(true);
+        config.setJournalDir(crashDir.toString());
+        OrderServiceImpl recovered = new OrderServiceImpl(orderRepository, config, objectMapper);
+        recovered.open();
+        try {
+            for (Long id : ids) {
+                awaitWritten(id);
+            }
+            assertEquals(ids, orderRepository.findExistingIds(ids));
+            assertEquals(1, recovered.getOrder(ids.get(9)).getLines().size());
+            assertEquals(0, recovered.getOrder(ids.get(0)).getLines().size());
+        } finally {
+            recovered.shutdown();
+        }
+
+        OrderJournal reopened = OrderJournal.open(crashDir, 1 << 16, false, lastStoredId, objectMapper);
+        assertEquals(0, reopened.queued());
+        reopened.close();
+    }
+
+    private void awaitWritten(long orderId) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!orderRepository.existsById(orderId)) {
+            assertTrue(System.nanoTime() < deadline, "order " + orderId + " was not written");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static CheckedOutBook item(String id, int quantity, String price) {
+        CheckedOutBook item = new CheckedOutBook();
+        item.setId(id);
+        item.setBookName("harry potter");
+        item.setType("FICTION");
+        item.setQuantity(quantity);
+        item.setBookPrice(new BigDecimal(price));
+        return item;
+    }
+
+    private static OrderDto order(String promoCode) {
+        return new OrderDto(null, LocalDateTime.now(), promoCode, new BigDecimal("100"), new BigDecimal("95"), null,
+                List.of(new OrderDto.Line("1", "harry potter", "FICTION", 1, new BigDecimal("100"))));
+    }
+}